@@ -0,0 +1,88 @@
+#!/usr/bin/env bash
+#
+# Copyright 2018 Confluent Inc.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+# Builds the application class-data-sharing archive used by the utility-belt launcher.
+# kafka-ready, topic-ensure, acl-ensure and a utility-belt-pipeline are run once against a
+# bootstrap address nothing listens on. All fail, but only after loading the client, admin and
+# YAML classes they need on every container start; kafka-ready skips its bootstrap probe, which
+# would otherwise give up before creating the admin client. The classes they loaded are then
+# dumped into ${UTILITY_BELT_CDS_ARCHIVE}.
+
+set -o nounset \
+    -o errexit
+
+work_dir=$(mktemp -d)
+trap 'rm -rf "${work_dir}"' EXIT
+
+cat > "${work_dir}/client.properties" <<PROPERTIES
+bootstrap.servers=localhost:9
+default.api.timeout.ms=5000
+request.timeout.ms=5000
+PROPERTIES
+
+cat > "${work_dir}/topics.yaml" <<TOPICS
+topics:
+  - name: cds-training
+    partitions: 1
+    replicationFactor: 1
+    config: {}
+TOPICS
+
+cat > "${work_dir}/acls.yaml" <<ACLS
+acls:
+  - principal: User:cds-training
+    resourceType: topic
+    resourceName: cds-training
+    operations: [read]
+ACLS
+
+java -XX:DumpLoadedClassList="${work_dir}/kafka-ready.classlist" \
+     -cp "${UTILITY_BELT_CLASSPATH}" \
+     io.confluent.admin.utils.cli.KafkaReadyCommand \
+     1 \
+     3000 \
+     --config "${work_dir}/client.properties" \
+     --bootstrap-servers localhost:9 \
+     --skip-preflight &> /dev/null || true
+
+java -XX:DumpLoadedClassList="${work_dir}/topic-ensure.classlist" \
+     -cp "${UTILITY_BELT_CLASSPATH}" \
+     io.confluent.kafkaensure.cli.TopicEnsureCommand \
+     --timeout 3000 \
+     --config "${work_dir}/client.properties" \
+     --file "${work_dir}/topics.yaml" &> /dev/null || true
+
+java -XX:DumpLoadedClassList="${work_dir}/acl-ensure.classlist" \
+     -cp "${UTILITY_BELT_CLASSPATH}" \
+     io.confluent.kafkaensure.cli.AclEnsureCommand \
+     --timeout 3000 \
+     --config "${work_dir}/client.properties" \
+     --file "${work_dir}/acls.yaml" &> /dev/null || true
+
+java -XX:DumpLoadedClassList="${work_dir}/utility-belt-pipeline.classlist" \
+     -cp "${UTILITY_BELT_CLASSPATH}" \
+     io.confluent.admin.utils.cli.UtilityBeltPipeline \
+     --config "${work_dir}/client.properties" \
+     --step "kafka-ready 1 3000" &> /dev/null || true
+
+cat "${work_dir}/kafka-ready.classlist" "${work_dir}/topic-ensure.classlist" \
+    "${work_dir}/acl-ensure.classlist" "${work_dir}/utility-belt-pipeline.classlist" \
+    > "${work_dir}/utility-belt.classlist"
+
+java -Xshare:dump \
+     -XX:SharedClassListFile="${work_dir}/utility-belt.classlist" \
+     -XX:SharedArchiveFile="${UTILITY_BELT_CDS_ARCHIVE}" \
+     -cp "${UTILITY_BELT_CLASSPATH}"
@@ -29,5 +29,12 @@ class BaseJavaImageTest(unittest.TestCase):
         java_cmd = "bash -c 'java -cp \"/usr/share/java/cp-base-java/*\" io.confluent.admin.utils.cli.KafkaReadyCommand -h'"
         self.assertTrue(b"Check if Kafka is ready" in utils.run_docker_command(image=self.image, command=java_cmd))
 
+    def test_utility_belt_cds_archive_exists(self):
+        self.assertTrue(utils.path_exists_in_image(self.image, "/usr/share/java/cp-base-java/utility-belt.jsa"))
+
+    def test_utility_belt_launcher(self):
+        launcher_cmd = "bash -c 'utility-belt kafka-ready -h'"
+        self.assertTrue(b"Check if Kafka is ready" in utils.run_docker_command(image=self.image, command=launcher_cmd))
+
 if __name__ == '__main__':
     unittest.main()
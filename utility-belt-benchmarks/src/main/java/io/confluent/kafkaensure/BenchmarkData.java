@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates topic specs and clusters shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+  static final List<Node> BROKERS = Arrays.asList(
+      new Node(0, "localhost", 9092), new Node(1, "localhost", 9093),
+      new Node(2, "localhost", 9094));
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * @return a topic config with the given number of entries.
+   */
+  static Map<String, String> config(int size) {
+    Map<String, String> config = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      config.put("config.key." + i, "value-" + i);
+    }
+    return config;
+  }
+
+  /**
+   * @return specs of topics named topic-0, topic-1, ... each with the given number of configs.
+   */
+  static List<TopicSpec> specs(int count, int configSize) {
+    List<TopicSpec> specs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      specs.add(new TopicSpec("topic-" + i, 6, 3, config(configSize)));
+    }
+    return specs;
+  }
+
+  /**
+   * @return a client of an in-process cluster of three brokers in which the given topics exist.
+   */
+  static MockAdminClient cluster(List<TopicSpec> existing) {
+    MockAdminClient adminClient = new MockAdminClient(BROKERS, BROKERS.get(0));
+    List<NewTopic> newTopics = new ArrayList<>(existing.size());
+    for (TopicSpec spec : existing) {
+      newTopics.add(new NewTopic(spec.name(), spec.partitions(), (short) spec.replicationFactor())
+          .configs(spec.config()));
+    }
+    if (!newTopics.isEmpty()) {
+      adminClient.createTopics(newTopics);
+    }
+    return adminClient;
+  }
+
+  /**
+   * @return a copy of the specs, so that equals cannot short-circuit on identical maps.
+   */
+  static List<TopicSpec> copy(List<TopicSpec> specs) {
+    List<TopicSpec> copies = new ArrayList<>(specs.size());
+    for (TopicSpec spec : specs) {
+      copies.add(new TopicSpec(spec.name(), spec.partitions(), spec.replicationFactor(),
+          new HashMap<>(spec.config())));
+    }
+    return Collections.unmodifiableList(copies);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs TopicEnsure end to end against an in-process mock admin client, so the client side cost
+ * of describing, validating and creating topics is measured without network round trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicEnsureBenchmark {
+
+  private static final int TIMEOUT_MS = 60000;
+
+  @Param({"100", "2000"})
+  public int topics;
+
+  @Param({"1", "500"})
+  public int batchSize;
+
+  private List<TopicSpec> specs;
+  private MockAdminClient existing;
+  private MockAdminClient empty;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    specs = BenchmarkData.specs(topics, 10);
+    existing = BenchmarkData.cluster(specs);
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    empty = BenchmarkData.cluster(Collections.emptyList());
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDownInvocation() {
+    empty.close();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() {
+    existing.close();
+  }
+
+  private static TopicEnsure topicEnsure(MockAdminClient adminClient) {
+    return new TopicEnsure(adminClient, new PrintStream(OutputStream.nullOutputStream()));
+  }
+
+  @Benchmark
+  public List<TopicEnsure.TopicResult> validateExisting() throws Exception {
+    return topicEnsure(existing).ensureTopics(specs, false, TIMEOUT_MS, batchSize);
+  }
+
+  @Benchmark
+  public List<TopicEnsure.TopicResult> createMissing() throws Exception {
+    return topicEnsure(empty).ensureTopics(specs, true, TIMEOUT_MS, batchSize);
+  }
+}
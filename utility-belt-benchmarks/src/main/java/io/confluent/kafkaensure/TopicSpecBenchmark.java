@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares and hashes topic specs, and builds the actual spec of an existing topic from its
+ * description and config as validateTopic does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicSpecBenchmark {
+
+  // Number of configs a broker returns for a topic, most of which are not in the spec.
+  private static final int BROKER_CONFIG_SIZE = 200;
+
+  @Param({"5", "50", "500"})
+  public int configSize;
+
+  private TopicSpec expected;
+  private TopicSpec equal;
+  private TopicSpec different;
+  private TopicDescription description;
+  private Config config;
+
+  @Setup
+  public void setUp() {
+    expected = BenchmarkData.specs(1, configSize).get(0);
+    equal = BenchmarkData.copy(BenchmarkData.specs(1, configSize)).get(0);
+    different = BenchmarkData.copy(BenchmarkData.specs(1, configSize)).get(0);
+    different.putInConfig("config.key." + (configSize - 1), "other");
+
+    List<TopicPartitionInfo> partitions = new ArrayList<>();
+    for (int i = 0; i < expected.partitions(); i++) {
+      partitions.add(new TopicPartitionInfo(
+          i, BenchmarkData.BROKERS.get(0), BenchmarkData.BROKERS, BenchmarkData.BROKERS));
+    }
+    description = new TopicDescription(expected.name(), false, partitions);
+
+    List<ConfigEntry> entries = new ArrayList<>();
+    for (Map.Entry<String, String> entry : expected.config().entrySet()) {
+      entries.add(new ConfigEntry(entry.getKey(), entry.getValue()));
+    }
+    for (int i = 0; i < BROKER_CONFIG_SIZE; i++) {
+      entries.add(new ConfigEntry("broker.default." + i, "default-" + i));
+    }
+    config = new Config(entries);
+  }
+
+  @Benchmark
+  public boolean equalsEqual() {
+    return expected.equals(equal);
+  }
+
+  @Benchmark
+  public boolean equalsDifferent() {
+    return expected.equals(different);
+  }
+
+  @Benchmark
+  public int hashCodeSpec() {
+    return equal.hashCode();
+  }
+
+  @Benchmark
+  public boolean validate() {
+    return TopicEnsure.actualSpec(expected, description, config).equals(expected);
+  }
+}
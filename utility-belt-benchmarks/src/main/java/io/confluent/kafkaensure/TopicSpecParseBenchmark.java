@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a topic-ensure spec file, either mapped as a whole or streamed one topic at a time with
+ * {@link TopicSpecReader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicSpecParseBenchmark {
+
+  @Param({"100", "10000"})
+  public int topics;
+
+  @Param({"5", "50"})
+  public int configSize;
+
+  private ObjectMapper mapper;
+  private byte[] yaml;
+
+  @Setup
+  public void setUp() throws Exception {
+    mapper = new ObjectMapper(new YAMLFactory());
+    TopicSpec.Topics spec = new TopicSpec.Topics();
+    spec.setTopics(BenchmarkData.specs(topics, configSize));
+    yaml = mapper.writeValueAsBytes(spec);
+  }
+
+  @Benchmark
+  public TopicSpec.Topics parse() throws Exception {
+    return mapper.readValue(yaml, TopicSpec.Topics.class);
+  }
+
+  @Benchmark
+  public void stream(Blackhole blackhole) throws Exception {
+    try (TopicSpecReader reader = new TopicSpecReader(mapper.getFactory().createParser(yaml),
+        mapper)) {
+      reader.forEachRemaining(blackhole::consume);
+    }
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.CreateAclsOptions;
+import org.apache.kafka.clients.admin.CreateAclsResult;
+import org.apache.kafka.clients.admin.DescribeAclsOptions;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.acl.AccessControlEntry;
+import org.apache.kafka.common.acl.AccessControlEntryFilter;
+import org.apache.kafka.common.acl.AclBinding;
+import org.apache.kafka.common.acl.AclBindingFilter;
+import org.apache.kafka.common.acl.AclOperation;
+import org.apache.kafka.common.acl.AclPermissionType;
+import org.apache.kafka.common.resource.PatternType;
+import org.apache.kafka.common.resource.ResourcePattern;
+import org.apache.kafka.common.resource.ResourcePatternFilter;
+import org.apache.kafka.common.resource.ResourceType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import io.confluent.admin.utils.UtilityBeltMetrics;
+
+/**
+ * Ensures that ACL bindings exist, with one request to read the existing bindings and one to
+ * create all missing ones.
+ *
+ * <p>Existing bindings are read with a single describeAcls request whose filter covers all
+ * expected bindings: every field shared by all of them is matched exactly, the others match any
+ * value. Drift is read with a second, concurrent describeAcls request matching every binding of
+ * the spec's principals, on any resource: bindings it returns that belong to a principal of the
+ * spec but are not listed in it are reported as drift. They are never deleted.
+ */
+public class AclEnsure {
+
+  private final Admin adminClient;
+  private final int timeoutMs;
+  private final UtilityBeltMetrics metrics = UtilityBeltMetrics.get();
+
+  /**
+   * @param adminClient client used for all requests; it is not closed by this class.
+   * @param timeoutMs timeout in ms for each admin request.
+   */
+  public AclEnsure(Admin adminClient, int timeoutMs) {
+    this.adminClient = adminClient;
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Outcome of ensuring a set of bindings.
+   */
+  public static class Result {
+    private final List<AclBinding> existing = new ArrayList<>();
+    private final List<AclBinding> created = new ArrayList<>();
+    private final List<AclBinding> missing = new ArrayList<>();
+    private final Map<AclBinding, Throwable> failed = new LinkedHashMap<>();
+    private final List<AclBinding> unexpected = new ArrayList<>();
+
+    /**
+     * @return the expected bindings that already existed.
+     */
+    public List<AclBinding> existing() {
+      return Collections.unmodifiableList(existing);
+    }
+
+    /**
+     * @return the expected bindings that were created.
+     */
+    public List<AclBinding> created() {
+      return Collections.unmodifiableList(created);
+    }
+
+    /**
+     * @return the expected bindings that do not exist, because they were not to be created or
+     *     could not be.
+     */
+    public List<AclBinding> missing() {
+      return Collections.unmodifiableList(missing);
+    }
+
+    /**
+     * @return why each of the missing bindings that was to be created could not be.
+     */
+    public Map<AclBinding, Throwable> failed() {
+      return Collections.unmodifiableMap(failed);
+    }
+
+    /**
+     * @return the existing bindings of the spec's principals that the spec does not list.
+     */
+    public List<AclBinding> unexpected() {
+      return Collections.unmodifiableList(unexpected);
+    }
+
+    /**
+     * @return true if all expected bindings exist.
+     */
+    public boolean success() {
+      return missing.isEmpty();
+    }
+  }
+
+  /**
+   * Reads the existing bindings and, if requested, creates the missing ones in one batch.
+   *
+   * @param expected bindings that should exist.
+   * @param createIfNotExists whether to create the missing bindings.
+   */
+  public Result ensure(Collection<AclBinding> expected, boolean createIfNotExists)
+      throws Exception {
+    if (expected.isEmpty()) {
+      return new Result();
+    }
+    AclBindingFilter filter = filterFor(expected);
+    AclBindingFilter driftFilter = driftFilterFor(expected);
+    KafkaFuture<Collection<AclBinding>> existing = describe(filter);
+    KafkaFuture<Collection<AclBinding>> principalBindings =
+        driftFilter.equals(filter) ? existing : describe(driftFilter);
+    Result result = compare(expected, existing.get(), principalBindings.get());
+    if (!createIfNotExists || result.missing.isEmpty()) {
+      return result;
+    }
+
+    List<AclBinding> toCreate = new ArrayList<>(result.missing);
+    result.missing.clear();
+    CreateAclsResult createResult =
+        adminClient.createAcls(toCreate, new CreateAclsOptions().timeoutMs(timeoutMs));
+    metrics.record(UtilityBeltMetrics.CREATE_ACLS, createResult.all());
+    for (AclBinding binding : toCreate) {
+      try {
+        createResult.values().get(binding).get();
+        result.created.add(binding);
+      } catch (ExecutionException e) {
+        result.missing.add(binding);
+        result.failed.put(binding, e.getCause());
+      }
+    }
+    return result;
+  }
+
+  private KafkaFuture<Collection<AclBinding>> describe(AclBindingFilter filter) {
+    return metrics.record(
+        UtilityBeltMetrics.DESCRIBE_ACLS,
+        adminClient.describeAcls(filter, new DescribeAclsOptions().timeoutMs(timeoutMs)).values()
+    );
+  }
+
+  /**
+   * Splits the expected bindings into existing and missing ones, and finds the bindings of the
+   * expected principals that are not expected.
+   *
+   * @param existing existing bindings matching the expected ones.
+   * @param principalBindings existing bindings of the expected principals, on any resource.
+   */
+  static Result compare(
+      Collection<AclBinding> expected,
+      Collection<AclBinding> existing,
+      Collection<AclBinding> principalBindings
+  ) {
+    Set<AclBinding> existingSet = new HashSet<>(existing);
+    Set<AclBinding> expectedSet = new HashSet<>(expected);
+    Set<String> principals = new HashSet<>();
+    Result result = new Result();
+    for (AclBinding binding : expected) {
+      principals.add(binding.entry().principal());
+      if (existingSet.contains(binding)) {
+        result.existing.add(binding);
+      } else {
+        result.missing.add(binding);
+      }
+    }
+    for (AclBinding binding : principalBindings) {
+      if (!expectedSet.contains(binding) && principals.contains(binding.entry().principal())) {
+        result.unexpected.add(binding);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a filter matching all given bindings, exact in every attribute they have in common
+   *     and matching any value in the others.
+   */
+  static AclBindingFilter filterFor(Collection<AclBinding> bindings) {
+    AclBinding first = bindings.iterator().next();
+    ResourceType resourceType = first.pattern().resourceType();
+    String resourceName = first.pattern().name();
+    PatternType patternType = first.pattern().patternType();
+    String principal = first.entry().principal();
+    String host = first.entry().host();
+    AclOperation operation = first.entry().operation();
+    AclPermissionType permission = first.entry().permissionType();
+    for (AclBinding binding : bindings) {
+      ResourcePattern pattern = binding.pattern();
+      AccessControlEntry entry = binding.entry();
+      resourceType = pattern.resourceType() == resourceType ? resourceType : ResourceType.ANY;
+      resourceName = Objects.equals(pattern.name(), resourceName) ? resourceName : null;
+      patternType = pattern.patternType() == patternType ? patternType : PatternType.ANY;
+      principal = Objects.equals(entry.principal(), principal) ? principal : null;
+      host = Objects.equals(entry.host(), host) ? host : null;
+      operation = entry.operation() == operation ? operation : AclOperation.ANY;
+      permission = entry.permissionType() == permission ? permission : AclPermissionType.ANY;
+    }
+    return new AclBindingFilter(
+        new ResourcePatternFilter(resourceType, resourceName, patternType),
+        new AccessControlEntryFilter(principal, host, operation, permission)
+    );
+  }
+
+  /**
+   * @return a filter matching all bindings of the principal shared by the given bindings, or all
+   *     bindings if they belong to several principals; callers narrow those to the principals
+   *     they are interested in.
+   */
+  static AclBindingFilter driftFilterFor(Collection<AclBinding> bindings) {
+    String principal = bindings.iterator().next().entry().principal();
+    for (AclBinding binding : bindings) {
+      principal = Objects.equals(binding.entry().principal(), principal) ? principal : null;
+    }
+    return new AclBindingFilter(
+        ResourcePatternFilter.ANY,
+        new AccessControlEntryFilter(principal, null, AclOperation.ANY, AclPermissionType.ANY)
+    );
+  }
+}
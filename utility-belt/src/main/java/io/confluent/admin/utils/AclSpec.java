@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import org.apache.kafka.common.acl.AccessControlEntry;
+import org.apache.kafka.common.acl.AclBinding;
+import org.apache.kafka.common.acl.AclOperation;
+import org.apache.kafka.common.acl.AclPermissionType;
+import org.apache.kafka.common.resource.PatternType;
+import org.apache.kafka.common.resource.ResourcePattern;
+import org.apache.kafka.common.resource.ResourceType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Expected ACLs of a principal on a resource. A spec with several operations stands for one
+ * binding per operation. Enum values are case insensitive; the host defaults to any host, the
+ * permission to ALLOW and the pattern type to LITERAL:
+ *
+ * <pre>
+ * acls:
+ *   - principal: User:orders
+ *     resourceType: topic
+ *     resourceName: orders-
+ *     patternType: prefixed
+ *     operations: [read, describe]
+ * </pre>
+ */
+public class AclSpec {
+  public String principal;
+  public String host = "*";
+  public String permission = "ALLOW";
+  public String resourceType;
+  public String resourceName;
+  public String patternType = "LITERAL";
+  public List<String> operations;
+
+  public AclSpec() {
+  }
+
+  public AclSpec(
+      String principal,
+      String resourceType,
+      String resourceName,
+      List<String> operations
+  ) {
+    this.principal = principal;
+    this.resourceType = resourceType;
+    this.resourceName = resourceName;
+    this.operations = operations;
+  }
+
+  /**
+   * Reads all ACL specs of a YAML file, in the format of {@link Acls}.
+   */
+  public static List<AclSpec> read(File file) throws IOException {
+    ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+    try (JsonParser parser = mapper.getFactory().createParser(file)) {
+      // An empty file has no content to map.
+      if (parser.nextToken() == null) {
+        return Collections.emptyList();
+      }
+      Acls acls = mapper.readValue(parser, Acls.class);
+      return acls == null || acls.acls == null ? Collections.emptyList() : acls.acls;
+    }
+  }
+
+  /**
+   * @return the bindings of all given specs, without duplicates, in the order of the specs.
+   * @throws IllegalArgumentException if a spec is incomplete or has an unknown enum value.
+   */
+  public static List<AclBinding> bindings(Collection<AclSpec> specs) {
+    Set<AclBinding> bindings = new LinkedHashSet<>();
+    for (AclSpec spec : specs) {
+      bindings.addAll(spec.bindings());
+    }
+    return new ArrayList<>(bindings);
+  }
+
+  /**
+   * @return one binding per operation.
+   * @throws IllegalArgumentException if the spec is incomplete or has an unknown enum value.
+   */
+  public List<AclBinding> bindings() {
+    if (principal == null || host == null || resourceName == null) {
+      throw new IllegalArgumentException(
+          "ACL spec needs a principal, host and resourceName: " + this);
+    }
+    if (operations == null || operations.isEmpty()) {
+      throw new IllegalArgumentException("ACL spec needs at least one operation: " + this);
+    }
+    ResourcePattern pattern = new ResourcePattern(
+        parse("resourceType", resourceType, ResourceType::fromString,
+            ResourceType.UNKNOWN, ResourceType.ANY),
+        resourceName,
+        parse("patternType", patternType, PatternType::fromString,
+            PatternType.UNKNOWN, PatternType.ANY, PatternType.MATCH)
+    );
+    AclPermissionType permissionType = parse("permission", permission,
+        AclPermissionType::fromString, AclPermissionType.UNKNOWN, AclPermissionType.ANY);
+    List<AclBinding> bindings = new ArrayList<>(operations.size());
+    for (String operation : operations) {
+      AclOperation aclOperation = parse("operation", operation, AclOperation::fromString,
+          AclOperation.UNKNOWN, AclOperation.ANY);
+      bindings.add(new AclBinding(
+          pattern, new AccessControlEntry(principal, host, aclOperation, permissionType)));
+    }
+    return bindings;
+  }
+
+  /**
+   * @param invalid values that only make sense in filters, or stand for unknown input.
+   */
+  @SafeVarargs
+  private static <T extends Enum<T>> T parse(
+      String field,
+      String input,
+      Function<String, T> fromString,
+      T... invalid
+  ) {
+    T value = input == null ? null : fromString.apply(input.toUpperCase(Locale.ROOT));
+    for (T rejected : invalid) {
+      if (value == null || value == rejected) {
+        throw new IllegalArgumentException(
+            "Invalid " + field + " [ " + input + " ] in ACL spec");
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return "AclSpec={"
+        + "principal='" + principal + '\''
+        + ", host='" + host + '\''
+        + ", permission=" + permission
+        + ", resourceType=" + resourceType
+        + ", resourceName='" + resourceName + '\''
+        + ", patternType=" + patternType
+        + ", operations=" + operations
+        + '}';
+  }
+
+  public static class Acls {
+    public List<AclSpec> acls;
+
+    public Acls() {
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+import org.apache.kafka.common.utils.Utils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks which bootstrap servers accept TCP connections, so that clients are only created once a
+ * cluster can be reached at all.
+ *
+ * <p>An admin client created while no bootstrap server resolves or listens spends each attempt
+ * waiting for its request timeout. A probe instead resolves all endpoints concurrently, then
+ * opens a non-blocking connection to each one on a single selector and closes it as soon as it
+ * is established, reporting for every endpoint whether it answered and how long connecting took.
+ * Only TCP is probed; TLS and SASL are left to the client, which has their full configuration.
+ */
+public class BootstrapProbe {
+
+  private final List<String> endpoints;
+
+  /**
+   * Result of probing a single endpoint.
+   */
+  public static class Endpoint {
+    private final String address;
+    private final long connectMs;
+    private final String error;
+
+    Endpoint(String address, long connectMs, String error) {
+      this.address = address;
+      this.connectMs = connectMs;
+      this.error = error;
+    }
+
+    public String address() {
+      return address;
+    }
+
+    public boolean reachable() {
+      return error == null;
+    }
+
+    /**
+     * @return time in ms opening the connection took, or -1 if the endpoint is unreachable.
+     */
+    public long connectMs() {
+      return connectMs;
+    }
+
+    /**
+     * @return why the endpoint is unreachable, or null.
+     */
+    public String error() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      return "Endpoint [ " + address + " ] "
+          + (reachable() ? "reachable in " + connectMs + " ms" : "unreachable: " + error);
+    }
+  }
+
+  /**
+   * @param bootstrapServers comma separated bootstrap servers, as in bootstrap.servers.
+   * @throws IllegalArgumentException if no bootstrap server is given.
+   */
+  public BootstrapProbe(String bootstrapServers) {
+    List<String> endpoints = new ArrayList<>();
+    if (bootstrapServers != null) {
+      for (String endpoint : bootstrapServers.split(",")) {
+        if (!endpoint.trim().isEmpty()) {
+          endpoints.add(endpoint.trim());
+        }
+      }
+    }
+    if (endpoints.isEmpty()) {
+      throw new IllegalArgumentException(
+          "Bootstrap servers should list at least one host:port but were [ " + bootstrapServers
+              + " ]");
+    }
+    this.endpoints = Collections.unmodifiableList(endpoints);
+  }
+
+  /**
+   * @return whether any of the results is reachable.
+   */
+  public static boolean anyReachable(List<Endpoint> results) {
+    for (Endpoint result : results) {
+      if (result.reachable()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Probes all endpoints once. Blocks for at most the timeout.
+   *
+   * @param timeoutMs time in ms resolving and connecting may take.
+   * @return the result of every endpoint, in the order of the bootstrap servers.
+   */
+  public List<Endpoint> probe(int timeoutMs) throws IOException, InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+
+    // Resolving blocks, so it is done on the common pool for all endpoints at once.
+    List<CompletableFuture<InetSocketAddress>> resolutions = new ArrayList<>();
+    for (String endpoint : endpoints) {
+      resolutions.add(CompletableFuture.supplyAsync(() -> resolve(endpoint)));
+    }
+
+    Endpoint[] results = new Endpoint[endpoints.size()];
+    int pending = 0;
+    try (Selector selector = Selector.open()) {
+      try {
+        for (int i = 0; i < endpoints.size(); i++) {
+          InetSocketAddress address;
+          try {
+            address = resolutions.get(i).get(
+                Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+          } catch (ExecutionException e) {
+            results[i] = new Endpoint(endpoints.get(i), -1, e.getCause().getMessage());
+            continue;
+          } catch (TimeoutException e) {
+            results[i] = new Endpoint(endpoints.get(i), -1, "could not resolve in time");
+            continue;
+          }
+          SocketChannel channel = SocketChannel.open();
+          try {
+            channel.configureBlocking(false);
+            long begin = System.currentTimeMillis();
+            if (channel.connect(address)) {
+              results[i] = new Endpoint(endpoints.get(i), 0, null);
+              channel.close();
+            } else {
+              channel.register(selector, SelectionKey.OP_CONNECT, new long[] {i, begin});
+              pending++;
+            }
+          } catch (IOException e) {
+            results[i] = new Endpoint(endpoints.get(i), -1, message(e));
+            channel.close();
+          }
+        }
+
+        while (pending > 0) {
+          long remainingMs = deadline - System.currentTimeMillis();
+          if (remainingMs <= 0) {
+            break;
+          }
+          selector.select(remainingMs);
+          for (SelectionKey key : selector.selectedKeys()) {
+            long[] attachment = (long[]) key.attachment();
+            int index = (int) attachment[0];
+            SocketChannel channel = (SocketChannel) key.channel();
+            try {
+              channel.finishConnect();
+              results[index] = new Endpoint(
+                  endpoints.get(index), System.currentTimeMillis() - attachment[1], null);
+            } catch (IOException e) {
+              results[index] = new Endpoint(endpoints.get(index), -1, message(e));
+            }
+            key.cancel();
+            channel.close();
+            pending--;
+          }
+          selector.selectedKeys().clear();
+          if (Thread.interrupted()) {
+            throw new InterruptedException();
+          }
+        }
+
+        for (SelectionKey key : selector.keys()) {
+          if (!key.isValid()) {
+            continue;
+          }
+          int index = (int) ((long[]) key.attachment())[0];
+          results[index] = new Endpoint(endpoints.get(index), -1, "connection timed out");
+        }
+      } finally {
+        // Closing the selector only deregisters the channels, so the ones still connecting
+        // when waiting ends, timed out or interrupted, are closed here.
+        for (SelectionKey key : selector.keys()) {
+          Utils.closeQuietly(key.channel(), "bootstrap probe channel");
+        }
+      }
+    }
+    List<Endpoint> list = new ArrayList<>(results.length);
+    Collections.addAll(list, results);
+    return list;
+  }
+
+  private static InetSocketAddress resolve(String endpoint) {
+    String host = Utils.getHost(endpoint);
+    Integer port = Utils.getPort(endpoint);
+    if (host == null || port == null) {
+      throw new IllegalArgumentException("invalid address " + endpoint);
+    }
+    InetSocketAddress address = new InetSocketAddress(host, port);
+    if (address.isUnresolved()) {
+      throw new IllegalArgumentException("could not resolve " + host);
+    }
+    return address;
+  }
+
+  private static String message(IOException e) {
+    return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+  }
+}
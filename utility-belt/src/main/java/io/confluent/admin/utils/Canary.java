@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.utils.Time;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Produces records to a partition and consumes them back, to check that clients can actually
+ * write to and read from the cluster with an acceptable latency.
+ *
+ * <p>Each round trip sends a small batch of records to the first partition of the canary topic
+ * with an idempotent producer and waits until a consumer assigned to that partition has read all
+ * of them. Records are keyed with an id unique to this canary, so several canaries can share a
+ * topic. The topic must exist; it is never created. The records of a round trip are sent
+ * together, so the canary adds one produce request per round trip.
+ *
+ * <p>This class is not thread safe; all calls must come from the same thread at a time.
+ */
+public class Canary implements Closeable {
+
+  private static final Logger log = LogManager.getLogger(Canary.class);
+
+  public static final int DEFAULT_ROUND_TRIPS = 3;
+  public static final int DEFAULT_RECORDS = 10;
+  public static final long DEFAULT_MAX_LATENCY_MS = 1000;
+
+  private static final long MAX_POLL_MS = 100;
+
+  private final Producer<byte[], byte[]> producer;
+  private final Consumer<byte[], byte[]> consumer;
+  private final TopicPartition partition;
+  private final int records;
+  private final long maxLatencyMs;
+  private final Time time;
+  private final byte[] id = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+  private long round = 0;
+  private int consecutive = 0;
+
+  /**
+   * @param clientConfig client config of the cluster, used by both the producer and the
+   *     consumer.
+   * @param topic existing topic to produce to and consume from.
+   * @param records number of records sent per round trip.
+   * @param maxLatencyMs maximum time in ms a round trip may take to count as healthy.
+   * @param maxBlockMs maximum time in ms a send may block waiting for metadata or buffer space,
+   *     at most the time the whole check may take.
+   */
+  public Canary(
+      Map<String, Object> clientConfig,
+      String topic,
+      int records,
+      long maxLatencyMs,
+      long maxBlockMs
+  ) {
+    this(
+        new KafkaProducer<>(producerConfig(clientConfig, maxBlockMs)),
+        new KafkaConsumer<>(consumerConfig(clientConfig)),
+        topic,
+        records,
+        maxLatencyMs,
+        Time.SYSTEM
+    );
+  }
+
+  Canary(
+      Producer<byte[], byte[]> producer,
+      Consumer<byte[], byte[]> consumer,
+      String topic,
+      int records,
+      long maxLatencyMs,
+      Time time
+  ) {
+    if (records < 1) {
+      throw new IllegalArgumentException("records must be at least 1 but was " + records);
+    }
+    this.producer = producer;
+    this.consumer = consumer;
+    this.partition = new TopicPartition(topic, 0);
+    this.records = records;
+    this.maxLatencyMs = maxLatencyMs;
+    this.time = time;
+    consumer.assign(Collections.singletonList(partition));
+  }
+
+  /**
+   * @param maxBlockMs upper bound of max.block.ms; a lower value of the client config is kept.
+   */
+  static Map<String, Object> producerConfig(Map<String, Object> clientConfig, long maxBlockMs) {
+    Map<String, Object> config = new HashMap<>(clientConfig);
+    Object configured = config.get(ProducerConfig.MAX_BLOCK_MS_CONFIG);
+    config.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, configured == null
+        ? maxBlockMs
+        : Math.min(maxBlockMs, Long.parseLong(configured.toString().trim())));
+    config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+    config.put(ProducerConfig.ACKS_CONFIG, "all");
+    config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+    config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+    config.putIfAbsent(ProducerConfig.CLIENT_ID_CONFIG, "kafka-ready-canary");
+    return config;
+  }
+
+  static Map<String, Object> consumerConfig(Map<String, Object> clientConfig) {
+    Map<String, Object> config = new HashMap<>(clientConfig);
+    config.remove(ConsumerConfig.GROUP_ID_CONFIG);
+    config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+    config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+    config.putIfAbsent(ConsumerConfig.CLIENT_ID_CONFIG, "kafka-ready-canary");
+    return config;
+  }
+
+  /**
+   * Runs round trips until the given number of consecutive ones finished within the latency
+   * threshold, counting those of previous calls, or until one is too slow.
+   *
+   * @param roundTrips number of consecutive healthy round trips required.
+   * @param timeoutMs time in ms this call may take.
+   * @return true once enough consecutive round trips were healthy, false if one was too slow or
+   *     the time ran out.
+   * @throws Exception if a round trip failed, which also resets the consecutive count.
+   */
+  public boolean check(int roundTrips, int timeoutMs) throws Exception {
+    long deadline = time.milliseconds() + timeoutMs;
+    while (consecutive < roundTrips) {
+      long remainingMs = deadline - time.milliseconds();
+      if (remainingMs <= 0) {
+        return false;
+      }
+      long latencyMs;
+      try {
+        latencyMs = roundTrip(remainingMs);
+      } catch (Exception e) {
+        consecutive = 0;
+        throw e;
+      }
+      boolean healthy = latencyMs <= maxLatencyMs;
+      UtilityBeltMetrics.get().record(UtilityBeltMetrics.CANARY_ROUND_TRIP, latencyMs, !healthy);
+      if (!healthy) {
+        log.info("Canary round trip took {} ms, more than {} ms.", latencyMs, maxLatencyMs);
+        consecutive = 0;
+        return false;
+      }
+      consecutive++;
+      log.debug("Canary round trip {} of {} took {} ms.", consecutive, roundTrips, latencyMs);
+    }
+    return true;
+  }
+
+  /**
+   * Produces one batch of records and consumes it back.
+   *
+   * @return the time in ms from sending the first record to reading the last one.
+   * @throws TimeoutException if the records were not read back in time.
+   */
+  long roundTrip(long timeoutMs) throws Exception {
+    long begin = time.milliseconds();
+    long deadline = begin + timeoutMs;
+    consumer.seekToEnd(Collections.singletonList(partition));
+    consumer.position(partition, Duration.ofMillis(timeoutMs));
+
+    long currentRound = round++;
+    List<Future<RecordMetadata>> sends = new ArrayList<>(records);
+    for (int i = 0; i < records; i++) {
+      byte[] value = ByteBuffer.allocate(12).putLong(currentRound).putInt(i).array();
+      sends.add(producer.send(
+          new ProducerRecord<>(partition.topic(), partition.partition(), id, value)
+      ));
+    }
+    for (Future<RecordMetadata> send : sends) {
+      send.get(Math.max(0, deadline - time.milliseconds()), TimeUnit.MILLISECONDS);
+    }
+
+    int received = 0;
+    while (received < records) {
+      long remainingMs = deadline - time.milliseconds();
+      if (remainingMs <= 0) {
+        throw new TimeoutException(String.format(
+            "Read back only %d of %d canary records within %d ms", received, records, timeoutMs
+        ));
+      }
+      for (ConsumerRecord<byte[], byte[]> record
+          : consumer.poll(Duration.ofMillis(Math.min(MAX_POLL_MS, remainingMs)))) {
+        if (Arrays.equals(id, record.key()) && record.value() != null
+            && record.value().length == 12
+            && ByteBuffer.wrap(record.value()).getLong() == currentRound) {
+          received++;
+        }
+      }
+    }
+    return time.milliseconds() - begin;
+  }
+
+  @Override
+  public void close() {
+    producer.close(Duration.ZERO);
+    consumer.close();
+  }
+}
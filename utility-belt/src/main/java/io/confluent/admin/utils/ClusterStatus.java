@@ -16,16 +16,34 @@
 
 package io.confluent.admin.utils;
 
+import org.apache.kafka.clients.CommonClientConfigs;
 import org.apache.kafka.common.Node;
+import org.apache.kafka.clients.admin.Admin;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.DescribeClusterOptions;
+import org.apache.kafka.clients.admin.DescribeConsumerGroupsOptions;
+import org.apache.kafka.clients.admin.DescribeMetadataQuorumOptions;
+import org.apache.kafka.clients.admin.DescribeTransactionsOptions;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.QuorumInfo;
+import org.apache.kafka.common.internals.Topic;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Checks status of Kafka cluster.
@@ -37,6 +55,9 @@ public class ClusterStatus {
   public static final String BROKERS_IDS_PATH = "/brokers/ids";
   public static final int BROKER_METADATA_REQUEST_BACKOFF_MS = 1000;
 
+  // Group and transactional id whose coordinator is looked up to create internal topics.
+  private static final String COORDINATOR_LOOKUP_ID = "kafka-ready";
+
   /**
    * Checks if the kafka cluster is accepting client requests and
    * has at least minBrokerCount brokers.
@@ -50,56 +71,645 @@ public class ClusterStatus {
       int minBrokerCount,
       int timeoutMs
   ) {
+    return isKafkaReady(config, minBrokerCount, timeoutMs, ExponentialRetryPolicy.defaultPolicy());
+  }
 
-    // Need to copy because `config` is Map<String, String> and `create` expects Map<String, Object>
-    AdminClient adminClient = AdminClient.create(new HashMap<String, Object>(config));
+  /**
+   * Checks if the kafka cluster is accepting client requests and
+   * has at least minBrokerCount brokers.
+   *
+   * @param minBrokerCount Expected no of brokers
+   * @param timeoutMs timeoutMs in milliseconds
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @return true is the cluster is ready, false otherwise.
+   */
+  public static boolean isKafkaReady(
+      Map<String, String> config,
+      int minBrokerCount,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
 
+    // Only create a client once a bootstrap server answers, so that attempts do not wait for
+    // request timeouts while the cluster is starting.
     long begin = System.currentTimeMillis();
-    long remainingWaitMs = timeoutMs;
-    Collection<Node> brokers = new ArrayList<>();
-    while (remainingWaitMs > 0) {
-
-      // describeCluster does not wait for all brokers to be ready before returning the brokers.
-      // So, wait until expected brokers are present or the time out expires.
-      try {
-        brokers = adminClient.describeCluster(new DescribeClusterOptions().timeoutMs(
-                (int) Math.min(Integer.MAX_VALUE, remainingWaitMs))).nodes().get();
-        log.debug("Broker list: {}", (brokers != null ? brokers : "[]"));
-        if ((brokers != null) && (brokers.size() >= minBrokerCount)) {
+    String bootstrapServers = config.get(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG);
+    if (bootstrapServers != null
+        && !isBootstrapReachable(bootstrapServers, timeoutMs, retryPolicy)) {
+      return false;
+    }
+    int remainingMs = (int) Math.max(0, timeoutMs - (System.currentTimeMillis() - begin));
+
+    // Need to copy because `config` is Map<String, String> and `create` expects Map<String, Object>
+    try (AdminClient adminClient = AdminClient.create(new HashMap<String, Object>(config))) {
+      return isKafkaReady(adminClient, minBrokerCount, remainingMs, retryPolicy);
+    }
+  }
+
+  /**
+   * Checks if at least one of the bootstrap servers accepts TCP connections, probing all of them
+   * concurrently with a {@link BootstrapProbe}.
+   *
+   * @param bootstrapServers comma separated bootstrap servers.
+   * @param timeoutMs timeoutMs in milliseconds
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @return true if a bootstrap server is reachable, false otherwise.
+   * @throws IllegalArgumentException if no bootstrap server is given.
+   */
+  public static boolean isBootstrapReachable(
+      String bootstrapServers,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    try {
+      return isBootstrapReachableAsync(bootstrapServers, timeoutMs, retryPolicy)
+          .toCompletableFuture().get();
+    } catch (InterruptedException e) {
+      // this is okay, we just give up early
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      log.error("Error while probing the bootstrap servers.", e);
+      return false;
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #isBootstrapReachable(String, int, RetryPolicy)}. Probes
+   * block on their selector, so the attempts run one after the other on a thread of their own.
+   * The result of every endpoint is logged once one is reachable or the check gives up.
+   *
+   * @throws IllegalArgumentException if no bootstrap server is given.
+   */
+  public static CompletionStage<Boolean> isBootstrapReachableAsync(
+      String bootstrapServers,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    BootstrapProbe probe = new BootstrapProbe(bootstrapServers);
+    AtomicReference<List<BootstrapProbe.Endpoint>> lastResults = new AtomicReference<>();
+    ExecutorService executor = blockingExecutor("kafka-ready-bootstrap-probe");
+    return RetryingCheck.run(
+        "bootstrap servers",
+        timeoutMs,
+        retryPolicy,
+        attemptTimeoutMs -> CompletableFuture.supplyAsync(() -> {
+          List<BootstrapProbe.Endpoint> results;
+          try {
+            results = probe.probe(attemptTimeoutMs);
+          } catch (IOException | InterruptedException e) {
+            throw new CompletionException(e);
+          }
+          lastResults.set(results);
+          if (!BootstrapProbe.anyReachable(results)) {
+            log.debug("No bootstrap server is reachable: {}", results);
+            return false;
+          }
+          for (BootstrapProbe.Endpoint result : results) {
+            log.info("{}.", result);
+          }
           return true;
-        }
-      } catch (Exception e) {
-        log.error("Error while getting broker list.", e);
-        // Swallow exceptions because we want to retry until timeoutMs expires.
-      }
+        }, executor),
+        () -> log.error("No bootstrap server is reachable. Last probe {}.",
+            lastResults.get() != null ? lastResults.get() : "did not complete")
+    ).whenComplete((reachable, error) -> executor.shutdown());
+  }
 
-      sleep(Math.min(BROKER_METADATA_REQUEST_BACKOFF_MS, remainingWaitMs));
+  /**
+   * Checks if the kafka cluster is accepting client requests and
+   * has at least minBrokerCount brokers, using an already created client.
+   *
+   * @param adminClient client connected to the cluster to check; it is not closed.
+   * @param minBrokerCount Expected no of brokers
+   * @param timeoutMs timeoutMs in milliseconds
+   * @return true is the cluster is ready, false otherwise.
+   */
+  public static boolean isKafkaReady(
+      Admin adminClient,
+      int minBrokerCount,
+      int timeoutMs
+  ) {
+    return isKafkaReady(
+        adminClient, minBrokerCount, timeoutMs, ExponentialRetryPolicy.defaultPolicy()
+    );
+  }
 
-      log.info(
-          "Expected {} brokers but found only {}. Trying to query Kafka for metadata again ...",
-          minBrokerCount,
-          brokers == null ? 0 : brokers.size()
-      );
-      long elapsed = System.currentTimeMillis() - begin;
-      remainingWaitMs = timeoutMs - elapsed;
+  /**
+   * Checks if the kafka cluster is accepting client requests and
+   * has at least minBrokerCount brokers, using an already created client.
+   *
+   * @param adminClient client connected to the cluster to check; it is not closed.
+   * @param minBrokerCount Expected no of brokers
+   * @param timeoutMs timeoutMs in milliseconds
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @return true is the cluster is ready, false otherwise.
+   */
+  public static boolean isKafkaReady(
+      Admin adminClient,
+      int minBrokerCount,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    try {
+      return isKafkaReadyAsync(adminClient, minBrokerCount, timeoutMs, retryPolicy)
+          .toCompletableFuture().get();
+    } catch (InterruptedException e) {
+      // this is okay, we just give up early
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      log.error("Error while waiting for brokers.", e);
+      return false;
     }
+  }
 
-    log.error(
-        "Expected {} brokers but found only {}. Brokers found {}.",
-        minBrokerCount,
-        brokers == null ? 0 : brokers.size(),
-        brokers != null ? brokers : "[]"
+  /**
+   * Asynchronous variant of {@link #isKafkaReady(Map, int, int)} that does not block the calling
+   * thread. Retries are scheduled after a backoff instead of sleeping, so many clusters can be
+   * checked concurrently from a handful of threads.
+   *
+   * @param adminClient client connected to the cluster to check; it is not closed.
+   * @param minBrokerCount Expected no of brokers
+   * @param timeoutMs timeoutMs in milliseconds
+   * @return a stage completed with true if the cluster is ready, false otherwise.
+   */
+  public static CompletionStage<Boolean> isKafkaReadyAsync(
+      Admin adminClient,
+      int minBrokerCount,
+      int timeoutMs
+  ) {
+    return isKafkaReadyAsync(
+        adminClient, minBrokerCount, timeoutMs, ExponentialRetryPolicy.defaultPolicy()
     );
+  }
 
-    return false;
+  /**
+   * Asynchronous variant of {@link #isKafkaReady(Admin, int, int, RetryPolicy)}.
+   *
+   * @param adminClient client connected to the cluster to check; it is not closed.
+   * @param minBrokerCount Expected no of brokers
+   * @param timeoutMs timeoutMs in milliseconds
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @return a stage completed with true if the cluster is ready, false otherwise.
+   */
+  public static CompletionStage<Boolean> isKafkaReadyAsync(
+      Admin adminClient,
+      int minBrokerCount,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    AtomicReference<Collection<Node>> lastBrokers = new AtomicReference<>();
+    return RetryingCheck.run(
+        "brokers",
+        timeoutMs,
+        retryPolicy,
+        // describeCluster does not wait for all brokers to be ready before returning the brokers.
+        // So, wait until expected brokers are present or the time out expires.
+        attemptTimeoutMs -> UtilityBeltMetrics.get().record(
+            UtilityBeltMetrics.DESCRIBE_CLUSTER,
+            adminClient.describeCluster(
+                new DescribeClusterOptions().timeoutMs(attemptTimeoutMs)
+            ).nodes()
+        ).toCompletionStage().thenApply(brokers -> {
+          log.debug("Broker list: {}", (brokers != null ? brokers : "[]"));
+          lastBrokers.set(brokers);
+          if ((brokers != null) && (brokers.size() >= minBrokerCount)) {
+            return true;
+          }
+          log.info(
+              "Expected {} brokers but found only {}.",
+              minBrokerCount,
+              brokers == null ? 0 : brokers.size()
+          );
+          return false;
+        }),
+        () -> log.error(
+            "Expected {} brokers but found only {}. Brokers found {}.",
+            minBrokerCount,
+            lastBrokers.get() == null ? 0 : lastBrokers.get().size(),
+            lastBrokers.get() != null ? lastBrokers.get() : "[]"
+        )
+    );
   }
 
-  private static void sleep(long ms) {
+  /**
+   * Checks if the KRaft metadata quorum has an elected leader, at least minVoters voters, and all
+   * voters and observers within maxLag records of the leader's log end offset. Brokers can be
+   * listed by describeCluster before the quorum has caught up, in which case client requests are
+   * slow and retried.
+   *
+   * @param adminClient client connected to the cluster to check; it is not closed.
+   * @param minVoters minimum number of voters.
+   * @param maxLag maximum lag in records of any voter or observer.
+   * @param timeoutMs timeoutMs in milliseconds
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @return true if the quorum is ready, false otherwise.
+   */
+  public static boolean isMetadataQuorumReady(
+      Admin adminClient,
+      int minVoters,
+      long maxLag,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
     try {
-      Thread.sleep(ms);
+      return isMetadataQuorumReadyAsync(adminClient, minVoters, maxLag, timeoutMs, retryPolicy)
+          .toCompletableFuture().get();
     } catch (InterruptedException e) {
-      // this is okay, we just wake up early
+      // this is okay, we just give up early
       Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      log.error("Error while waiting for the metadata quorum.", e);
+      return false;
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #isMetadataQuorumReady(Admin, int, long, int, RetryPolicy)}.
+   */
+  public static CompletionStage<Boolean> isMetadataQuorumReadyAsync(
+      Admin adminClient,
+      int minVoters,
+      long maxLag,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    AtomicReference<String> lastProblem = new AtomicReference<>("no response");
+    return RetryingCheck.run(
+        "metadata quorum",
+        timeoutMs,
+        retryPolicy,
+        attemptTimeoutMs -> UtilityBeltMetrics.get().record(
+            UtilityBeltMetrics.DESCRIBE_METADATA_QUORUM,
+            adminClient.describeMetadataQuorum(
+                new DescribeMetadataQuorumOptions().timeoutMs(attemptTimeoutMs)
+            ).quorumInfo()
+        ).toCompletionStage().thenApply(quorum -> {
+          log.debug("Metadata quorum: {}", quorum);
+          String problem = quorumProblem(quorum, minVoters, maxLag);
+          if (problem == null) {
+            return true;
+          }
+          lastProblem.set(problem);
+          log.info("Metadata quorum is not ready: {}.", problem);
+          return false;
+        }),
+        () -> log.error("Metadata quorum is not ready: {}.", lastProblem.get())
+    );
+  }
+
+  /**
+   * Checks if no partition of the given topics is under-replicated, under min ISR or offline,
+   * for example to hold the next broker restart of a rolling upgrade until the cluster is fully
+   * replicated again.
+   *
+   * @param adminClient client connected to the cluster to check; it is not closed.
+   * @param topics topics to check, or null to check all topics.
+   * @param batchSize number of topics described per request.
+   * @param timeoutMs timeoutMs in milliseconds
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @return true if all partitions are fully replicated, false otherwise.
+   */
+  public static boolean isReplicationHealthy(
+      Admin adminClient,
+      Collection<String> topics,
+      int batchSize,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    try {
+      return isReplicationHealthyAsync(adminClient, topics, batchSize, timeoutMs, retryPolicy)
+          .toCompletableFuture().get();
+    } catch (InterruptedException e) {
+      // this is okay, we just give up early
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      log.error("Error while waiting for partitions to be fully replicated.", e);
+      return false;
+    }
+  }
+
+  /**
+   * Asynchronous variant of
+   * {@link #isReplicationHealthy(Admin, Collection, int, int, RetryPolicy)}.
+   */
+  public static CompletionStage<Boolean> isReplicationHealthyAsync(
+      Admin adminClient,
+      Collection<String> topics,
+      int batchSize,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    PartitionHealth partitionHealth = new PartitionHealth(adminClient, topics, batchSize);
+    AtomicReference<PartitionHealth.Report> lastReport = new AtomicReference<>();
+    return RetryingCheck.run(
+        "partition replication",
+        timeoutMs,
+        retryPolicy,
+        attemptTimeoutMs -> partitionHealth.scan(attemptTimeoutMs).thenApply(report -> {
+          log.debug("Partition health: {}", report);
+          lastReport.set(report);
+          if (report.isHealthy()) {
+            return true;
+          }
+          log.info(
+              "Found {} under-replicated, {} under min ISR and {} offline partitions.",
+              report.underReplicated(),
+              report.underMinIsr(),
+              report.offline()
+          );
+          return false;
+        }),
+        () -> log.error(
+            "Partitions are not fully replicated. Last scan {}.",
+            lastReport.get() != null ? lastReport.get() : "did not complete"
+        )
+    );
+  }
+
+  /**
+   * Checks if the given internal topics, e.g. {@code __consumer_offsets} and
+   * {@code __transaction_state}, exist and every one of their partitions has a leader and at
+   * least min.insync.replicas in sync replicas. Until then, group and transaction coordinators
+   * answer with COORDINATOR_NOT_AVAILABLE and clients retry. Brokers create these two topics on
+   * the first lookup of a coordinator they host, so while one is missing each attempt also looks
+   * up a coordinator of its kind.
+   *
+   * @param adminClient client connected to the cluster to check; it is not closed.
+   * @param topics names of the internal topics.
+   * @param timeoutMs timeoutMs in milliseconds
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @return true if all topics are available, false otherwise.
+   */
+  public static boolean areInternalTopicsReady(
+      Admin adminClient,
+      Collection<String> topics,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    try {
+      return areInternalTopicsReadyAsync(adminClient, topics, timeoutMs, retryPolicy)
+          .toCompletableFuture().get();
+    } catch (InterruptedException e) {
+      // this is okay, we just give up early
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      log.error("Error while waiting for internal topics.", e);
+      return false;
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #areInternalTopicsReady(Admin, Collection, int, RetryPolicy)}.
+   */
+  public static CompletionStage<Boolean> areInternalTopicsReadyAsync(
+      Admin adminClient,
+      Collection<String> topics,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    PartitionHealth partitionHealth =
+        new PartitionHealth(adminClient, topics, PartitionHealth.DEFAULT_BATCH_SIZE);
+    AtomicReference<String> lastProblem = new AtomicReference<>("no response");
+    return RetryingCheck.run(
+        "internal topics",
+        timeoutMs,
+        retryPolicy,
+        attemptTimeoutMs -> UtilityBeltMetrics.get().record(
+            UtilityBeltMetrics.LIST_TOPICS,
+            adminClient.listTopics(
+                new ListTopicsOptions().listInternal(true).timeoutMs(attemptTimeoutMs)
+            ).names()
+        ).toCompletionStage().thenCompose(names -> {
+          List<String> missing = new ArrayList<>(topics);
+          missing.removeAll(names);
+          if (!missing.isEmpty()) {
+            lookUpCoordinators(adminClient, missing, attemptTimeoutMs);
+            return CompletableFuture.completedFuture("missing topics " + missing);
+          }
+          return partitionHealth.scan(attemptTimeoutMs).thenApply(report -> {
+            log.debug("Internal topic health: {}", report);
+            if (report.offline() == 0 && report.underMinIsr() == 0) {
+              return null;
+            }
+            return String.format("%d offline and %d under min ISR partitions, e.g. %s",
+                report.offline(), report.underMinIsr(), report.examples());
+          });
+        }).thenApply(problem -> {
+          if (problem == null) {
+            return true;
+          }
+          lastProblem.set(problem);
+          log.info("Internal topics are not ready: {}.", problem);
+          return false;
+        }),
+        () -> log.error("Internal topics are not ready: {}.", lastProblem.get())
+    );
+  }
+
+  /**
+   * Looks up a group coordinator if the offsets topic is missing and a transaction coordinator if
+   * the transaction state topic is missing, so that the broker creates them. Only the side effect
+   * matters; the results are ignored.
+   */
+  private static void lookUpCoordinators(
+      Admin adminClient,
+      Collection<String> missing,
+      int timeoutMs
+  ) {
+    if (missing.contains(Topic.GROUP_METADATA_TOPIC_NAME)) {
+      adminClient.describeConsumerGroups(
+          Collections.singletonList(COORDINATOR_LOOKUP_ID),
+          new DescribeConsumerGroupsOptions().timeoutMs(timeoutMs)
+      ).all().whenComplete((groups, error) ->
+          log.debug("Looked up a group coordinator.", error));
+    }
+    if (missing.contains(Topic.TRANSACTION_STATE_TOPIC_NAME)) {
+      adminClient.describeTransactions(
+          Collections.singletonList(COORDINATOR_LOOKUP_ID),
+          new DescribeTransactionsOptions().timeoutMs(timeoutMs)
+      ).all().whenComplete((transactions, error) ->
+          log.debug("Looked up a transaction coordinator.", error));
+    }
+  }
+
+  /**
+   * Checks if consumer groups have caught up: the total lag of each group and the lag of each of
+   * its partitions must be at most the given limits. Groups without committed offsets are not
+   * caught up. The lag of every partition is logged once the check ends.
+   *
+   * @param adminClient client connected to the cluster of the groups; it is not closed.
+   * @param groupIds ids of the consumer groups to check.
+   * @param maxTotalLag maximum sum of the lags of all partitions of a group.
+   * @param maxPartitionLag maximum lag of any partition of a group.
+   * @param timeoutMs timeoutMs in milliseconds
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @return true if all groups have caught up, false otherwise.
+   */
+  public static boolean isConsumerGroupCaughtUp(
+      Admin adminClient,
+      Collection<String> groupIds,
+      long maxTotalLag,
+      long maxPartitionLag,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    try {
+      return isConsumerGroupCaughtUpAsync(
+          adminClient, groupIds, maxTotalLag, maxPartitionLag, timeoutMs, retryPolicy
+      ).toCompletableFuture().get();
+    } catch (InterruptedException e) {
+      // this is okay, we just give up early
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      log.error("Error while waiting for consumer groups to catch up.", e);
+      return false;
+    }
+  }
+
+  /**
+   * Asynchronous variant of
+   * {@link #isConsumerGroupCaughtUp(Admin, Collection, long, long, int, RetryPolicy)}.
+   */
+  public static CompletionStage<Boolean> isConsumerGroupCaughtUpAsync(
+      Admin adminClient,
+      Collection<String> groupIds,
+      long maxTotalLag,
+      long maxPartitionLag,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    ConsumerGroupLag consumerGroupLag = new ConsumerGroupLag(adminClient, groupIds);
+    AtomicReference<ConsumerGroupLag.Report> lastReport = new AtomicReference<>();
+    return RetryingCheck.run(
+        "consumer group lag",
+        timeoutMs,
+        retryPolicy,
+        attemptTimeoutMs -> consumerGroupLag.measure(attemptTimeoutMs).thenApply(report -> {
+          log.debug("Consumer group lag:\n{}", report);
+          lastReport.set(report);
+          List<String> problems = report.problems(maxTotalLag, maxPartitionLag);
+          if (problems.isEmpty()) {
+            report.lines().forEach(log::info);
+            return true;
+          }
+          log.info("Consumer groups have not caught up: {}.", String.join(", ", problems));
+          return false;
+        }),
+        () -> {
+          ConsumerGroupLag.Report report = lastReport.get();
+          if (report == null) {
+            log.error("Consumer group lag could not be measured.");
+            return;
+          }
+          log.error("Consumer groups have not caught up: {}.",
+              String.join(", ", report.problems(maxTotalLag, maxPartitionLag)));
+          report.lines().forEach(log::error);
+        }
+    );
+  }
+
+  /**
+   * Checks if clients can write to and read from the cluster with an acceptable latency: the
+   * canary must complete roundTrips consecutive produce/consume round trips within its latency
+   * threshold. A slow or failed round trip starts the count over after a backoff.
+   *
+   * @param canary canary connected to the cluster to check; it is not closed.
+   * @param roundTrips number of consecutive healthy round trips required.
+   * @param timeoutMs timeoutMs in milliseconds
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @return true if enough consecutive round trips were healthy, false otherwise.
+   */
+  public static boolean isCanaryHealthy(
+      Canary canary,
+      int roundTrips,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    try {
+      return isCanaryHealthyAsync(canary, roundTrips, timeoutMs, retryPolicy)
+          .toCompletableFuture().get();
+    } catch (InterruptedException e) {
+      // this is okay, we just give up early
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      log.error("Error while waiting for the canary.", e);
+      return false;
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #isCanaryHealthy(Canary, int, int, RetryPolicy)}. Producer and
+   * consumer calls block, so the attempts run one after the other on a thread of their own.
+   */
+  public static CompletionStage<Boolean> isCanaryHealthyAsync(
+      Canary canary,
+      int roundTrips,
+      int timeoutMs,
+      RetryPolicy retryPolicy
+  ) {
+    ExecutorService executor = blockingExecutor("kafka-ready-canary");
+    return RetryingCheck.run(
+        "canary",
+        timeoutMs,
+        retryPolicy,
+        attemptTimeoutMs -> CompletableFuture.supplyAsync(() -> {
+          try {
+            return canary.check(roundTrips, attemptTimeoutMs);
+          } catch (Exception e) {
+            throw new CompletionException(e);
+          }
+        }, executor),
+        () -> log.error("Canary did not complete {} consecutive round trips in time.", roundTrips)
+    ).whenComplete((healthy, error) -> executor.shutdown());
+  }
+
+  /**
+   * @return a single daemon thread running the blocking attempts of one check.
+   */
+  private static ExecutorService blockingExecutor(String name) {
+    return Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @return a description of why the quorum is not ready, or null if it is.
+   */
+  static String quorumProblem(QuorumInfo quorum, int minVoters, long maxLag) {
+    if (quorum.leaderId() < 0) {
+      return "no leader elected";
+    }
+    if (quorum.voters().size() < minVoters) {
+      return String.format(
+          "expected %d voters but found only %d", minVoters, quorum.voters().size()
+      );
+    }
+
+    long leaderEndOffset = quorum.highWatermark();
+    for (QuorumInfo.ReplicaState voter : quorum.voters()) {
+      if (voter.replicaId() == quorum.leaderId()) {
+        leaderEndOffset = Math.max(leaderEndOffset, voter.logEndOffset());
+      }
+    }
+    List<QuorumInfo.ReplicaState> replicas = new ArrayList<>(quorum.voters());
+    replicas.addAll(quorum.observers());
+    for (QuorumInfo.ReplicaState replica : replicas) {
+      long lag = leaderEndOffset - replica.logEndOffset();
+      if (lag > maxLag) {
+        return String.format(
+            "replica %d lags %d records behind the leader, more than %d",
+            replica.replicaId(), lag, maxLag
+        );
+      }
     }
+    return null;
   }
 }
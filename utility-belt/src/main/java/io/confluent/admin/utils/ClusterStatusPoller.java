@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link ClusterStatus} readiness check in the background and keeps the latest verdict,
+ * so callers such as probes can read a cached result instead of contacting the cluster.
+ */
+public class ClusterStatusPoller implements Closeable {
+
+  private static final Logger log = LogManager.getLogger(ClusterStatusPoller.class);
+
+  private final Admin adminClient;
+  private final int minBrokerCount;
+  private final int checkTimeoutMs;
+  private final long pollIntervalMs;
+  private final ScheduledExecutorService executor;
+
+  private volatile Verdict verdict = null;
+
+  /**
+   * @param adminClient client connected to the cluster to check; it is not closed.
+   * @param minBrokerCount Expected no of brokers
+   * @param checkTimeoutMs timeout in ms of a single readiness check.
+   * @param pollIntervalMs delay in ms between the end of a check and the start of the next one.
+   */
+  public ClusterStatusPoller(
+      Admin adminClient,
+      int minBrokerCount,
+      int checkTimeoutMs,
+      long pollIntervalMs
+  ) {
+    this.adminClient = adminClient;
+    this.minBrokerCount = minBrokerCount;
+    this.checkTimeoutMs = checkTimeoutMs;
+    this.pollIntervalMs = pollIntervalMs;
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "cluster-status-poller");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public void start() {
+    executor.scheduleWithFixedDelay(this::poll, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  void poll() {
+    boolean ready = ClusterStatus.isKafkaReady(adminClient, minBrokerCount, checkTimeoutMs);
+    if (verdict == null || verdict.ready() != ready) {
+      log.info("Cluster readiness changed to {}.", ready);
+    }
+    verdict = new Verdict(ready, System.currentTimeMillis());
+  }
+
+  /**
+   * @return the latest verdict, or null if no check has completed yet.
+   */
+  public Verdict verdict() {
+    return verdict;
+  }
+
+  /**
+   * @param maxStalenessMs maximum age in ms of the latest verdict.
+   * @return true if the latest check found the cluster ready and is not older than maxStalenessMs.
+   */
+  public boolean isReady(long maxStalenessMs) {
+    Verdict current = verdict;
+    return current != null && current.ready() && current.ageMs() <= maxStalenessMs;
+  }
+
+  /**
+   * @param maxStalenessMs maximum age in ms of the latest verdict.
+   * @return true if a check, successful or not, completed within maxStalenessMs.
+   */
+  public boolean isLive(long maxStalenessMs) {
+    Verdict current = verdict;
+    return current != null && current.ageMs() <= maxStalenessMs;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Result of a single readiness check.
+   */
+  public static class Verdict {
+    private final boolean ready;
+    private final long checkedAtMs;
+
+    public Verdict(boolean ready, long checkedAtMs) {
+      this.ready = ready;
+      this.checkedAtMs = checkedAtMs;
+    }
+
+    public boolean ready() {
+      return ready;
+    }
+
+    public long checkedAtMs() {
+      return checkedAtMs;
+    }
+
+    public long ageMs() {
+      return System.currentTimeMillis() - checkedAtMs;
+    }
+
+    @Override
+    public String toString() {
+      return "Verdict={"
+          + "ready=" + ready
+          + ", checkedAtMs=" + checkedAtMs
+          + '}';
+    }
+  }
+}
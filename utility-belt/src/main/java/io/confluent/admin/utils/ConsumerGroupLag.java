@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsOptions;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsSpec;
+import org.apache.kafka.clients.admin.ListOffsetsOptions;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Measures how far consumer groups are behind the end of the partitions they committed offsets
+ * for, e.g. to hold a blue/green cutover until the new deployment has caught up.
+ *
+ * <p>The committed offsets of all groups are fetched with a single request, and the log end
+ * offsets of all their partitions with another one, which the admin client splits by partition
+ * leader. A partition committed by several groups is looked up once.
+ */
+public class ConsumerGroupLag {
+
+  private static final Comparator<TopicPartition> PARTITION_ORDER =
+      Comparator.comparing(TopicPartition::topic).thenComparingInt(TopicPartition::partition);
+
+  private final Admin adminClient;
+  private final Collection<String> groupIds;
+
+  /**
+   * @param adminClient client connected to the cluster of the groups; it is not closed.
+   * @param groupIds ids of the consumer groups to measure.
+   */
+  public ConsumerGroupLag(Admin adminClient, Collection<String> groupIds) {
+    if (groupIds.isEmpty()) {
+      throw new IllegalArgumentException("At least one consumer group is required");
+    }
+    this.adminClient = adminClient;
+    this.groupIds = groupIds;
+  }
+
+  /**
+   * Measures the lag of all groups once.
+   *
+   * @param timeoutMs timeout in ms of each of the two requests.
+   * @return a stage completed with the lag of every committed partition of every group.
+   */
+  public CompletionStage<Report> measure(int timeoutMs) {
+    Map<String, ListConsumerGroupOffsetsSpec> specs = new LinkedHashMap<>();
+    for (String groupId : groupIds) {
+      specs.put(groupId, new ListConsumerGroupOffsetsSpec());
+    }
+    UtilityBeltMetrics metrics = UtilityBeltMetrics.get();
+    return metrics.record(
+        UtilityBeltMetrics.LIST_CONSUMER_GROUP_OFFSETS,
+        adminClient.listConsumerGroupOffsets(
+            specs, new ListConsumerGroupOffsetsOptions().timeoutMs(timeoutMs)
+        ).all()
+    ).toCompletionStage().thenCompose(groups -> {
+      Map<String, Map<TopicPartition, Long>> committed = new HashMap<>();
+      Map<TopicPartition, OffsetSpec> partitions = new HashMap<>();
+      for (Map.Entry<String, Map<TopicPartition, OffsetAndMetadata>> group : groups.entrySet()) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> offset : group.getValue().entrySet()) {
+          if (offset.getValue() != null) {
+            offsets.put(offset.getKey(), offset.getValue().offset());
+            partitions.put(offset.getKey(), OffsetSpec.latest());
+          }
+        }
+        committed.put(group.getKey(), offsets);
+      }
+      if (partitions.isEmpty()) {
+        return CompletableFuture.completedFuture(
+            report(groupIds, committed, Collections.emptyMap()));
+      }
+      return metrics.record(
+          UtilityBeltMetrics.LIST_OFFSETS,
+          adminClient.listOffsets(partitions, new ListOffsetsOptions().timeoutMs(timeoutMs)).all()
+      ).toCompletionStage().thenApply(endOffsets -> {
+        Map<TopicPartition, Long> ends = new HashMap<>();
+        for (Map.Entry<TopicPartition, ListOffsetsResultInfo> end : endOffsets.entrySet()) {
+          ends.put(end.getKey(), end.getValue().offset());
+        }
+        return report(groupIds, committed, ends);
+      });
+    });
+  }
+
+  /**
+   * @param committed committed offset of every partition, by group id.
+   * @param endOffsets log end offset of every partition.
+   */
+  static Report report(
+      Collection<String> groupIds,
+      Map<String, Map<TopicPartition, Long>> committed,
+      Map<TopicPartition, Long> endOffsets
+  ) {
+    Report report = new Report();
+    for (String groupId : groupIds) {
+      Map<TopicPartition, Long> lags = new TreeMap<>(PARTITION_ORDER);
+      for (Map.Entry<TopicPartition, Long> offset
+          : committed.getOrDefault(groupId, Collections.emptyMap()).entrySet()) {
+        Long end = endOffsets.get(offset.getKey());
+        if (end != null) {
+          lags.put(offset.getKey(), Math.max(0, end - offset.getValue()));
+        }
+      }
+      report.lags.put(groupId, lags);
+    }
+    return report;
+  }
+
+  /**
+   * Lag of every committed partition of every group, in records.
+   */
+  public static class Report {
+    private final Map<String, Map<TopicPartition, Long>> lags = new LinkedHashMap<>();
+
+    /**
+     * @return the lag of every committed partition of the group, by partition.
+     */
+    public Map<TopicPartition, Long> lags(String groupId) {
+      Map<TopicPartition, Long> group = lags.get(groupId);
+      return group == null ? Collections.emptyMap() : Collections.unmodifiableMap(group);
+    }
+
+    /**
+     * @return the sum of the lags of all partitions of the group.
+     */
+    public long totalLag(String groupId) {
+      long total = 0;
+      for (long lag : lags(groupId).values()) {
+        total += lag;
+      }
+      return total;
+    }
+
+    /**
+     * @return the largest lag of any partition of the group, or 0 if it has none.
+     */
+    public long maxPartitionLag(String groupId) {
+      long max = 0;
+      for (long lag : lags(groupId).values()) {
+        max = Math.max(max, lag);
+      }
+      return max;
+    }
+
+    /**
+     * Groups without committed offsets have not consumed anything yet, so they are never caught
+     * up.
+     *
+     * @return the reasons why groups are not caught up, empty if all of them are.
+     */
+    public List<String> problems(long maxTotalLag, long maxPartitionLag) {
+      List<String> problems = new ArrayList<>();
+      for (String groupId : lags.keySet()) {
+        if (lags(groupId).isEmpty()) {
+          problems.add("group " + groupId + " has no committed offsets");
+        } else if (totalLag(groupId) > maxTotalLag) {
+          problems.add(String.format("group %s has a total lag of %d, more than %d",
+              groupId, totalLag(groupId), maxTotalLag));
+        } else if (maxPartitionLag(groupId) > maxPartitionLag) {
+          problems.add(String.format("group %s has a partition lag of %d, more than %d",
+              groupId, maxPartitionLag(groupId), maxPartitionLag));
+        }
+      }
+      return problems;
+    }
+
+    /**
+     * @return one line per group with its total lag, followed by one line per partition.
+     */
+    public List<String> lines() {
+      List<String> lines = new ArrayList<>();
+      for (String groupId : lags.keySet()) {
+        lines.add(String.format("Group [ %s ] total lag %d over %d partitions",
+            groupId, totalLag(groupId), lags(groupId).size()));
+        for (Map.Entry<TopicPartition, Long> lag : lags(groupId).entrySet()) {
+          lines.add(String.format("Group [ %s ] partition %s lag %d",
+              groupId, lag.getKey(), lag.getValue()));
+        }
+      }
+      return lines;
+    }
+
+    @Override
+    public String toString() {
+      return String.join("\n", lines());
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+import org.apache.kafka.common.utils.ExponentialBackoff;
+
+/**
+ * Retry policy that polls quickly at first and backs off exponentially up to a cap. Jitter
+ * spreads the attempts of many clients started at the same time, so they do not reach a
+ * recovering cluster in synchronized waves. Each attempt may take at most the configured attempt
+ * timeout, and never longer than the time left until the deadline.
+ */
+public class ExponentialRetryPolicy implements RetryPolicy {
+
+  public static final long DEFAULT_INITIAL_BACKOFF_MS = 100;
+  public static final int DEFAULT_MULTIPLIER = 2;
+  public static final double DEFAULT_JITTER = 0.2;
+
+  private final ExponentialBackoff backoff;
+  private final int maxAttemptTimeoutMs;
+
+  /**
+   * @param initialBackoffMs backoff in ms after the first failed attempt.
+   * @param multiplier factor the backoff grows by after each failed attempt.
+   * @param maxBackoffMs upper bound in ms of the backoff, before jitter.
+   * @param jitter relative random variation of each backoff, between 0 and 1.
+   * @param maxAttemptTimeoutMs upper bound in ms of a single attempt, or 0 to let each attempt
+   *     use all the remaining time.
+   */
+  public ExponentialRetryPolicy(
+      long initialBackoffMs,
+      int multiplier,
+      long maxBackoffMs,
+      double jitter,
+      int maxAttemptTimeoutMs
+  ) {
+    if (initialBackoffMs < 0 || maxBackoffMs < initialBackoffMs) {
+      throw new IllegalArgumentException(
+          "Expected 0 <= initialBackoffMs <= maxBackoffMs but got "
+              + initialBackoffMs + " and " + maxBackoffMs
+      );
+    }
+    if (multiplier < 1) {
+      throw new IllegalArgumentException("multiplier must be at least 1 but was " + multiplier);
+    }
+    if (jitter < 0 || jitter > 1) {
+      throw new IllegalArgumentException("jitter must be between 0 and 1 but was " + jitter);
+    }
+    if (maxAttemptTimeoutMs < 0) {
+      throw new IllegalArgumentException(
+          "maxAttemptTimeoutMs must not be negative but was " + maxAttemptTimeoutMs
+      );
+    }
+    this.backoff = new ExponentialBackoff(initialBackoffMs, multiplier, maxBackoffMs, jitter);
+    this.maxAttemptTimeoutMs = maxAttemptTimeoutMs;
+  }
+
+  /**
+   * @return the policy used when none is configured: 100 ms growing to
+   *     {@link ClusterStatus#BROKER_METADATA_REQUEST_BACKOFF_MS} with 20% jitter.
+   */
+  public static ExponentialRetryPolicy defaultPolicy() {
+    return new ExponentialRetryPolicy(
+        DEFAULT_INITIAL_BACKOFF_MS,
+        DEFAULT_MULTIPLIER,
+        ClusterStatus.BROKER_METADATA_REQUEST_BACKOFF_MS,
+        DEFAULT_JITTER,
+        0
+    );
+  }
+
+  @Override
+  public int attemptTimeoutMs(int attempt, long remainingMs) {
+    long timeoutMs = maxAttemptTimeoutMs > 0 ? Math.min(maxAttemptTimeoutMs, remainingMs)
+        : remainingMs;
+    return (int) Math.min(Integer.MAX_VALUE, timeoutMs);
+  }
+
+  @Override
+  public long backoffMs(int attempt, long remainingMs) {
+    return Math.max(0, Math.min(backoff.backoff(attempt - 1), remainingMs));
+  }
+
+  @Override
+  public String toString() {
+    return "ExponentialRetryPolicy={"
+        + "backoff=" + backoff
+        + ", maxAttemptTimeoutMs=" + maxAttemptTimeoutMs
+        + '}';
+  }
+}
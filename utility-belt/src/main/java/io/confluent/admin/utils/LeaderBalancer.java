@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.DescribeClusterOptions;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
+import org.apache.kafka.clients.admin.ElectLeadersOptions;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.ElectionType;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.errors.ElectionNotNeededException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import io.confluent.admin.utils.UtilityBeltMetrics;
+
+/**
+ * Measures how evenly the leaders of a set of topics are spread across the brokers, and moves
+ * leadership back to the preferred replicas.
+ *
+ * <p>Partitions whose preferred replica, the first of their replicas, is not the leader, e.g.
+ * because a broker restarted while topics were created, leave their leadership on the remaining
+ * brokers until a preferred leader election. Elections are only requested for partitions whose
+ * preferred replica is in sync, since the others cannot be elected.
+ */
+public class LeaderBalancer {
+
+  private static final Logger log = LogManager.getLogger(LeaderBalancer.class);
+
+  private final Admin adminClient;
+  private final PrintStream out;
+  private final int timeoutMs;
+  private final UtilityBeltMetrics metrics = UtilityBeltMetrics.get();
+
+  /**
+   * @param adminClient client used for all requests; it is not closed by this class.
+   * @param out stream the skew report is printed to.
+   * @param timeoutMs timeout in ms for each admin request.
+   */
+  public LeaderBalancer(Admin adminClient, PrintStream out, int timeoutMs) {
+    this.adminClient = adminClient;
+    this.out = out;
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Leader distribution of a set of topics.
+   */
+  public static class LeaderSkew {
+    private final Map<Integer, Integer> leaders = new TreeMap<>();
+    private final List<TopicPartition> notPreferred = new ArrayList<>();
+    private final List<TopicPartition> electable = new ArrayList<>();
+    private int partitions = 0;
+
+    LeaderSkew(Collection<Node> brokers) {
+      for (Node broker : brokers) {
+        leaders.put(broker.id(), 0);
+      }
+    }
+
+    void add(TopicDescription topic) {
+      for (TopicPartitionInfo partition : topic.partitions()) {
+        partitions++;
+        Node leader = partition.leader();
+        if (leader != null && !leader.isEmpty()) {
+          leaders.merge(leader.id(), 1, Integer::sum);
+        }
+        if (partition.replicas().isEmpty()) {
+          continue;
+        }
+        Node preferred = partition.replicas().get(0);
+        if (leader == null || leader.id() != preferred.id()) {
+          TopicPartition topicPartition = new TopicPartition(topic.name(), partition.partition());
+          notPreferred.add(topicPartition);
+          if (partition.isr().contains(preferred)) {
+            electable.add(topicPartition);
+          }
+        }
+      }
+    }
+
+    /**
+     * @return the number of partitions each broker leads, by broker id.
+     */
+    public Map<Integer, Integer> leaders() {
+      return Collections.unmodifiableMap(leaders);
+    }
+
+    public int partitions() {
+      return partitions;
+    }
+
+    /**
+     * @return the partitions not led by their preferred replica.
+     */
+    public List<TopicPartition> notPreferred() {
+      return Collections.unmodifiableList(notPreferred);
+    }
+
+    /**
+     * @return the partitions not led by their preferred replica, which is in sync.
+     */
+    public List<TopicPartition> electable() {
+      return Collections.unmodifiableList(electable);
+    }
+
+    /**
+     * @param brokerId id of a broker.
+     * @return the partitions the broker leads divided by the partitions every broker would lead
+     *     if leadership were spread evenly, or 0 if there are no partitions.
+     */
+    public double skew(int brokerId) {
+      if (partitions == 0 || leaders.isEmpty()) {
+        return 0;
+      }
+      return leaders.getOrDefault(brokerId, 0) * leaders.size() / (double) partitions;
+    }
+
+    /**
+     * @return the skew of the broker leading the most partitions; 1 means perfectly even.
+     */
+    public double maxSkew() {
+      double max = 0;
+      for (int brokerId : leaders.keySet()) {
+        max = Math.max(max, skew(brokerId));
+      }
+      return max;
+    }
+
+    void print(PrintStream out) {
+      for (Map.Entry<Integer, Integer> broker : leaders.entrySet()) {
+        out.printf("Broker [ %d ] leads %d of %d partitions, skew %.2f\n",
+            broker.getKey(), broker.getValue(), partitions, skew(broker.getKey()));
+      }
+      out.printf("Leader skew %.2f, %d partitions not led by their preferred replica\n",
+          maxSkew(), notPreferred.size());
+    }
+  }
+
+  /**
+   * Describes the given topics and prints their leader distribution.
+   *
+   * @param topics names of the topics.
+   * @param batchSize maximum number of topics per describe request.
+   */
+  public LeaderSkew measure(Collection<String> topics, int batchSize) throws Exception {
+    Collection<Node> brokers = metrics.record(
+        UtilityBeltMetrics.DESCRIBE_CLUSTER,
+        adminClient.describeCluster(new DescribeClusterOptions().timeoutMs(timeoutMs)).nodes()
+    ).get();
+    LeaderSkew skew = new LeaderSkew(brokers);
+    for (List<String> batch : batches(new ArrayList<>(topics), batchSize)) {
+      Map<String, TopicDescription> descriptions = metrics.record(
+          UtilityBeltMetrics.DESCRIBE_TOPICS,
+          adminClient.describeTopics(batch, new DescribeTopicsOptions().timeoutMs(timeoutMs))
+              .allTopicNames()
+      ).get();
+      for (String name : batch) {
+        skew.add(descriptions.get(name));
+      }
+    }
+    skew.print(out);
+    return skew;
+  }
+
+  /**
+   * Runs preferred leader elections for the given partitions.
+   *
+   * @param partitions partitions to elect the preferred replica of.
+   * @param batchSize maximum number of partitions per election request.
+   * @return the number of partitions whose leader changed.
+   */
+  public int electPreferredLeaders(List<TopicPartition> partitions, int batchSize)
+      throws Exception {
+    int elected = 0;
+    for (List<TopicPartition> batch : batches(partitions, batchSize)) {
+      Map<TopicPartition, Optional<Throwable>> results = metrics.record(
+          UtilityBeltMetrics.ELECT_LEADERS,
+          adminClient.electLeaders(
+              ElectionType.PREFERRED,
+              new HashSet<>(batch),
+              new ElectLeadersOptions().timeoutMs(timeoutMs)
+          ).partitions()
+      ).get();
+      for (Map.Entry<TopicPartition, Optional<Throwable>> result : results.entrySet()) {
+        if (!result.getValue().isPresent()) {
+          elected++;
+        } else if (!(result.getValue().get() instanceof ElectionNotNeededException)) {
+          log.warn("Could not elect the preferred leader of {}: {}",
+              result.getKey(), result.getValue().get().getMessage());
+        }
+      }
+    }
+    out.printf("Elected the preferred leader of %d of %d partitions\n",
+        elected, partitions.size());
+    return elected;
+  }
+
+  /**
+   * Prints the leader distribution of the given topics and, if requested, elects the preferred
+   * leaders of the partitions not led by them and prints the distribution again.
+   *
+   * @param topics names of the topics.
+   * @param elect whether to run preferred leader elections.
+   * @param batchSize maximum number of topics or partitions per request.
+   * @return the final leader distribution.
+   */
+  public LeaderSkew balance(Collection<String> topics, boolean elect, int batchSize)
+      throws Exception {
+    LeaderSkew skew = measure(topics, batchSize);
+    if (elect && !skew.electable().isEmpty()
+        && electPreferredLeaders(skew.electable(), batchSize) > 0) {
+      skew = measure(topics, batchSize);
+    }
+    return skew;
+  }
+
+  private static <T> List<List<T>> batches(List<T> items, int batchSize) {
+    List<List<T>> batches = new ArrayList<>();
+    for (int i = 0; i < items.size(); i += batchSize) {
+      batches.add(items.subList(i, Math.min(i + batchSize, items.size())));
+    }
+    return batches;
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a readiness check against many clusters at once and waits for the earliest of all
+ * clusters being ready, the first cluster failing its check, or the deadline.
+ *
+ * <p>The checks are the asynchronous variants of {@link ClusterStatus}, which schedule their
+ * retries instead of sleeping, so all clusters are checked concurrently without a thread per
+ * cluster. They all get the same retry policy, which is cancelled once waiting ends, so that the
+ * checks still running after the first failure or the deadline stop retrying.
+ */
+public class MultiClusterCheck {
+
+  private static final Logger log = LogManager.getLogger(MultiClusterCheck.class);
+
+  /**
+   * A readiness check of a single cluster.
+   */
+  public interface Check {
+    /**
+     * @param adminClient client connected to the cluster.
+     * @param timeoutMs time in ms the check may take.
+     * @param retryPolicy policy of all retrying checks of the cluster, which is cancelled once
+     *     the result is no longer needed.
+     * @return a stage completed with true if the cluster is ready and false otherwise.
+     */
+    CompletionStage<Boolean> run(Admin adminClient, int timeoutMs, RetryPolicy retryPolicy);
+  }
+
+  /**
+   * Delegates to another policy until cancelled.
+   */
+  private static class CancellableRetryPolicy implements RetryPolicy {
+    private final RetryPolicy delegate;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    CancellableRetryPolicy(RetryPolicy delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public int attemptTimeoutMs(int attempt, long remainingMs) {
+      return delegate.attemptTimeoutMs(attempt, remainingMs);
+    }
+
+    @Override
+    public long backoffMs(int attempt, long remainingMs) {
+      return delegate.backoffMs(attempt, remainingMs);
+    }
+
+    @Override
+    public boolean cancelled() {
+      return cancelled.get() || delegate.cancelled();
+    }
+
+    void cancel() {
+      cancelled.set(true);
+    }
+  }
+
+  /**
+   * Verdict and timing of the check of a single cluster.
+   */
+  public static class ClusterResult {
+    private final String name;
+    private volatile Boolean ready = null;
+    private volatile long elapsedMs = -1;
+    private volatile Throwable error = null;
+
+    ClusterResult(String name) {
+      this.name = name;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    /**
+     * @return true if the cluster is ready, false if its check failed, or null if the check had
+     *     not finished when waiting ended.
+     */
+    public Boolean ready() {
+      return ready;
+    }
+
+    /**
+     * @return time in ms the check took, or -1 if it had not finished.
+     */
+    public long elapsedMs() {
+      return elapsedMs;
+    }
+
+    /**
+     * @return the error the check failed with, or null.
+     */
+    public Throwable error() {
+      return error;
+    }
+
+    void finish(boolean ready, long elapsedMs, Throwable error) {
+      this.error = error;
+      this.elapsedMs = elapsedMs;
+      this.ready = ready;
+    }
+
+    @Override
+    public String toString() {
+      String verdict = ready == null ? "not finished" : ready ? "ready" : "not ready";
+      return "Cluster [ " + name + " ] " + verdict
+          + (elapsedMs >= 0 ? " after " + elapsedMs + " ms" : "")
+          + (error != null ? ": " + error : "");
+    }
+  }
+
+  /**
+   * Checks all clusters concurrently.
+   *
+   * @param clusters clients connected to each cluster, by name. A null client marks a cluster
+   *     that could not be connected to, which fails immediately.
+   * @param timeoutMs time in ms to wait for all clusters.
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @param check check to run against each cluster.
+   * @return the result of every cluster, in the order of the map.
+   */
+  public static List<ClusterResult> run(
+      Map<String, ? extends Admin> clusters,
+      int timeoutMs,
+      RetryPolicy retryPolicy,
+      Check check
+  ) throws InterruptedException {
+    long begin = System.currentTimeMillis();
+    CancellableRetryPolicy cancellable = new CancellableRetryPolicy(retryPolicy);
+    List<ClusterResult> results = new ArrayList<>();
+    CompletableFuture<Boolean> done = new CompletableFuture<>();
+    AtomicInteger remaining = new AtomicInteger(clusters.size());
+    if (clusters.isEmpty()) {
+      done.complete(true);
+    }
+
+    for (Map.Entry<String, ? extends Admin> cluster : clusters.entrySet()) {
+      ClusterResult result = new ClusterResult(cluster.getKey());
+      results.add(result);
+      CompletionStage<Boolean> stage;
+      if (cluster.getValue() == null) {
+        stage = CompletableFuture.completedFuture(false);
+      } else {
+        try {
+          stage = check.run(cluster.getValue(), timeoutMs, cancellable);
+        } catch (RuntimeException e) {
+          CompletableFuture<Boolean> failed = new CompletableFuture<>();
+          failed.completeExceptionally(e);
+          stage = failed;
+        }
+      }
+      stage.whenComplete((ready, error) -> {
+        if (cancellable.cancelled()) {
+          // Waiting already ended, the check stays not finished.
+          return;
+        }
+        boolean success = error == null && ready;
+        result.finish(success, System.currentTimeMillis() - begin, error);
+        log.info("{}.", result);
+        if (!success) {
+          // Stops the checks of the other clusters, whose verdict no longer matters.
+          cancellable.cancel();
+          done.complete(false);
+        } else if (remaining.decrementAndGet() == 0) {
+          done.complete(true);
+        }
+      });
+    }
+
+    try {
+      done.get(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      log.error("Not all clusters finished their check within {} ms.", timeoutMs);
+    } catch (ExecutionException e) {
+      // Never happens, done is only completed normally.
+      throw new IllegalStateException(e);
+    } finally {
+      cancellable.cancel();
+    }
+    return results;
+  }
+}
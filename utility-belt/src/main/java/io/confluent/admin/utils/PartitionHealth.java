@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.DescribeConfigsOptions;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Scans the partitions of a set of topics for under-replicated, under-min-ISR and offline
+ * partitions. Topics are described a batch at a time and only counters and a few example
+ * partitions are kept, so clusters with tens of thousands of partitions can be scanned without
+ * holding every description in memory.
+ */
+public class PartitionHealth {
+
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  public static final int MAX_EXAMPLES = 10;
+
+  private final Admin adminClient;
+  private final Collection<String> topics;
+  private final int batchSize;
+
+  /**
+   * @param adminClient client connected to the cluster to scan; it is not closed.
+   * @param topics topics to scan, or null to scan all topics including internal ones.
+   * @param batchSize number of topics described per request.
+   */
+  public PartitionHealth(Admin adminClient, Collection<String> topics, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be at least 1 but was " + batchSize);
+    }
+    this.adminClient = adminClient;
+    this.topics = topics;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Scans all selected topics once.
+   *
+   * @param timeoutMs time in ms the whole scan may take.
+   * @return a stage completed with the counts of unhealthy partitions, or failed with a
+   *     {@link TimeoutException} if the scan did not complete in time.
+   */
+  public CompletionStage<Report> scan(int timeoutMs) {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    CompletionStage<List<String>> names;
+    if (topics != null) {
+      names = CompletableFuture.completedFuture(new ArrayList<>(topics));
+    } else {
+      names = UtilityBeltMetrics.get().record(
+          UtilityBeltMetrics.LIST_TOPICS,
+          adminClient.listTopics(
+              new ListTopicsOptions().listInternal(true).timeoutMs(timeoutMs)
+          ).names()
+      ).toCompletionStage().thenApply(ArrayList::new);
+    }
+    return names.thenCompose(list -> {
+      Collections.sort(list);
+      return scanBatches(list, 0, deadline, new Report());
+    });
+  }
+
+  private CompletionStage<Report> scanBatches(
+      List<String> names,
+      int from,
+      long deadline,
+      Report report
+  ) {
+    if (from >= names.size()) {
+      return CompletableFuture.completedFuture(report);
+    }
+    long remainingMs = deadline - System.currentTimeMillis();
+    if (remainingMs <= 0) {
+      return CompletableFuture.failedFuture(new TimeoutException(
+          "Scanned only " + from + " of " + names.size() + " topics before the timeout."
+      ));
+    }
+    List<String> batch = names.subList(from, Math.min(from + batchSize, names.size()));
+    return scanBatch(batch, (int) remainingMs, report)
+        .thenCompose(ignored -> scanBatches(names, from + batchSize, deadline, report));
+  }
+
+  private CompletionStage<Void> scanBatch(List<String> batch, int timeoutMs, Report report) {
+    List<ConfigResource> resources = new ArrayList<>(batch.size());
+    for (String name : batch) {
+      resources.add(new ConfigResource(ConfigResource.Type.TOPIC, name));
+    }
+    UtilityBeltMetrics metrics = UtilityBeltMetrics.get();
+    CompletionStage<Map<String, TopicDescription>> descriptions = metrics.record(
+        UtilityBeltMetrics.DESCRIBE_TOPICS,
+        adminClient.describeTopics(
+            batch, new DescribeTopicsOptions().timeoutMs(timeoutMs)
+        ).allTopicNames()
+    ).toCompletionStage();
+    CompletionStage<Map<ConfigResource, Config>> configs = metrics.record(
+        UtilityBeltMetrics.DESCRIBE_CONFIGS,
+        adminClient.describeConfigs(
+            resources, new DescribeConfigsOptions().timeoutMs(timeoutMs)
+        ).all()
+    ).toCompletionStage();
+
+    return descriptions.thenCombine(configs, (topicDescriptions, topicConfigs) -> {
+      for (TopicDescription description : topicDescriptions.values()) {
+        Config config = topicConfigs.get(
+            new ConfigResource(ConfigResource.Type.TOPIC, description.name())
+        );
+        report.add(description, minInsyncReplicas(config));
+      }
+      return null;
+    });
+  }
+
+  private static int minInsyncReplicas(Config config) {
+    ConfigEntry entry = config == null ? null
+        : config.get(TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG);
+    if (entry == null || entry.value() == null) {
+      return 1;
+    }
+    return Integer.parseInt(entry.value());
+  }
+
+  /**
+   * Counts of unhealthy partitions found by a scan, with a few examples of each kind.
+   */
+  public static class Report {
+    private int topics = 0;
+    private int partitions = 0;
+    private int underReplicated = 0;
+    private int underMinIsr = 0;
+    private int offline = 0;
+    private final List<String> examples = new ArrayList<>();
+
+    void add(TopicDescription description, int minInsyncReplicas) {
+      topics++;
+      for (TopicPartitionInfo partition : description.partitions()) {
+        partitions++;
+        String name = description.name() + "-" + partition.partition();
+        if (partition.leader() == null || partition.leader().isEmpty()) {
+          offline++;
+          example(name + " is offline");
+        }
+        if (partition.isr().size() < partition.replicas().size()) {
+          underReplicated++;
+          example(String.format(
+              "%s has %d of %d replicas in sync",
+              name, partition.isr().size(), partition.replicas().size()
+          ));
+        }
+        if (partition.isr().size() < minInsyncReplicas) {
+          underMinIsr++;
+          example(String.format(
+              "%s has %d in sync replicas but min.insync.replicas is %d",
+              name, partition.isr().size(), minInsyncReplicas
+          ));
+        }
+      }
+    }
+
+    private void example(String example) {
+      if (examples.size() < MAX_EXAMPLES) {
+        examples.add(example);
+      }
+    }
+
+    public int topics() {
+      return topics;
+    }
+
+    public int partitions() {
+      return partitions;
+    }
+
+    public int underReplicated() {
+      return underReplicated;
+    }
+
+    public int underMinIsr() {
+      return underMinIsr;
+    }
+
+    public int offline() {
+      return offline;
+    }
+
+    /**
+     * @return up to {@link #MAX_EXAMPLES} descriptions of unhealthy partitions.
+     */
+    public List<String> examples() {
+      return Collections.unmodifiableList(examples);
+    }
+
+    /**
+     * @return true if no partition is under-replicated, under min ISR or offline.
+     */
+    public boolean isHealthy() {
+      return underReplicated == 0 && underMinIsr == 0 && offline == 0;
+    }
+
+    @Override
+    public String toString() {
+      return "Report={"
+          + "topics=" + topics
+          + ", partitions=" + partitions
+          + ", underReplicated=" + underReplicated
+          + ", underMinIsr=" + underMinIsr
+          + ", offline=" + offline
+          + ", examples=" + examples
+          + '}';
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the cached verdict of a {@link ClusterStatusPoller} over HTTP.
+ * /ready answers 200 if the latest check found the cluster ready and 503 otherwise.
+ * /live answers 200 if a check completed recently and 503 otherwise.
+ * /metrics answers the {@link UtilityBeltMetrics} in the Prometheus text format.
+ * Verdicts older than the configured staleness are treated as failures.
+ */
+public class ReadinessServer implements Closeable {
+
+  public static final String READY_PATH = "/ready";
+  public static final String LIVE_PATH = "/live";
+  public static final String METRICS_PATH = "/metrics";
+
+  private final ClusterStatusPoller poller;
+  private final long maxStalenessMs;
+  private final HttpServer server;
+
+  public ReadinessServer(ClusterStatusPoller poller, InetSocketAddress address, long maxStalenessMs)
+      throws IOException {
+    this.poller = poller;
+    this.maxStalenessMs = maxStalenessMs;
+    this.server = HttpServer.create(address, 0);
+    this.server.createContext(READY_PATH, exchange ->
+        respond(exchange, poller.isReady(maxStalenessMs)));
+    this.server.createContext(LIVE_PATH, exchange ->
+        respond(exchange, poller.isLive(maxStalenessMs)));
+    this.server.createContext(METRICS_PATH, this::respondMetrics);
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * @return the address the server is bound to.
+   */
+  public InetSocketAddress address() {
+    return server.getAddress();
+  }
+
+  private void respond(HttpExchange exchange, boolean ok) throws IOException {
+    ClusterStatusPoller.Verdict verdict = poller.verdict();
+    String body = String.format(
+        "%s%nverdict=%s%nmaxStalenessMs=%d%n", ok ? "OK" : "NOT OK", verdict, maxStalenessMs
+    );
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(ok ? 200 : 503, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private void respondMetrics(HttpExchange exchange) throws IOException {
+    byte[] bytes = UtilityBeltMetrics.get().toPrometheusText().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.DescribeClusterOptions;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.errors.InvalidReplicationFactorException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import io.confluent.admin.utils.UtilityBeltMetrics;
+
+/**
+ * Assigns the replicas of new topics so that leaders and replicas are spread evenly across the
+ * brokers and racks of a cluster.
+ *
+ * <p>The controller places each new topic on its own, starting from a random broker, so creating
+ * many topics at once can leave some brokers leading far more partitions than others. This class
+ * counts the leaders and replicas every broker already holds and assigns each partition in turn:
+ * the leader goes to the broker leading the fewest partitions, and every follower to a broker in
+ * a rack the partition does not use yet, holding the fewest replicas. The counts include the
+ * assignments made so far, so the topics of a single batch are balanced against each other too.
+ * Brokers without a rack are treated as sharing one rack. Replicas added to existing partitions
+ * are chosen like followers, in racks the partition does not use yet.
+ */
+public class ReplicaPlacement {
+
+  private final List<Node> brokers;
+  private final Map<Integer, Integer> leaders = new HashMap<>();
+  private final Map<Integer, Integer> replicas = new HashMap<>();
+
+  /**
+   * @param brokers brokers of the cluster.
+   * @param topics current topics of the cluster, whose leaders and replicas are counted.
+   */
+  public ReplicaPlacement(Collection<Node> brokers, Collection<TopicDescription> topics) {
+    this.brokers = new ArrayList<>(brokers);
+    for (Node broker : brokers) {
+      leaders.put(broker.id(), 0);
+      replicas.put(broker.id(), 0);
+    }
+    for (TopicDescription topic : topics) {
+      for (TopicPartitionInfo partition : topic.partitions()) {
+        List<Node> partitionReplicas = partition.replicas();
+        if (!partitionReplicas.isEmpty()) {
+          leaders.computeIfPresent(partitionReplicas.get(0).id(), (id, count) -> count + 1);
+        }
+        for (Node replica : partitionReplicas) {
+          replicas.computeIfPresent(replica.id(), (id, count) -> count + 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Fetches the brokers and the replicas of all topics, internal ones included, of the cluster.
+   * This describes every topic of the cluster, so it is done once per run; the topics are
+   * described in batches of at most {@code batchSize} to bound the size of each request.
+   *
+   * @param batchSize maximum number of topics described by a single request.
+   * @return a stage completed with the placement of the current cluster.
+   */
+  public static CompletionStage<ReplicaPlacement> load(
+      Admin adminClient, int timeOut, int batchSize
+  ) {
+    UtilityBeltMetrics metrics = UtilityBeltMetrics.get();
+    CompletionStage<Collection<Node>> nodes = metrics.record(
+        UtilityBeltMetrics.DESCRIBE_CLUSTER,
+        adminClient.describeCluster(new DescribeClusterOptions().timeoutMs(timeOut)).nodes()
+    ).toCompletionStage();
+    CompletionStage<Set<String>> names = metrics.record(
+        UtilityBeltMetrics.LIST_TOPICS,
+        adminClient.listTopics(new ListTopicsOptions().listInternal(true).timeoutMs(timeOut))
+            .names()
+    ).toCompletionStage();
+    CompletionStage<List<TopicDescription>> descriptions = names.thenCompose(topics -> {
+      List<String> sorted = new ArrayList<>(topics);
+      CompletionStage<List<TopicDescription>> described =
+          CompletableFuture.completedFuture(new ArrayList<>());
+      for (int from = 0; from < sorted.size(); from += batchSize) {
+        List<String> batch = sorted.subList(from, Math.min(from + batchSize, sorted.size()));
+        described = described.thenCompose(all -> metrics.record(
+            UtilityBeltMetrics.DESCRIBE_TOPICS,
+            adminClient.describeTopics(batch, new DescribeTopicsOptions().timeoutMs(timeOut))
+                .allTopicNames()
+        ).toCompletionStage().thenApply(batchDescriptions -> {
+          all.addAll(batchDescriptions.values());
+          return all;
+        }));
+      }
+      return described;
+    });
+    return nodes.thenCombine(descriptions, ReplicaPlacement::new);
+  }
+
+  /**
+   * Assigns the replicas of a new topic and counts them for the following assignments.
+   *
+   * @param partitions number of partitions of the topic.
+   * @param replicationFactor number of replicas of each partition.
+   * @return the replicas of each partition, the preferred leader first, by partition.
+   * @throws InvalidReplicationFactorException if there are not enough brokers.
+   */
+  public synchronized Map<Integer, List<Integer>> assign(int partitions, int replicationFactor) {
+    checkBrokers(replicationFactor);
+    Map<Integer, List<Integer>> assignment = new LinkedHashMap<>();
+    for (int partition = 0; partition < partitions; partition++) {
+      List<Node> candidates = new ArrayList<>(brokers);
+      List<Integer> partitionReplicas = new ArrayList<>(replicationFactor);
+      Map<String, Integer> racks = new HashMap<>();
+
+      candidates.sort(Comparator.comparing((Node broker) -> leaders.get(broker.id()))
+          .thenComparing(broker -> replicas.get(broker.id()))
+          .thenComparing(Node::id));
+      Node leader = candidates.remove(0);
+      leaders.merge(leader.id(), 1, Integer::sum);
+      add(leader, partitionReplicas, racks);
+
+      addFollowers(candidates, partitionReplicas, racks, replicationFactor);
+      assignment.put(partition, partitionReplicas);
+    }
+    return assignment;
+  }
+
+  /**
+   * Adds replicas to an existing partition and counts them for the following assignments. The
+   * current replicas are kept in order, and the new ones are chosen like the followers of a new
+   * topic.
+   *
+   * @param current current replicas of the partition, the preferred leader first.
+   * @param replicationFactor number of replicas the partition should have.
+   * @return the current replicas followed by the new ones.
+   * @throws InvalidReplicationFactorException if there are not enough brokers.
+   */
+  public synchronized List<Integer> extend(List<Integer> current, int replicationFactor) {
+    checkBrokers(replicationFactor);
+    List<Node> candidates = new ArrayList<>();
+    List<Integer> partitionReplicas = new ArrayList<>(current);
+    Map<String, Integer> racks = new HashMap<>();
+    for (Node broker : brokers) {
+      if (current.contains(broker.id())) {
+        racks.merge(rack(broker), 1, Integer::sum);
+      } else {
+        candidates.add(broker);
+      }
+    }
+    addFollowers(candidates, partitionReplicas, racks, replicationFactor);
+    return partitionReplicas;
+  }
+
+  private void checkBrokers(int replicationFactor) {
+    if (replicationFactor > brokers.size()) {
+      throw new InvalidReplicationFactorException(String.format(
+          "Replication factor %d is larger than the %d available brokers",
+          replicationFactor, brokers.size()
+      ));
+    }
+  }
+
+  /**
+   * Adds followers from the candidates until the partition has enough replicas, each time taking
+   * a broker in the least used rack of the partition, holding the fewest replicas.
+   */
+  private void addFollowers(
+      List<Node> candidates,
+      List<Integer> partitionReplicas,
+      Map<String, Integer> racks,
+      int replicationFactor
+  ) {
+    while (partitionReplicas.size() < replicationFactor) {
+      candidates.sort(Comparator.comparing((Node broker) -> racks.getOrDefault(rack(broker), 0))
+          .thenComparing(broker -> replicas.get(broker.id()))
+          .thenComparing(Node::id));
+      add(candidates.remove(0), partitionReplicas, racks);
+    }
+  }
+
+  private void add(Node broker, List<Integer> partitionReplicas, Map<String, Integer> racks) {
+    partitionReplicas.add(broker.id());
+    replicas.merge(broker.id(), 1, Integer::sum);
+    racks.merge(rack(broker), 1, Integer::sum);
+  }
+
+  private static String rack(Node broker) {
+    return broker.hasRack() ? broker.rack() : "";
+  }
+
+  /**
+   * @return the number of partitions each broker leads, by broker id.
+   */
+  Map<Integer, Integer> leaders() {
+    return leaders;
+  }
+
+  /**
+   * @return the number of replicas each broker holds, by broker id.
+   */
+  Map<Integer, Integer> replicas() {
+    return replicas;
+  }
+}
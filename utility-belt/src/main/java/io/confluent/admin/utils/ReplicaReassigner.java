@@ -0,0 +1,390 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AlterConfigOp;
+import org.apache.kafka.clients.admin.AlterConfigsOptions;
+import org.apache.kafka.clients.admin.AlterPartitionReassignmentsOptions;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.DescribeConfigsOptions;
+import org.apache.kafka.clients.admin.ListPartitionReassignmentsOptions;
+import org.apache.kafka.clients.admin.NewPartitionReassignment;
+import org.apache.kafka.clients.admin.PartitionReassignment;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.errors.InvalidReplicationFactorException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.utils.Time;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.confluent.admin.utils.UtilityBeltMetrics;
+
+/**
+ * Raises the replication factor of topics by reassigning their partitions to additional brokers.
+ *
+ * <p>Existing replicas are kept in order, so preferred leaders do not move. New replicas are
+ * placed as {@link ReplicaPlacement} places followers: on brokers in racks the partition does not
+ * use yet, holding the fewest replicas of the reassigned topics. While the
+ * reassignment runs, the leader and follower replication rates of the involved brokers are
+ * throttled, as with {@code kafka-reassign-partitions --throttle}, so that catching up the new
+ * replicas does not starve production traffic. Once all partitions are reassigned, every
+ * throttle config that was already set on a broker or topic before is restored to its previous
+ * value, and the others are removed. If the reassignment does not complete in time it is
+ * cancelled, which reverts the partitions to their previous replicas, before the throttles are
+ * restored.
+ */
+public class ReplicaReassigner {
+
+  public static final long DEFAULT_THROTTLE_BYTES_PER_SEC = 50L * 1024 * 1024;
+  public static final int DEFAULT_TIMEOUT_MS = 30 * 60 * 1000;
+
+  static final String LEADER_THROTTLED_RATE = "leader.replication.throttled.rate";
+  static final String FOLLOWER_THROTTLED_RATE = "follower.replication.throttled.rate";
+  static final String LEADER_THROTTLED_REPLICAS = "leader.replication.throttled.replicas";
+  static final String FOLLOWER_THROTTLED_REPLICAS = "follower.replication.throttled.replicas";
+
+  private static final int POLL_INTERVAL_MS = 1000;
+
+  private final Admin adminClient;
+  private final PrintStream out;
+  private final long throttleBytesPerSec;
+  private final int timeoutMs;
+  private final int requestTimeoutMs;
+  private final Time time;
+  private final UtilityBeltMetrics metrics = UtilityBeltMetrics.get();
+
+  /**
+   * @param adminClient client used for all requests; it is not closed by this class.
+   * @param out stream progress is reported to.
+   * @param throttleBytesPerSec replication rate allowed per broker while reassigning.
+   * @param timeoutMs time in ms a reassignment may take before it is cancelled.
+   * @param requestTimeoutMs timeout in ms for each admin request.
+   */
+  public ReplicaReassigner(
+      Admin adminClient,
+      PrintStream out,
+      long throttleBytesPerSec,
+      int timeoutMs,
+      int requestTimeoutMs
+  ) {
+    this(adminClient, out, throttleBytesPerSec, timeoutMs, requestTimeoutMs, Time.SYSTEM);
+  }
+
+  ReplicaReassigner(
+      Admin adminClient,
+      PrintStream out,
+      long throttleBytesPerSec,
+      int timeoutMs,
+      int requestTimeoutMs,
+      Time time
+  ) {
+    if (throttleBytesPerSec <= 0) {
+      throw new IllegalArgumentException(
+          "throttleBytesPerSec must be positive but was " + throttleBytesPerSec);
+    }
+    this.adminClient = adminClient;
+    this.out = out;
+    this.throttleBytesPerSec = throttleBytesPerSec;
+    this.timeoutMs = timeoutMs;
+    this.requestTimeoutMs = requestTimeoutMs;
+    this.time = time;
+  }
+
+  /**
+   * Raises the replication factor of the given topics and waits until all their partitions are
+   * reassigned.
+   *
+   * @param topics topics to raise, with the replication factor each one should have.
+   * @param brokers brokers of the cluster.
+   * @return the number of reassigned partitions.
+   */
+  public int increaseReplicationFactor(
+      Map<TopicDescription, Integer> topics,
+      Collection<Node> brokers
+  ) throws Exception {
+    Map<TopicPartition, List<Integer>> current = new HashMap<>();
+    for (TopicDescription topic : topics.keySet()) {
+      for (TopicPartitionInfo partition : topic.partitions()) {
+        List<Integer> replicas = new ArrayList<>();
+        for (Node replica : partition.replicas()) {
+          replicas.add(replica.id());
+        }
+        current.put(new TopicPartition(topic.name(), partition.partition()), replicas);
+      }
+    }
+    Map<TopicPartition, List<Integer>> targets = plan(topics, brokers);
+    reassign(current, targets);
+    return targets.size();
+  }
+
+  /**
+   * Computes the target replicas of every partition of the given topics.
+   *
+   * @param topics topics to raise, with the replication factor each one should have.
+   * @param brokers brokers of the cluster.
+   * @return the target replicas of the partitions that need more replicas, in partition order.
+   * @throws InvalidReplicationFactorException if there are not enough brokers.
+   */
+  static Map<TopicPartition, List<Integer>> plan(
+      Map<TopicDescription, Integer> topics,
+      Collection<Node> brokers
+  ) {
+    ReplicaPlacement placement = new ReplicaPlacement(brokers, topics.keySet());
+    Map<TopicPartition, List<Integer>> targets = new LinkedHashMap<>();
+    for (Map.Entry<TopicDescription, Integer> entry : topics.entrySet()) {
+      TopicDescription topic = entry.getKey();
+      int replicationFactor = entry.getValue();
+      if (replicationFactor > brokers.size()) {
+        throw new InvalidReplicationFactorException(String.format(
+            "Cannot raise the replication factor of topic %s to %d with only %d brokers",
+            topic.name(), replicationFactor, brokers.size()
+        ));
+      }
+      for (TopicPartitionInfo partition : topic.partitions()) {
+        List<Integer> replicas = new ArrayList<>();
+        for (Node replica : partition.replicas()) {
+          replicas.add(replica.id());
+        }
+        if (replicas.size() >= replicationFactor) {
+          continue;
+        }
+        targets.put(new TopicPartition(topic.name(), partition.partition()),
+            placement.extend(replicas, replicationFactor));
+      }
+    }
+    return targets;
+  }
+
+  /**
+   * Reassigns partitions to their target replicas and waits until the reassignment completes.
+   *
+   * @param current current replicas of each partition.
+   * @param targets target replicas of each partition, a superset of the current ones.
+   * @throws TimeoutException if the reassignment did not complete in time and was cancelled.
+   */
+  public void reassign(
+      Map<TopicPartition, List<Integer>> current,
+      Map<TopicPartition, List<Integer>> targets
+  ) throws Exception {
+    if (targets.isEmpty()) {
+      return;
+    }
+    Map<ConfigResource, Collection<AlterConfigOp>> throttles = throttles(current, targets);
+    Map<ConfigResource, Collection<AlterConfigOp>> restores = restoreOps(throttles);
+    try {
+      alterConfigs(throttles);
+      Map<TopicPartition, Optional<NewPartitionReassignment>> reassignments = new HashMap<>();
+      for (Map.Entry<TopicPartition, List<Integer>> target : targets.entrySet()) {
+        reassignments.put(
+            target.getKey(), Optional.of(new NewPartitionReassignment(target.getValue()))
+        );
+      }
+      metrics.record(
+          UtilityBeltMetrics.ALTER_PARTITION_REASSIGNMENTS,
+          adminClient.alterPartitionReassignments(
+              reassignments, new AlterPartitionReassignmentsOptions().timeoutMs(requestTimeoutMs)
+          ).all()
+      ).get();
+      out.printf("Reassigning %d partitions with replication throttled to %d bytes/sec\n",
+          targets.size(), throttleBytesPerSec);
+      awaitReassignment(targets.keySet());
+    } catch (Exception e) {
+      try {
+        alterConfigs(restores);
+      } catch (Exception cleanup) {
+        e.addSuppressed(cleanup);
+      }
+      throw e;
+    }
+    alterConfigs(restores);
+  }
+
+  private void awaitReassignment(Set<TopicPartition> partitions) throws Exception {
+    long deadline = time.milliseconds() + timeoutMs;
+    int lastRemaining = partitions.size();
+    while (true) {
+      Map<TopicPartition, PartitionReassignment> ongoing = metrics.record(
+          UtilityBeltMetrics.LIST_PARTITION_REASSIGNMENTS,
+          adminClient.listPartitionReassignments(
+              partitions, new ListPartitionReassignmentsOptions().timeoutMs(requestTimeoutMs)
+          ).reassignments()
+      ).get();
+      ongoing.keySet().retainAll(partitions);
+      if (ongoing.isEmpty()) {
+        out.printf("Reassigned %d partitions\n", partitions.size());
+        return;
+      }
+      if (ongoing.size() != lastRemaining) {
+        lastRemaining = ongoing.size();
+        out.printf("Reassigned %d of %d partitions\n",
+            partitions.size() - lastRemaining, partitions.size());
+      }
+      if (time.milliseconds() >= deadline) {
+        cancel(ongoing.keySet());
+        throw new TimeoutException(String.format(
+            "Reassignment of %d partitions did not complete within %d ms and was cancelled",
+            ongoing.size(), timeoutMs
+        ));
+      }
+      time.sleep(Math.min(POLL_INTERVAL_MS, Math.max(1, deadline - time.milliseconds())));
+    }
+  }
+
+  private void cancel(Set<TopicPartition> partitions) throws Exception {
+    Map<TopicPartition, Optional<NewPartitionReassignment>> cancellations = new HashMap<>();
+    for (TopicPartition partition : partitions) {
+      cancellations.put(partition, Optional.empty());
+    }
+    metrics.record(
+        UtilityBeltMetrics.ALTER_PARTITION_REASSIGNMENTS,
+        adminClient.alterPartitionReassignments(
+            cancellations, new AlterPartitionReassignmentsOptions().timeoutMs(requestTimeoutMs)
+        ).all()
+    ).get();
+  }
+
+  /**
+   * Builds the configs throttling a reassignment: the replication rates of every broker that
+   * holds a current or target replica, and per topic the current replicas as throttled leaders
+   * and the added replicas as throttled followers.
+   */
+  Map<ConfigResource, Collection<AlterConfigOp>> throttles(
+      Map<TopicPartition, List<Integer>> current,
+      Map<TopicPartition, List<Integer>> targets
+  ) {
+    Set<Integer> brokers = new TreeSet<>();
+    Map<String, List<String>> leaders = new LinkedHashMap<>();
+    Map<String, List<String>> followers = new LinkedHashMap<>();
+    for (Map.Entry<TopicPartition, List<Integer>> target : targets.entrySet()) {
+      TopicPartition partition = target.getKey();
+      List<Integer> replicas = current.getOrDefault(partition, Collections.emptyList());
+      for (int id : replicas) {
+        leaders.computeIfAbsent(partition.topic(), topic -> new ArrayList<>())
+            .add(partition.partition() + ":" + id);
+      }
+      for (int id : target.getValue()) {
+        if (!replicas.contains(id)) {
+          followers.computeIfAbsent(partition.topic(), topic -> new ArrayList<>())
+              .add(partition.partition() + ":" + id);
+        }
+      }
+      brokers.addAll(replicas);
+      brokers.addAll(target.getValue());
+    }
+
+    Map<ConfigResource, Collection<AlterConfigOp>> throttles = new LinkedHashMap<>();
+    String rate = String.valueOf(throttleBytesPerSec);
+    for (int id : brokers) {
+      throttles.put(
+          new ConfigResource(ConfigResource.Type.BROKER, String.valueOf(id)),
+          Arrays.asList(set(LEADER_THROTTLED_RATE, rate), set(FOLLOWER_THROTTLED_RATE, rate))
+      );
+    }
+    Set<String> topics = new TreeSet<>(leaders.keySet());
+    topics.addAll(followers.keySet());
+    for (String topic : topics) {
+      List<AlterConfigOp> ops = new ArrayList<>();
+      if (leaders.containsKey(topic)) {
+        ops.add(set(LEADER_THROTTLED_REPLICAS, String.join(",", leaders.get(topic))));
+      }
+      if (followers.containsKey(topic)) {
+        ops.add(set(FOLLOWER_THROTTLED_REPLICAS, String.join(",", followers.get(topic))));
+      }
+      throttles.put(new ConfigResource(ConfigResource.Type.TOPIC, topic), ops);
+    }
+    return throttles;
+  }
+
+  private static AlterConfigOp set(String name, String value) {
+    return new AlterConfigOp(new ConfigEntry(name, value), AlterConfigOp.OpType.SET);
+  }
+
+  /**
+   * Reads the current values of the configs the throttles set, with a single describeConfigs
+   * request, and builds the ops reverting them: configs set on the broker or topic itself are
+   * set back to their value, the others are deleted so that their default applies again.
+   */
+  private Map<ConfigResource, Collection<AlterConfigOp>> restoreOps(
+      Map<ConfigResource, Collection<AlterConfigOp>> throttles
+  ) throws Exception {
+    Map<ConfigResource, Config> configs = metrics.record(
+        UtilityBeltMetrics.DESCRIBE_CONFIGS,
+        adminClient.describeConfigs(
+            throttles.keySet(), new DescribeConfigsOptions().timeoutMs(requestTimeoutMs)
+        ).all()
+    ).get();
+    Map<ConfigResource, Collection<AlterConfigOp>> restores = new LinkedHashMap<>();
+    for (Map.Entry<ConfigResource, Collection<AlterConfigOp>> entry : throttles.entrySet()) {
+      Config config = configs.get(entry.getKey());
+      List<AlterConfigOp> ops = new ArrayList<>();
+      for (AlterConfigOp op : entry.getValue()) {
+        String name = op.configEntry().name();
+        ConfigEntry previous = config == null ? null : config.get(name);
+        ops.add(isOverride(previous)
+            ? set(name, previous.value())
+            : new AlterConfigOp(new ConfigEntry(name, null), AlterConfigOp.OpType.DELETE));
+      }
+      restores.put(entry.getKey(), ops);
+    }
+    return restores;
+  }
+
+  /**
+   * @return whether the entry was set on the broker or topic itself. Entries of an unknown
+   *     source, as returned by brokers that do not report sources, are only listed when set.
+   */
+  private static boolean isOverride(ConfigEntry entry) {
+    if (entry == null || entry.value() == null) {
+      return false;
+    }
+    switch (entry.source()) {
+      case DYNAMIC_BROKER_CONFIG:
+      case DYNAMIC_TOPIC_CONFIG:
+      case UNKNOWN:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private void alterConfigs(Map<ConfigResource, Collection<AlterConfigOp>> ops)
+      throws Exception {
+    metrics.record(
+        UtilityBeltMetrics.INCREMENTAL_ALTER_CONFIGS,
+        adminClient.incrementalAlterConfigs(
+            ops, new AlterConfigsOptions().timeoutMs(requestTimeoutMs)
+        ).all()
+    ).get();
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+/**
+ * Decides how long each attempt of a deadline bound check may take and how long to wait before
+ * the next attempt.
+ */
+public interface RetryPolicy {
+
+  /**
+   * @param attempt number of attempts made so far, starting at 0 for the first attempt.
+   * @param remainingMs time left until the deadline, always positive.
+   * @return timeout in ms of the next attempt.
+   */
+  int attemptTimeoutMs(int attempt, long remainingMs);
+
+  /**
+   * @param attempt number of failed attempts so far, starting at 1 after the first attempt.
+   * @param remainingMs time left until the deadline, may be zero.
+   * @return time in ms to wait before the next attempt.
+   */
+  long backoffMs(int attempt, long remainingMs);
+
+  /**
+   * @return true once the checks using this policy should stop early, e.g. because their result
+   *     is no longer needed. A {@link RetryingCheck} then completes with false instead of making
+   *     another attempt.
+   */
+  default boolean cancelled() {
+    return false;
+  }
+}
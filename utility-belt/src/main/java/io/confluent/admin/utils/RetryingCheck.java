@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeats an asynchronous check until it reports success or a deadline expires, waiting between
+ * attempts as decided by a {@link RetryPolicy}. Attempts that fail with an exception are logged
+ * and retried like attempts that report not ready. No thread is blocked while waiting. Once the
+ * policy is {@link RetryPolicy#cancelled()}, no further attempt is made and the check completes
+ * with false.
+ */
+public final class RetryingCheck {
+
+  private static final Logger log = LogManager.getLogger(RetryingCheck.class);
+
+  /**
+   * A single attempt of a check.
+   */
+  public interface Attempt {
+    /**
+     * @param attemptTimeoutMs time in ms the attempt may take.
+     * @return a stage completed with true if the check passed and false otherwise.
+     */
+    CompletionStage<Boolean> run(int attemptTimeoutMs);
+  }
+
+  private final String description;
+  private final int timeoutMs;
+  private final RetryPolicy retryPolicy;
+  private final Attempt attempt;
+  private final Runnable onTimeout;
+  private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+  private long begin;
+
+  private RetryingCheck(
+      String description,
+      int timeoutMs,
+      RetryPolicy retryPolicy,
+      Attempt attempt,
+      Runnable onTimeout
+  ) {
+    this.description = description;
+    this.timeoutMs = timeoutMs;
+    this.retryPolicy = retryPolicy;
+    this.attempt = attempt;
+    this.onTimeout = onTimeout;
+  }
+
+  /**
+   * Starts the check.
+   *
+   * @param description what is checked, used in log messages.
+   * @param timeoutMs time in ms after which the check gives up.
+   * @param retryPolicy decides the timeout of each attempt and the backoff between attempts.
+   * @param attempt a single attempt of the check.
+   * @param onTimeout called once when the check gives up, to report the last known state.
+   * @return a stage completed with true once an attempt passes, or false after timeoutMs or
+   *     once the retry policy is cancelled.
+   */
+  public static CompletionStage<Boolean> run(
+      String description,
+      int timeoutMs,
+      RetryPolicy retryPolicy,
+      Attempt attempt,
+      Runnable onTimeout
+  ) {
+    RetryingCheck check = new RetryingCheck(
+        description, timeoutMs, retryPolicy, attempt, onTimeout
+    );
+    check.begin = System.currentTimeMillis();
+    check.attempt(0);
+    return check.result;
+  }
+
+  private long remainingWaitMs() {
+    return timeoutMs - (System.currentTimeMillis() - begin);
+  }
+
+  private void attempt(int attemptNumber) {
+    if (retryPolicy.cancelled()) {
+      log.info("Stopped checking {}.", description);
+      result.complete(false);
+      return;
+    }
+    long remainingWaitMs = remainingWaitMs();
+    if (remainingWaitMs <= 0) {
+      UtilityBeltMetrics.get().recordTimeout(description);
+      onTimeout.run();
+      result.complete(false);
+      return;
+    }
+
+    UtilityBeltMetrics.get().recordAttempt(description);
+    CompletionStage<Boolean> stage;
+    try {
+      stage = attempt.run(retryPolicy.attemptTimeoutMs(attemptNumber, remainingWaitMs));
+    } catch (Exception e) {
+      stage = CompletableFuture.failedFuture(e);
+    }
+    stage.whenComplete((passed, error) -> {
+      if (error == null && passed) {
+        UtilityBeltMetrics.get().recordReady(description, System.currentTimeMillis() - begin);
+        result.complete(true);
+        return;
+      }
+      if (retryPolicy.cancelled()) {
+        // Errors are expected once cancelled, e.g. because the client was closed.
+        log.info("Stopped checking {}.", description);
+        result.complete(false);
+        return;
+      }
+      if (error != null) {
+        log.error("Error while checking {}.", description, error);
+        // Swallow exceptions because we want to retry until timeoutMs expires.
+      }
+
+      long backoffMs = retryPolicy.backoffMs(attemptNumber + 1, Math.max(0, remainingWaitMs()));
+      log.info("Checking {} again in {} ms ...", description, backoffMs);
+      CompletableFuture.delayedExecutor(backoffMs, TimeUnit.MILLISECONDS).execute(
+          () -> attempt(attemptNumber + 1)
+      );
+    });
+  }
+}
@@ -17,60 +17,544 @@
 package io.confluent.kafkaensure;
 
 import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AlterConfigOp;
+import org.apache.kafka.clients.admin.AlterConfigsOptions;
 import org.apache.kafka.clients.admin.Config;
 import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.CreatePartitionsOptions;
 import org.apache.kafka.clients.admin.CreateTopicsOptions;
 import org.apache.kafka.clients.admin.CreateTopicsResult;
+import org.apache.kafka.clients.admin.DescribeClusterOptions;
 import org.apache.kafka.clients.admin.DescribeConfigsResult;
 import org.apache.kafka.clients.admin.DescribeTopicsOptions;
 import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.NewPartitions;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
 import org.apache.kafka.common.config.ConfigResource;
 import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
 
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
-public class TopicEnsure {
+import io.confluent.admin.utils.UtilityBeltMetrics;
+
+public class TopicEnsure implements AutoCloseable {
+
+  /**
+   * Default number of topics sent in a single describe/create round trip by
+   * {@link #ensureTopics(List, boolean, int, int)}.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 500;
 
   private final AdminClient adminClient;
+  private final PrintStream out;
+  private final boolean ownsClient;
+  private final UtilityBeltMetrics metrics = UtilityBeltMetrics.get();
+  private long replicationThrottle = ReplicaReassigner.DEFAULT_THROTTLE_BYTES_PER_SEC;
+  private int reassignmentTimeout = ReplicaReassigner.DEFAULT_TIMEOUT_MS;
+  private boolean balancedPlacement = false;
+  private CompletionStage<ReplicaPlacement> placement;
 
+  /**
+   * @param props client config of the client created for all requests, closed by
+   *     {@link #close()}.
+   */
   public TopicEnsure(Properties props) {
-    this.adminClient = AdminClient.create(props);
+    this(AdminClient.create(props), System.err, true);
+  }
+
+  public TopicEnsure(AdminClient adminClient) {
+    this(adminClient, System.err);
+  }
+
+  /**
+   * @param adminClient client used for all requests; it is not closed by this class.
+   * @param out stream validation failures are reported to.
+   */
+  public TopicEnsure(AdminClient adminClient, PrintStream out) {
+    this(adminClient, out, false);
+  }
+
+  private TopicEnsure(AdminClient adminClient, PrintStream out, boolean ownsClient) {
+    this.adminClient = adminClient;
+    this.out = out;
+    this.ownsClient = ownsClient;
+  }
+
+  /**
+   * Closes the client if it was created by this class; a client given to it is left open.
+   */
+  @Override
+  public void close() {
+    if (ownsClient) {
+      adminClient.close();
+    }
+  }
+
+  /**
+   * @param bytesPerSec replication rate allowed per broker while the replication factor of
+   *     topics is raised by {@link #ensureTopics(Iterator, boolean, boolean, int, int, Consumer)}.
+   */
+  public void setReplicationThrottle(long bytesPerSec) {
+    this.replicationThrottle = bytesPerSec;
+  }
+
+  /**
+   * @param timeOut time in ms the reassignment raising the replication factor of the topics of
+   *     a chunk may take before it is cancelled.
+   */
+  public void setReassignmentTimeout(int timeOut) {
+    this.reassignmentTimeout = timeOut;
+  }
+
+  /**
+   * @param balancedPlacement whether new topics are created with replicas assigned by a
+   *     {@link ReplicaPlacement} rather than placed by the controller.
+   */
+  public void setBalancedPlacement(boolean balancedPlacement) {
+    this.balancedPlacement = balancedPlacement;
+  }
+
+  /**
+   * Prints the leader distribution of the given topics and, if requested, runs preferred leader
+   * elections for the partitions not led by their preferred replica.
+   *
+   * @param topics names of the topics.
+   * @param elect whether to run preferred leader elections.
+   * @param timeOut timeout in ms for each admin request.
+   * @param batchSize maximum number of topics or partitions per admin request.
+   * @return the leader distribution after the elections.
+   */
+  public LeaderBalancer.LeaderSkew balanceLeaders(
+      Collection<String> topics, boolean elect, int timeOut, int batchSize
+  ) throws Exception {
+    return new LeaderBalancer(adminClient, out, timeOut).balance(topics, elect, batchSize);
+  }
+
+  /**
+   * @return the id of the cluster, fetched with a single describeCluster request.
+   */
+  public String clusterId(int timeOut) throws Exception {
+    return metrics.record(
+        UtilityBeltMetrics.DESCRIBE_CLUSTER,
+        adminClient.describeCluster(new DescribeClusterOptions().timeoutMs(timeOut)).clusterId()
+    ).get();
   }
 
   public boolean createTopic(TopicSpec spec, int timeOut) throws Exception {
-    NewTopic newTopic = new NewTopic(
-        spec.name(), spec.partitions(), (short) spec.replicationFactor()
-    );
-    newTopic.configs(spec.config());
+    return createTopicAsync(spec, timeOut).toCompletableFuture().get();
+  }
+
+  public boolean validateTopic(TopicSpec spec, int timeOut) throws Exception {
+    return validateTopicAsync(spec, timeOut).toCompletableFuture().get();
+  }
+
+  public boolean topicExists(TopicSpec spec, Integer timeOut) throws Exception {
+    return topicExistsAsync(spec, timeOut).toCompletableFuture().get();
+  }
+
+  /**
+   * Non-blocking variant of {@link #createTopic(TopicSpec, int)}.
+   *
+   * @return a stage completed with true once the topic is created, or completed exceptionally
+   *     with the admin client error.
+   */
+  public CompletionStage<Boolean> createTopicAsync(TopicSpec spec, int timeOut) {
+    if (balancedPlacement) {
+      return placement(timeOut, DEFAULT_BATCH_SIZE)
+          .thenCompose(placement -> createTopicAsync(newTopic(spec, placement), timeOut));
+    }
+    return createTopicAsync(newTopic(spec, null), timeOut);
+  }
+
+  private CompletionStage<Boolean> createTopicAsync(NewTopic newTopic, int timeOut) {
     CreateTopicsResult result = adminClient.createTopics(
         Collections.singletonList(newTopic), new CreateTopicsOptions().timeoutMs(timeOut)
     );
-    result.all().get();
-    return true;
+    return metrics.record(UtilityBeltMetrics.CREATE_TOPICS, result.all())
+        .toCompletionStage().thenApply(ignored -> true);
   }
 
-  public boolean validateTopic(TopicSpec spec, int timeOut) throws Exception {
+  /**
+   * Loads the {@link ReplicaPlacement} of the cluster on first use and keeps it, so that all
+   * topics created afterwards are balanced against each other without describing every topic of
+   * the cluster again. A failed load is retried by the next call.
+   */
+  private synchronized CompletionStage<ReplicaPlacement> placement(int timeOut, int batchSize) {
+    if (placement == null || placement.toCompletableFuture().isCompletedExceptionally()) {
+      placement = ReplicaPlacement.load(adminClient, timeOut, batchSize);
+    }
+    return placement;
+  }
+
+  /**
+   * @param placement assigns the replicas of the topic, or null to leave them to the
+   *     controller.
+   */
+  private static NewTopic newTopic(TopicSpec spec, ReplicaPlacement placement) {
+    NewTopic newTopic = placement == null
+        ? new NewTopic(spec.name(), spec.requiredPartitions(), (short) spec.replicationFactor())
+        : new NewTopic(
+            spec.name(), placement.assign(spec.requiredPartitions(), spec.replicationFactor())
+        );
+    newTopic.configs(spec.config());
+    return newTopic;
+  }
+
+  /**
+   * Non-blocking variant of {@link #validateTopic(TopicSpec, int)}. The topic description and
+   * its config are requested concurrently.
+   *
+   * @return a stage completed with true if the topic matches the spec, or completed
+   *     exceptionally if the topic does not exist.
+   */
+  public CompletionStage<Boolean> validateTopicAsync(TopicSpec spec, int timeOut) {
     // Describe topic.
     DescribeTopicsResult topicDescribeResult = adminClient.describeTopics(
         Collections.singletonList(spec.name()), new DescribeTopicsOptions().timeoutMs(timeOut)
     );
-    TopicDescription topic = topicDescribeResult.allTopicNames().get().get(spec.name());
 
     // Get topic config.
     ConfigResource configResource = new ConfigResource(ConfigResource.Type.TOPIC, spec.name());
     DescribeConfigsResult configResult = adminClient.describeConfigs(
         Collections.singletonList(configResource)
     );
-    Map<ConfigResource, Config> resultMap = configResult.all().get();
-    Config config = resultMap.get(configResource);
 
-    // Create actual TopicSpec.
+    KafkaFuture<Map<String, TopicDescription>> topics = metrics.record(
+        UtilityBeltMetrics.DESCRIBE_TOPICS, topicDescribeResult.allTopicNames()
+    );
+    KafkaFuture<Map<ConfigResource, Config>> configs = metrics.record(
+        UtilityBeltMetrics.DESCRIBE_CONFIGS, configResult.all()
+    );
+
+    return topics.toCompletionStage().thenCombine(
+        configs.toCompletionStage(),
+        (topicDescriptions, topicConfigs) -> isTopicValid(spec, actualSpec(
+            spec, topicDescriptions.get(spec.name()), topicConfigs.get(configResource)
+        ))
+    );
+  }
+
+  /**
+   * Non-blocking variant of {@link #topicExists(TopicSpec, Integer)}.
+   *
+   * @return a stage completed with true if the topic exists and false if it does not.
+   */
+  public CompletionStage<Boolean> topicExistsAsync(TopicSpec spec, Integer timeOut) {
+    DescribeTopicsResult topicDescribeResult = adminClient.describeTopics(
+        Collections.singletonList(spec.name()), new DescribeTopicsOptions().timeoutMs(timeOut)
+    );
+    KafkaFuture<Map<String, TopicDescription>> topics = metrics.record(
+        UtilityBeltMetrics.DESCRIBE_TOPICS, topicDescribeResult.allTopicNames()
+    );
+    return topics.toCompletionStage().handle((topicDescriptions, error) -> {
+      if (error == null) {
+        return true;
+      }
+      Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+      if (cause instanceof UnknownTopicOrPartitionException) {
+        return false;
+      }
+      throw new CompletionException(cause);
+    });
+  }
+
+  /**
+   * Ensures a list of topics in bulk. Instead of one describe, one describe-configs and one
+   * create call per topic, each chunk of at most {@code batchSize} specs is handled with a
+   * single call of each kind.
+   *
+   * <p>The results mirror what calling {@link #topicExists}, {@link #validateTopic} and
+   * {@link #createTopic} for each spec in order would produce: processing stops after the first
+   * invalid topic and no topics following it are created.
+   *
+   * @param specs topics to ensure, in order.
+   * @param createIfNotExists whether missing topics should be created.
+   * @param timeOut timeout in ms for each admin request.
+   * @param batchSize maximum number of topics per admin request.
+   * @return one result per processed spec, in order.
+   */
+  public List<TopicResult> ensureTopics(
+      List<TopicSpec> specs, boolean createIfNotExists, int timeOut, int batchSize
+  ) throws Exception {
+    List<TopicResult> results = new ArrayList<>(specs.size());
+    ensureTopics(specs.iterator(), createIfNotExists, false, timeOut, batchSize, results::add);
+    return results;
+  }
+
+  /**
+   * Streaming variant of {@link #ensureTopics(List, boolean, int, int)}. Specs are pulled from
+   * the iterator one chunk at a time and results are handed to {@code onResult} as each chunk
+   * completes, so at most {@code batchSize} specs are held at once and the first admin requests
+   * are sent before the remaining specs are read.
+   *
+   * <p>With {@code reconcile}, existing topics whose partitions and replication factor match the
+   * spec but whose configs differ are not reported as invalid. Instead, the configs of the spec
+   * are set with a single incrementalAlterConfigs request per chunk, and the changes are listed
+   * in {@link TopicResult#changes()}. Configs not named in the spec are left untouched.
+   * Existing topics with fewer replicas than the spec have their partitions reassigned to
+   * additional brokers with a {@link ReplicaReassigner}, throttled to
+   * {@link #setReplicationThrottle(long)}; a replication factor is never lowered.
+   *
+   * <p>With {@link #setBalancedPlacement(boolean)}, the missing topics are created with replicas
+   * assigned by a {@link ReplicaPlacement} of the current cluster. It is loaded once per call,
+   * when the first chunk with missing topics is reached, describing the topics of the cluster in
+   * batches of {@code batchSize}.
+   *
+   * @param specs topics to ensure, in order, e.g. a {@link TopicSpecReader}.
+   * @param createIfNotExists whether missing topics should be created.
+   * @param reconcile whether drifted configs of existing topics should be altered.
+   * @param timeOut timeout in ms for each admin request.
+   * @param batchSize maximum number of topics per admin request.
+   * @param onResult called with the result of each processed spec, in order.
+   * @return false if processing stopped at an invalid topic, true otherwise.
+   */
+  public boolean ensureTopics(
+      Iterator<TopicSpec> specs,
+      boolean createIfNotExists,
+      boolean reconcile,
+      int timeOut,
+      int batchSize,
+      Consumer<TopicResult> onResult
+  ) throws Exception {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batchSize must be positive but was " + batchSize);
+    }
+    synchronized (this) {
+      placement = null;
+    }
+    List<TopicSpec> chunk = new ArrayList<>();
+    while (specs.hasNext()) {
+      chunk.add(specs.next());
+      if (chunk.size() == batchSize || !specs.hasNext()) {
+        if (!ensureChunk(chunk, createIfNotExists, reconcile, timeOut, batchSize, onResult)) {
+          return false;
+        }
+        chunk.clear();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Ensures one chunk of topics, handing the results to {@code onResult} once all requests of
+   * the chunk succeeded.
+   *
+   * @return false if an invalid topic was found and processing should stop.
+   */
+  private boolean ensureChunk(
+      List<TopicSpec> chunk,
+      boolean createIfNotExists,
+      boolean reconcile,
+      int timeOut,
+      int batchSize,
+      Consumer<TopicResult> onResult
+  ) throws Exception {
+    Set<String> names = new LinkedHashSet<>();
+    for (TopicSpec spec : chunk) {
+      names.add(spec.name());
+    }
+
+    // Describe all topics of the chunk at once.
+    Map<String, KafkaFuture<TopicDescription>> describeFutures = adminClient.describeTopics(
+        names, new DescribeTopicsOptions().timeoutMs(timeOut)
+    ).topicNameValues();
+    metrics.record(UtilityBeltMetrics.DESCRIBE_TOPICS, allOf(describeFutures.values()));
+    Map<String, TopicDescription> descriptions = new HashMap<>();
+    List<ConfigResource> configResources = new ArrayList<>();
+    for (String name : names) {
+      try {
+        descriptions.put(name, describeFutures.get(name).get());
+        configResources.add(new ConfigResource(ConfigResource.Type.TOPIC, name));
+      } catch (ExecutionException e) {
+        if (!(e.getCause() instanceof UnknownTopicOrPartitionException)) {
+          throw e;
+        }
+      }
+    }
+
+    // Get the config of all existing topics at once.
+    Map<ConfigResource, Config> configs = configResources.isEmpty()
+        ? Collections.emptyMap()
+        : metrics.record(
+            UtilityBeltMetrics.DESCRIBE_CONFIGS,
+            adminClient.describeConfigs(configResources).all()
+        ).get();
+
+    boolean valid = true;
+    List<TopicResult> results = new ArrayList<>(chunk.size());
+    List<TopicSpec> newTopics = new ArrayList<>();
+    Map<ConfigResource, Collection<AlterConfigOp>> alterOps = new HashMap<>();
+    Map<String, NewPartitions> newPartitions = new HashMap<>();
+    Map<TopicDescription, Integer> replicationFactors = new LinkedHashMap<>();
+    for (TopicSpec spec : chunk) {
+      TopicDescription topic = descriptions.get(spec.name());
+      if (topic != null) {
+        ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, spec.name());
+        TopicSpec actualSpec = actualSpec(spec, topic, configs.get(resource));
+
+        // Under-provisioned topics are grown to the partitions their target throughput needs and,
+        // when reconciling, topics with too few replicas get their replication factor raised,
+        // unless they turn out to be invalid for another reason. They are validated as they will
+        // be once grown, but reported as they are.
+        boolean growPartitions = spec.sizedByThroughput()
+            && actualSpec.partitions() < spec.requiredPartitions();
+        boolean raiseReplicationFactor = reconcile
+            && actualSpec.replicationFactor() < spec.replicationFactor()
+            && (growPartitions || partitionsMatch(spec, actualSpec));
+        TopicSpec grownSpec = new TopicSpec(
+            actualSpec.name(),
+            growPartitions ? spec.requiredPartitions() : actualSpec.partitions(),
+            raiseReplicationFactor ? spec.replicationFactor() : actualSpec.replicationFactor(),
+            actualSpec.config()
+        );
+
+        List<ConfigChange> changes = reconcile
+            ? configChanges(spec, grownSpec)
+            : Collections.emptyList();
+        if (!changes.isEmpty()) {
+          List<AlterConfigOp> ops = new ArrayList<>(changes.size());
+          for (ConfigChange change : changes) {
+            ops.add(new AlterConfigOp(
+                new ConfigEntry(change.name(), change.newValue()), AlterConfigOp.OpType.SET
+            ));
+          }
+          alterOps.put(resource, ops);
+        } else {
+          valid = isTopicValid(spec, grownSpec, actualSpec);
+        }
+        if (!valid) {
+          results.add(new TopicResult(spec, true, false, false));
+          break;
+        }
+        if (raiseReplicationFactor) {
+          replicationFactors.put(topic, spec.replicationFactor());
+        }
+        if (growPartitions) {
+          newPartitions.put(spec.name(), NewPartitions.increaseTo(spec.requiredPartitions()));
+        }
+        results.add(new TopicResult(
+            spec,
+            true,
+            true,
+            false,
+            changes,
+            growPartitions ? actualSpec.partitions() : 0,
+            raiseReplicationFactor ? actualSpec.replicationFactor() : 0
+        ));
+      } else if (createIfNotExists) {
+        newTopics.add(spec);
+        results.add(new TopicResult(spec, false, false, true));
+      } else {
+        results.add(new TopicResult(spec, false, false, false));
+      }
+    }
+
+    // Raise the replication factor of all topics preceding the first invalid one at once, before
+    // any partitions are added so that new partitions get the raised replication factor too.
+    if (!replicationFactors.isEmpty()) {
+      Collection<Node> brokers = metrics.record(
+          UtilityBeltMetrics.DESCRIBE_CLUSTER,
+          adminClient.describeCluster(new DescribeClusterOptions().timeoutMs(timeOut)).nodes()
+      ).get();
+      new ReplicaReassigner(
+          adminClient, out, replicationThrottle, reassignmentTimeout, timeOut
+      ).increaseReplicationFactor(replicationFactors, brokers);
+    }
+
+    // Grow the partitions of all topics preceding the first invalid one at once.
+    if (!newPartitions.isEmpty()) {
+      metrics.record(
+          UtilityBeltMetrics.CREATE_PARTITIONS,
+          adminClient.createPartitions(
+              newPartitions, new CreatePartitionsOptions().timeoutMs(timeOut)
+          ).all()
+      ).get();
+    }
+
+    // Alter the drifted configs of all topics preceding the first invalid one at once.
+    if (!alterOps.isEmpty()) {
+      metrics.record(
+          UtilityBeltMetrics.INCREMENTAL_ALTER_CONFIGS,
+          adminClient.incrementalAlterConfigs(
+              alterOps, new AlterConfigsOptions().timeoutMs(timeOut)
+          ).all()
+      ).get();
+    }
+
+    // Create all missing topics preceding the first invalid one at once, balanced against each
+    // other, the topics created by earlier chunks and the existing topics if requested.
+    if (!newTopics.isEmpty()) {
+      ReplicaPlacement replicaPlacement = balancedPlacement
+          ? placement(timeOut, batchSize).toCompletableFuture().get()
+          : null;
+      List<NewTopic> requests = new ArrayList<>(newTopics.size());
+      for (TopicSpec spec : newTopics) {
+        requests.add(newTopic(spec, replicaPlacement));
+      }
+      Map<String, KafkaFuture<Void>> createFutures = adminClient.createTopics(
+          requests, new CreateTopicsOptions().timeoutMs(timeOut)
+      ).values();
+      metrics.record(UtilityBeltMetrics.CREATE_TOPICS, allOf(createFutures.values()));
+      for (NewTopic newTopic : requests) {
+        createFutures.get(newTopic.name()).get();
+      }
+    }
+    results.forEach(onResult);
+    return valid;
+  }
+
+  private static KafkaFuture<Void> allOf(Collection<? extends KafkaFuture<?>> futures) {
+    return KafkaFuture.allOf(futures.toArray(new KafkaFuture<?>[0]));
+  }
+
+  private boolean isTopicValid(TopicSpec spec, TopicSpec actualSpec) {
+    return isTopicValid(spec, actualSpec, actualSpec);
+  }
+
+  /**
+   * @param grownSpec spec the topic will have once its partitions and replicas are grown, which
+   *     is validated.
+   * @param actualSpec spec the topic currently has, which is reported if it is invalid.
+   */
+  private boolean isTopicValid(TopicSpec spec, TopicSpec grownSpec, TopicSpec actualSpec) {
+    boolean isTopicValid = partitionsMatch(spec, grownSpec)
+        && spec.replicationFactor() == grownSpec.replicationFactor()
+        && Objects.equals(spec.config(), grownSpec.config());
+    if (!isTopicValid) {
+      out.printf(
+          "Invalid topic [ %s ] ! Expected %s but got %s\n", spec.name(), spec, actualSpec
+      );
+    }
+    return isTopicValid;
+  }
+
+  /**
+   * Builds the spec of an existing topic, restricted to the config keys of the expected spec so
+   * that it can be compared with it. The replication factor is the smallest number of replicas
+   * of any partition, so that a partially raised topic is not taken for a complete one.
+   */
+  static TopicSpec actualSpec(TopicSpec spec, TopicDescription topic, Config config) {
     Map<String, String> actualConfig = new HashMap<>();
     for (Map.Entry<String, String> entry : spec.config().entrySet()) {
       ConfigEntry actualConfigEntry = config.get(entry.getKey());
@@ -79,34 +563,201 @@ public class TopicEnsure {
       }
     }
 
-    TopicSpec actualSpec = new TopicSpec(
-        topic.name(), topic.partitions().size(),
-        topic.partitions().get(0).replicas().size(), actualConfig
-    );
+    int replicationFactor = Integer.MAX_VALUE;
+    for (TopicPartitionInfo partition : topic.partitions()) {
+      replicationFactor = Math.min(replicationFactor, partition.replicas().size());
+    }
+    return new TopicSpec(topic.name(), topic.partitions().size(), replicationFactor, actualConfig);
+  }
 
-    boolean isTopicValid = actualSpec.equals(spec);
-    if (!isTopicValid) {
-      System.err.printf(
-          "Invalid topic [ %s ] ! Expected %s but got %s\n", spec.name(), spec, actualSpec
-      );
+  /**
+   * A topic sized by throughput may have more partitions than it needs, since partitions cannot
+   * be removed. Otherwise the number of partitions must match exactly.
+   */
+  static boolean partitionsMatch(TopicSpec spec, TopicSpec actualSpec) {
+    if (spec.sizedByThroughput()) {
+      return actualSpec.partitions() >= spec.requiredPartitions();
     }
+    return actualSpec.partitions() == spec.partitions();
+  }
 
-    return isTopicValid;
+  /**
+   * Lists the configs of the spec that the actual spec of the topic lacks or has a different
+   * value for. Returns no changes if the partitions or the replication factor differ, since
+   * altering configs cannot make such a topic valid.
+   */
+  static List<ConfigChange> configChanges(TopicSpec spec, TopicSpec actualSpec) {
+    if (!partitionsMatch(spec, actualSpec)
+        || spec.replicationFactor() != actualSpec.replicationFactor()) {
+      return Collections.emptyList();
+    }
+    List<ConfigChange> changes = new ArrayList<>();
+    for (Map.Entry<String, String> entry : new TreeMap<>(spec.config()).entrySet()) {
+      String actualValue = actualSpec.config().get(entry.getKey());
+      if (!Objects.equals(entry.getValue(), actualValue)) {
+        changes.add(new ConfigChange(entry.getKey(), actualValue, entry.getValue()));
+      }
+    }
+    return changes;
   }
 
-  public boolean topicExists(TopicSpec spec, Integer timeOut) throws Exception {
-    try {
-      DescribeTopicsResult topicDescribeResult = adminClient.describeTopics(
-          Collections.singletonList(spec.name()), new DescribeTopicsOptions().timeoutMs(timeOut)
-      );
-      topicDescribeResult.allTopicNames().get().get(spec.name());
-    } catch (ExecutionException e) {
-      if (e.getCause() instanceof UnknownTopicOrPartitionException) {
+  /**
+   * A config of a topic altered to match its spec.
+   */
+  public static class ConfigChange {
+    private final String name;
+    private final String oldValue;
+    private final String newValue;
+
+    public ConfigChange(String name, String oldValue, String newValue) {
+      this.name = name;
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    /**
+     * @return the value before the change, or null if the config was not set.
+     */
+    public String oldValue() {
+      return oldValue;
+    }
+
+    public String newValue() {
+      return newValue;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
         return false;
-      } else {
-        throw e;
       }
+      ConfigChange that = (ConfigChange) o;
+      return Objects.equals(name, that.name)
+          && Objects.equals(oldValue, that.oldValue)
+          && Objects.equals(newValue, that.newValue);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(name, oldValue, newValue);
+    }
+
+    @Override
+    public String toString() {
+      return name + ": " + oldValue + " -> " + newValue;
+    }
+  }
+
+  /**
+   * Outcome of ensuring a single topic with {@link #ensureTopics(List, boolean, int, int)}.
+   */
+  public static class TopicResult {
+    private final TopicSpec spec;
+    private final boolean exists;
+    private final boolean valid;
+    private final boolean created;
+    private final List<ConfigChange> changes;
+    private final int previousPartitions;
+    private final int previousReplicationFactor;
+
+    public TopicResult(TopicSpec spec, boolean exists, boolean valid, boolean created) {
+      this(spec, exists, valid, created, Collections.emptyList(), 0, 0);
+    }
+
+    /**
+     * @param changes configs altered to reconcile the topic with its spec.
+     * @param previousPartitions partitions of the topic before they were increased to meet the
+     *     target throughput of the spec, or 0 if they were not increased.
+     * @param previousReplicationFactor replication factor of the topic before it was raised to
+     *     the spec, or 0 if it was not raised.
+     */
+    public TopicResult(
+        TopicSpec spec,
+        boolean exists,
+        boolean valid,
+        boolean created,
+        List<ConfigChange> changes,
+        int previousPartitions,
+        int previousReplicationFactor
+    ) {
+      this.spec = spec;
+      this.exists = exists;
+      this.valid = valid;
+      this.created = created;
+      this.changes = changes;
+      this.previousPartitions = previousPartitions;
+      this.previousReplicationFactor = previousReplicationFactor;
+    }
+
+    public TopicSpec spec() {
+      return spec;
+    }
+
+    public boolean exists() {
+      return exists;
+    }
+
+    public boolean valid() {
+      return valid;
+    }
+
+    public boolean created() {
+      return created;
+    }
+
+    /**
+     * @return the configs altered to reconcile the topic with its spec, empty if none.
+     */
+    public List<ConfigChange> changes() {
+      return changes;
+    }
+
+    /**
+     * @return true if partitions were added to meet the target throughput of the spec.
+     */
+    public boolean partitionsIncreased() {
+      return previousPartitions > 0;
+    }
+
+    /**
+     * @return the partitions of the topic before they were increased, or 0 if they were not.
+     */
+    public int previousPartitions() {
+      return previousPartitions;
+    }
+
+    /**
+     * @return true if the replication factor was raised to the one of the spec.
+     */
+    public boolean replicationFactorIncreased() {
+      return previousReplicationFactor > 0;
+    }
+
+    /**
+     * @return the replication factor before it was raised, or 0 if it was not.
+     */
+    public int previousReplicationFactor() {
+      return previousReplicationFactor;
+    }
+
+    @Override
+    public String toString() {
+      return "TopicResult={"
+          + "name='" + spec.name() + '\''
+          + ", exists=" + exists
+          + ", valid=" + valid
+          + ", created=" + created
+          + ", changes=" + changes
+          + ", previousPartitions=" + previousPartitions
+          + ", previousReplicationFactor=" + previousReplicationFactor
+          + '}';
     }
-    return true;
   }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.common.utils.Time;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Remembers the last successful topic-ensure run in a local file, so that a rerun over the same
+ * spec against the same cluster can skip describing every topic.
+ *
+ * <p>An entry holds a SHA-256 digest of the inputs of the run (the spec file, the client config
+ * and the options that change the outcome), the id of the cluster and the time of the run. An
+ * entry only matches a run with the same digest within the TTL. Topics changed on the cluster
+ * by other means are not noticed until the entry expires, so the TTL bounds how stale a skipped
+ * validation can be.
+ */
+public class TopicEnsureCache {
+
+  public static final long DEFAULT_TTL_MS = 60 * 60 * 1000L;
+
+  private static final String DIGEST = "digest";
+  private static final String CLUSTER_ID = "cluster.id";
+  private static final String TIMESTAMP = "timestamp";
+
+  private final Path file;
+  private final Time time;
+
+  public TopicEnsureCache(Path file) {
+    this(file, Time.SYSTEM);
+  }
+
+  TopicEnsureCache(Path file, Time time) {
+    this.file = file;
+    this.time = time;
+  }
+
+  /**
+   * Digests the contents of the given files and the given options.
+   *
+   * @param files files to digest; missing files are digested as empty.
+   * @param options options that change the outcome of the run.
+   * @return the digest as a hex string.
+   */
+  public static String digest(Collection<Path> files, String... options) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    byte[] buffer = new byte[8192];
+    for (Path path : files) {
+      digest.update(path.toString().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      if (Files.exists(path)) {
+        try (InputStream in = Files.newInputStream(path)) {
+          int read;
+          while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+          }
+        }
+      }
+      digest.update((byte) 0);
+    }
+    for (String option : options) {
+      digest.update(String.valueOf(option).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * @param digest digest of the current run.
+   * @param ttlMs maximum age of a matching entry.
+   * @return the cluster id of the entry if it matches the digest and is younger than the TTL,
+   *     null otherwise. An unreadable file is treated as no entry.
+   */
+  public String freshClusterId(String digest, long ttlMs) {
+    Properties entry = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      entry.load(in);
+    } catch (IOException | IllegalArgumentException e) {
+      return null;
+    }
+    if (!digest.equals(entry.getProperty(DIGEST))) {
+      return null;
+    }
+    long timestamp;
+    try {
+      timestamp = Long.parseLong(entry.getProperty(TIMESTAMP, ""));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    long age = time.milliseconds() - timestamp;
+    if (age < 0 || age > ttlMs) {
+      return null;
+    }
+    return entry.getProperty(CLUSTER_ID);
+  }
+
+  /**
+   * Records a successful run. The file is replaced atomically, so a concurrent or interrupted
+   * run never leaves a partially written entry behind.
+   */
+  public void store(String digest, String clusterId) throws IOException {
+    Properties entry = new Properties();
+    entry.setProperty(DIGEST, digest);
+    entry.setProperty(CLUSTER_ID, clusterId);
+    entry.setProperty(TIMESTAMP, String.valueOf(time.milliseconds()));
+
+    Path parent = file.toAbsolutePath().getParent();
+    Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(tmp)) {
+        entry.store(out, "topic-ensure state");
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Removes the entry, so that the next run validates all topics.
+   */
+  public void clear() throws IOException {
+    Files.deleteIfExists(file);
+  }
+}
@@ -20,11 +20,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+/**
+ * Expected state of a topic. Besides a fixed number of partitions, a spec may size its partitions
+ * from a target throughput: a topic then needs at least as many partitions as it takes for the
+ * target produce and consume throughput to be spread over partitions that each sustain the given
+ * per partition throughput. All throughputs are in MB/s and optional.
+ */
 public class TopicSpec {
   public String name;
   public int partitions;
   public int replicationFactor;
   public Map<String, String> config;
+  public Double targetProduceMbPerSec;
+  public Double targetConsumeMbPerSec;
+  public Double partitionProduceMbPerSec;
+  public Double partitionConsumeMbPerSec;
 
   public TopicSpec() {
   }
@@ -72,6 +82,72 @@ public class TopicSpec {
     this.config.put(key, value);
   }
 
+  public Double targetProduceMbPerSec() {
+    return targetProduceMbPerSec;
+  }
+
+  public void setTargetProduceMbPerSec(Double targetProduceMbPerSec) {
+    this.targetProduceMbPerSec = targetProduceMbPerSec;
+  }
+
+  public Double targetConsumeMbPerSec() {
+    return targetConsumeMbPerSec;
+  }
+
+  public void setTargetConsumeMbPerSec(Double targetConsumeMbPerSec) {
+    this.targetConsumeMbPerSec = targetConsumeMbPerSec;
+  }
+
+  public Double partitionProduceMbPerSec() {
+    return partitionProduceMbPerSec;
+  }
+
+  public void setPartitionProduceMbPerSec(Double partitionProduceMbPerSec) {
+    this.partitionProduceMbPerSec = partitionProduceMbPerSec;
+  }
+
+  public Double partitionConsumeMbPerSec() {
+    return partitionConsumeMbPerSec;
+  }
+
+  public void setPartitionConsumeMbPerSec(Double partitionConsumeMbPerSec) {
+    this.partitionConsumeMbPerSec = partitionConsumeMbPerSec;
+  }
+
+  /**
+   * @return true if the partitions are sized from a target produce or consume throughput.
+   */
+  public boolean sizedByThroughput() {
+    return targetProduceMbPerSec != null || targetConsumeMbPerSec != null;
+  }
+
+  /**
+   * @return the number of partitions the topic needs: the larger of {@link #partitions()} and
+   *     the partitions needed for the target produce and consume throughput.
+   */
+  public int requiredPartitions() {
+    return Math.max(
+        partitions,
+        Math.max(
+            partitionsFor("produce", targetProduceMbPerSec, partitionProduceMbPerSec),
+            partitionsFor("consume", targetConsumeMbPerSec, partitionConsumeMbPerSec)
+        )
+    );
+  }
+
+  private int partitionsFor(String direction, Double target, Double perPartition) {
+    if (target == null) {
+      return 0;
+    }
+    if (perPartition == null || perPartition <= 0) {
+      throw new IllegalArgumentException(String.format(
+          "Topic %s has a target %s throughput but no positive per partition %s throughput",
+          name, direction, direction
+      ));
+    }
+    return (int) Math.ceil(target / perPartition);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -84,12 +160,19 @@ public class TopicSpec {
     return partitions == topicSpec.partitions
         && replicationFactor == topicSpec.replicationFactor
         && Objects.equals(name, topicSpec.name)
-        && Objects.equals(config, topicSpec.config);
+        && Objects.equals(config, topicSpec.config)
+        && Objects.equals(targetProduceMbPerSec, topicSpec.targetProduceMbPerSec)
+        && Objects.equals(targetConsumeMbPerSec, topicSpec.targetConsumeMbPerSec)
+        && Objects.equals(partitionProduceMbPerSec, topicSpec.partitionProduceMbPerSec)
+        && Objects.equals(partitionConsumeMbPerSec, topicSpec.partitionConsumeMbPerSec);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(name, partitions, replicationFactor, config);
+    return Objects.hash(
+        name, partitions, replicationFactor, config, targetProduceMbPerSec,
+        targetConsumeMbPerSec, partitionProduceMbPerSec, partitionConsumeMbPerSec
+    );
   }
 
   @Override
@@ -99,6 +182,12 @@ public class TopicSpec {
         + ", partitions='" + partitions() + '\''
         + ", replicationFactor=" + replicationFactor()
         + ", config=" + config()
+        + (sizedByThroughput()
+        ? ", targetProduceMbPerSec=" + targetProduceMbPerSec
+        + ", targetConsumeMbPerSec=" + targetConsumeMbPerSec
+        + ", partitionProduceMbPerSec=" + partitionProduceMbPerSec
+        + ", partitionConsumeMbPerSec=" + partitionConsumeMbPerSec
+        : "")
         + '}';
   }
 
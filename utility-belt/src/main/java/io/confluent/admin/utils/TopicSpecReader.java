@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the topics of a spec file one at a time, in the format of {@link TopicSpec.Topics}:
+ *
+ * <pre>
+ * topics:
+ *   - name: topic-a
+ *     partitions: 3
+ *     replicationFactor: 3
+ *     config:
+ *       cleanup.policy: compact
+ * </pre>
+ *
+ * <p>Unlike mapping the whole file to {@link TopicSpec.Topics}, only the topic being read is held
+ * in memory, so very large files can be processed in bounded chunks while they are parsed.
+ * Read errors are thrown as {@link UncheckedIOException}.
+ */
+public class TopicSpecReader implements Iterator<TopicSpec>, Closeable {
+
+  private static final String TOPICS_FIELD = "topics";
+
+  private final JsonParser parser;
+  private final ObjectMapper mapper;
+  private TopicSpec next = null;
+  private boolean done = false;
+
+  /**
+   * Opens a YAML spec file.
+   */
+  public static TopicSpecReader open(File file) throws IOException {
+    ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+    JsonParser parser = mapper.getFactory().createParser(file);
+    try {
+      return new TopicSpecReader(parser, mapper);
+    } catch (IOException | RuntimeException e) {
+      parser.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @param parser parser positioned before the root object of the spec.
+   * @param mapper mapper used to read each topic.
+   */
+  public TopicSpecReader(JsonParser parser, ObjectMapper mapper) throws IOException {
+    this.parser = parser;
+    this.mapper = mapper;
+    seekTopics();
+  }
+
+  /**
+   * Moves the parser to the start of the topics array, or marks the reader as done if the spec
+   * has no topics.
+   */
+  private void seekTopics() throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == null) {
+      done = true;
+      return;
+    }
+    if (token != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected an object with a topics field");
+    }
+    while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      token = parser.nextToken();
+      if (!TOPICS_FIELD.equals(field)) {
+        throw new JsonParseException(parser, "Unrecognized field \"" + field + "\"");
+      }
+      if (token == JsonToken.START_ARRAY) {
+        return;
+      }
+      if (token != JsonToken.VALUE_NULL) {
+        throw new JsonParseException(parser, "Expected a list of topics");
+      }
+    }
+    done = true;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next != null) {
+      return true;
+    }
+    if (done) {
+      return false;
+    }
+    try {
+      JsonToken token = parser.nextToken();
+      if (token == null || token == JsonToken.END_ARRAY) {
+        done = true;
+        return false;
+      }
+      if (token != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "Expected a topic but got " + token);
+      }
+      next = mapper.readValue(parser, TopicSpec.class);
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public TopicSpec next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    TopicSpec spec = next;
+    next = null;
+    return spec;
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+}
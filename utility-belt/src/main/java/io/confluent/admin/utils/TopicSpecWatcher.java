@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.kafkaensure;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Watches a topic spec file and lists the topics added or modified since the last time it was
+ * read.
+ *
+ * <p>The directory of the file is watched rather than the file itself, because a mounted
+ * Kubernetes ConfigMap is updated by swapping a symbolic link in that directory, which does not
+ * modify the file the spec path points to. On every event the file is digested and only parsed
+ * again if its contents changed. Topics removed from the spec are forgotten but never deleted.
+ */
+public class TopicSpecWatcher implements Closeable {
+
+  /**
+   * Time in ms without further events after which a burst of events, e.g. an editor saving the
+   * file in several steps, is considered complete.
+   */
+  static final long QUIET_PERIOD_MS = 200;
+
+  private final Path specFile;
+  private final WatchService watchService;
+  private String digest = null;
+  private Map<String, TopicSpec> topics = Collections.emptyMap();
+
+  public TopicSpecWatcher(Path specFile) throws IOException {
+    this.specFile = specFile;
+    Path directory = specFile.toAbsolutePath().getParent();
+    this.watchService = directory.getFileSystem().newWatchService();
+    directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+  }
+
+  /**
+   * Reads the spec file if its contents changed and compares it with the previous read. The first
+   * call lists all topics of the spec.
+   *
+   * @return the topics that are new or whose spec differs from the previous read, in the order
+   *     of the spec file; empty if the contents did not change.
+   * @throws IOException if the spec file cannot be read or parsed. The previous read is kept, so
+   *     the changes are listed by the next successful call.
+   */
+  public List<TopicSpec> changes() throws IOException {
+    String newDigest = TopicEnsureCache.digest(Collections.singletonList(specFile));
+    if (newDigest.equals(digest)) {
+      return Collections.emptyList();
+    }
+
+    Map<String, TopicSpec> parsed = new LinkedHashMap<>();
+    try (TopicSpecReader reader = TopicSpecReader.open(specFile.toFile())) {
+      reader.forEachRemaining(spec -> parsed.put(spec.name(), spec));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    List<TopicSpec> changed = new ArrayList<>();
+    for (TopicSpec spec : parsed.values()) {
+      if (!spec.equals(topics.get(spec.name()))) {
+        changed.add(spec);
+      }
+    }
+    topics = parsed;
+    digest = newDigest;
+    return changed;
+  }
+
+  /**
+   * Forgets the given topics, so that the next call to {@link #changes()} lists them again even
+   * if the spec file did not change. Used when ensuring them failed.
+   */
+  public void retry(Collection<TopicSpec> specs) {
+    Map<String, TopicSpec> remaining = new LinkedHashMap<>(topics);
+    for (TopicSpec spec : specs) {
+      remaining.remove(spec.name());
+    }
+    topics = remaining;
+    digest = null;
+  }
+
+  /**
+   * Waits for a change in the directory of the spec file, then for the following events to
+   * settle.
+   *
+   * @param timeoutMs maximum time to wait for a first event.
+   * @return true if there was an event, false if the timeout elapsed.
+   * @throws java.nio.file.ClosedWatchServiceException if the watcher is closed while waiting.
+   */
+  public boolean await(long timeoutMs) throws InterruptedException {
+    WatchKey key = watchService.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    if (key == null) {
+      return false;
+    }
+    while (key != null) {
+      key.pollEvents();
+      key.reset();
+      key = watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils;
+
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.metrics.CompoundStat;
+import org.apache.kafka.common.metrics.JmxReporter;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.apache.kafka.common.metrics.KafkaMetricsContext;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.CumulativeCount;
+import org.apache.kafka.common.metrics.stats.CumulativeSum;
+import org.apache.kafka.common.metrics.stats.Max;
+import org.apache.kafka.common.metrics.stats.Percentile;
+import org.apache.kafka.common.metrics.stats.Percentiles;
+import org.apache.kafka.common.metrics.stats.Value;
+import org.apache.kafka.common.utils.Time;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Metrics of the admin requests and readiness checks made by the utility belt, registered with
+ * Kafka's metrics library and exposed through JMX under the {@link #JMX_PREFIX} domain.
+ *
+ * <p>For every admin operation (describe-cluster, describe-topics, create-topics, ...) the
+ * latency average, maximum and percentiles, a cumulative latency histogram with fixed buckets
+ * and the request and error counts are kept. For every
+ * readiness check (brokers, metadata quorum, ...) the attempt and timeout counts and the time the
+ * last successful check took to become ready are kept.
+ *
+ * <p>The metrics can also be rendered in the Prometheus text format, to be written to a file for
+ * the node exporter textfile collector or served over HTTP. The latency histogram is rendered as
+ * a Prometheus histogram, so that quantiles can be aggregated across runs and hosts.
+ */
+public class UtilityBeltMetrics {
+
+  public static final String JMX_PREFIX = "io.confluent.utility-belt";
+  public static final String OPERATION_GROUP = "utility-belt-operations";
+  public static final String CHECK_GROUP = "utility-belt-checks";
+
+  public static final String DESCRIBE_CLUSTER = "describe-cluster";
+  public static final String DESCRIBE_METADATA_QUORUM = "describe-metadata-quorum";
+  public static final String LIST_TOPICS = "list-topics";
+  public static final String DESCRIBE_TOPICS = "describe-topics";
+  public static final String DESCRIBE_CONFIGS = "describe-configs";
+  public static final String CREATE_TOPICS = "create-topics";
+  public static final String CREATE_PARTITIONS = "create-partitions";
+  public static final String INCREMENTAL_ALTER_CONFIGS = "incremental-alter-configs";
+  public static final String ALTER_PARTITION_REASSIGNMENTS = "alter-partition-reassignments";
+  public static final String LIST_PARTITION_REASSIGNMENTS = "list-partition-reassignments";
+  public static final String ELECT_LEADERS = "elect-leaders";
+  public static final String CANARY_ROUND_TRIP = "canary-round-trip";
+  public static final String LIST_CONSUMER_GROUP_OFFSETS = "list-consumer-group-offsets";
+  public static final String LIST_OFFSETS = "list-offsets";
+  public static final String DESCRIBE_ACLS = "describe-acls";
+  public static final String CREATE_ACLS = "create-acls";
+
+  // Latencies above this value are all counted in the last bucket of the percentiles.
+  private static final double MAX_LATENCY_MS = 60000;
+  private static final int PERCENTILES_SIZE_IN_BYTES = 4000;
+  // Upper bounds in ms of the latency histogram buckets, followed by an implicit +Inf bucket.
+  private static final long[] LATENCY_BUCKETS_MS =
+      {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+  private static final String LATENCY_HISTOGRAM = "latency";
+  private static final String BUCKET = "-bucket";
+  private static final String SUM = "-sum";
+  private static final String COUNT = "-count";
+  private static final String LE = "le";
+
+  private static final UtilityBeltMetrics INSTANCE = new UtilityBeltMetrics(
+      new Metrics(
+          new MetricConfig(),
+          Collections.singletonList(new JmxReporter()),
+          Time.SYSTEM,
+          new KafkaMetricsContext(JMX_PREFIX)
+      )
+  );
+
+  private final Metrics metrics;
+
+  UtilityBeltMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * @return the metrics shared by all checks and commands of this JVM.
+   */
+  public static UtilityBeltMetrics get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Records the latency of an admin request once it completes. A missing topic is an answer
+   * rather than a failure, so it is not counted as an error.
+   *
+   * @param operation name of the admin operation, e.g. {@link #DESCRIBE_TOPICS}.
+   * @param future result of the request, sent just before this call.
+   * @return the same future.
+   */
+  public <T> KafkaFuture<T> record(String operation, KafkaFuture<T> future) {
+    long begin = Time.SYSTEM.milliseconds();
+    future.whenComplete((value, error) -> {
+      Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+      boolean failed = cause != null && !(cause instanceof UnknownTopicOrPartitionException);
+      record(operation, Time.SYSTEM.milliseconds() - begin, failed);
+    });
+    return future;
+  }
+
+  /**
+   * Records one admin request.
+   *
+   * @param operation name of the admin operation, e.g. {@link #DESCRIBE_TOPICS}.
+   * @param latencyMs time the request took.
+   * @param failed whether the request failed.
+   */
+  public void record(String operation, long latencyMs, boolean failed) {
+    operationSensor(operation, "latency").record(latencyMs);
+    if (failed) {
+      operationSensor(operation, "errors").record();
+    }
+  }
+
+  /**
+   * Records that a readiness check made an attempt.
+   */
+  public void recordAttempt(String check) {
+    checkSensor(check, "attempts").record();
+  }
+
+  /**
+   * Records that a readiness check became ready after the given time.
+   */
+  public void recordReady(String check, long timeToReadyMs) {
+    checkSensor(check, "time-to-ready").record(timeToReadyMs);
+  }
+
+  /**
+   * Records that a readiness check gave up.
+   */
+  public void recordTimeout(String check) {
+    checkSensor(check, "timeouts").record();
+  }
+
+  private Sensor operationSensor(String operation, String kind) {
+    String sensorName = OPERATION_GROUP + ":" + operation + ":" + kind;
+    Sensor sensor = metrics.getSensor(sensorName);
+    if (sensor != null) {
+      return sensor;
+    }
+    synchronized (this) {
+      sensor = metrics.getSensor(sensorName);
+      if (sensor != null) {
+        return sensor;
+      }
+      Map<String, String> tags = Collections.singletonMap("operation", operation);
+      sensor = metrics.sensor(sensorName);
+      if (kind.equals("latency")) {
+        sensor.add(operationMetric("latency-avg", "Average latency in ms.", tags), new Avg());
+        sensor.add(operationMetric("latency-max", "Maximum latency in ms.", tags), new Max());
+        sensor.add(new Percentiles(
+            PERCENTILES_SIZE_IN_BYTES,
+            MAX_LATENCY_MS,
+            Percentiles.BucketSizing.LINEAR,
+            new Percentile(operationMetric("latency-p50", "Median latency in ms.", tags), 50),
+            new Percentile(operationMetric("latency-p99", "99th percentile latency in ms.", tags),
+                99)
+        ));
+        sensor.add(new LatencyBuckets(le -> {
+          Map<String, String> bucketTags = new HashMap<>(tags);
+          bucketTags.put(LE, le);
+          return operationMetric(LATENCY_HISTOGRAM + BUCKET,
+              "Latency in ms of the requests, as a cumulative histogram.", bucketTags);
+        }));
+        sensor.add(operationMetric(LATENCY_HISTOGRAM + SUM, "Total latency in ms of the requests.",
+            tags), new CumulativeSum());
+        sensor.add(operationMetric(LATENCY_HISTOGRAM + COUNT, "Number of requests.", tags),
+            new CumulativeCount());
+        sensor.add(
+            operationMetric("request-total", "Number of requests.", tags), new CumulativeCount()
+        );
+      } else {
+        sensor.add(
+            operationMetric("error-total", "Number of failed requests.", tags),
+            new CumulativeCount()
+        );
+      }
+      return sensor;
+    }
+  }
+
+  private Sensor checkSensor(String check, String kind) {
+    String sensorName = CHECK_GROUP + ":" + check + ":" + kind;
+    Sensor sensor = metrics.getSensor(sensorName);
+    if (sensor != null) {
+      return sensor;
+    }
+    synchronized (this) {
+      sensor = metrics.getSensor(sensorName);
+      if (sensor != null) {
+        return sensor;
+      }
+      Map<String, String> tags = Collections.singletonMap("check", check);
+      sensor = metrics.sensor(sensorName);
+      switch (kind) {
+        case "attempts":
+          sensor.add(metrics.metricName("attempt-total", CHECK_GROUP,
+              "Number of attempts of the check.", tags), new CumulativeCount());
+          break;
+        case "timeouts":
+          sensor.add(metrics.metricName("timeout-total", CHECK_GROUP,
+              "Number of times the check gave up.", tags), new CumulativeCount());
+          break;
+        default:
+          sensor.add(metrics.metricName("time-to-ready-ms", CHECK_GROUP,
+              "Time in ms the last successful check took to become ready.", tags), new Value());
+          break;
+      }
+      return sensor;
+    }
+  }
+
+  /**
+   * Counts the recorded values at or below each bound of {@link #LATENCY_BUCKETS_MS}, and all of
+   * them in a last +Inf bucket, as the cumulative buckets of a Prometheus histogram. Unlike
+   * {@link Percentiles}, the counts are not windowed.
+   */
+  private static class LatencyBuckets implements CompoundStat {
+    private final long[] counts = new long[LATENCY_BUCKETS_MS.length + 1];
+    private final List<NamedMeasurable> stats = new ArrayList<>(counts.length);
+
+    LatencyBuckets(Function<String, MetricName> bucketName) {
+      for (int i = 0; i < counts.length; i++) {
+        int bucket = i;
+        String le = bucket < LATENCY_BUCKETS_MS.length
+            ? String.valueOf(LATENCY_BUCKETS_MS[bucket])
+            : "+Inf";
+        stats.add(new NamedMeasurable(
+            bucketName.apply(le), (config, now) -> counts[bucket]));
+      }
+    }
+
+    @Override
+    public List<NamedMeasurable> stats() {
+      return stats;
+    }
+
+    @Override
+    public void record(MetricConfig config, double value, long timeMs) {
+      for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+        if (value <= LATENCY_BUCKETS_MS[i]) {
+          counts[i]++;
+        }
+      }
+      counts[LATENCY_BUCKETS_MS.length]++;
+    }
+  }
+
+  private MetricName operationMetric(String name, String description, Map<String, String> tags) {
+    return metrics.metricName(name, OPERATION_GROUP, description, tags);
+  }
+
+  /**
+   * @return the metric with the given name, group and tags, or null if nothing was recorded yet.
+   */
+  public KafkaMetric metric(String name, String group, Map<String, String> tags) {
+    return metrics.metric(metrics.metricName(name, group, tags));
+  }
+
+  /**
+   * Renders the metrics in the Prometheus text exposition format. Metric names are prefixed with
+   * utility_belt_ and use underscores, tags become labels. The latency histogram is rendered as a
+   * single histogram family with _bucket, _sum and _count series.
+   */
+  public String toPrometheusText() {
+    List<KafkaMetric> exported = new ArrayList<>();
+    for (KafkaMetric metric : metrics.metrics().values()) {
+      String group = metric.metricName().group();
+      if (group.equals(OPERATION_GROUP) || group.equals(CHECK_GROUP)) {
+        exported.add(metric);
+      }
+    }
+    // Keeps the series of a histogram together, ordered as buckets by bound, sum and count.
+    exported.sort(Comparator.comparing(UtilityBeltMetrics::prometheusFamily)
+        .thenComparing(metric -> {
+          Map<String, String> tags = new TreeMap<>(metric.metricName().tags());
+          tags.remove(LE);
+          return tags.toString();
+        })
+        .thenComparing(metric -> prometheusName(metric).endsWith("_bucket") ? 0
+            : prometheusName(metric).endsWith("_sum") ? 1 : 2)
+        .thenComparing(metric -> {
+          String le = metric.metricName().tags().get(LE);
+          return le == null || le.equals("+Inf") ? Double.POSITIVE_INFINITY
+              : Double.parseDouble(le);
+        }));
+
+    StringBuilder text = new StringBuilder();
+    Set<String> described = new HashSet<>();
+    for (KafkaMetric metric : exported) {
+      Object value = metric.metricValue();
+      if (!(value instanceof Number)) {
+        continue;
+      }
+      String name = prometheusName(metric);
+      String family = prometheusFamily(metric);
+      if (described.add(family)) {
+        String type = !family.equals(name) ? "histogram"
+            : name.endsWith("_total") ? "counter" : "gauge";
+        text.append("# HELP ").append(family).append(' ')
+            .append(metric.metricName().description()).append('\n');
+        text.append("# TYPE ").append(family).append(' ').append(type).append('\n');
+      }
+      text.append(name);
+      Map<String, String> tags = metric.metricName().tags();
+      if (!tags.isEmpty()) {
+        List<String> labels = new ArrayList<>();
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+          labels.add(sanitize(tag.getKey()) + "=\"" + tag.getValue().replace("\\", "\\\\")
+              .replace("\"", "\\\"") + "\"");
+        }
+        Collections.sort(labels);
+        text.append('{').append(String.join(",", labels)).append('}');
+      }
+      text.append(' ').append(prometheusValue(((Number) value).doubleValue())).append('\n');
+    }
+    return text.toString();
+  }
+
+  /**
+   * Writes {@link #toPrometheusText()} to a file. The file is replaced atomically, so a collector
+   * never reads a partially written file.
+   */
+  public void writePrometheusFile(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    try {
+      Files.write(tmp, toPrometheusText().getBytes(StandardCharsets.UTF_8));
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static String prometheusName(KafkaMetric metric) {
+    MetricName name = metric.metricName();
+    return sanitize(name.group() + "_" + name.name());
+  }
+
+  /**
+   * @return the name of the histogram a series of the latency histogram belongs to, or the name
+   *     of any other metric.
+   */
+  private static String prometheusFamily(KafkaMetric metric) {
+    MetricName name = metric.metricName();
+    if (name.group().equals(OPERATION_GROUP)) {
+      for (String suffix : new String[] {BUCKET, SUM, COUNT}) {
+        if (name.name().equals(LATENCY_HISTOGRAM + suffix)) {
+          return sanitize(name.group() + "_" + LATENCY_HISTOGRAM);
+        }
+      }
+    }
+    return prometheusName(metric);
+  }
+
+  private static String sanitize(String name) {
+    return name.replaceAll("[^a-zA-Z0-9_]", "_");
+  }
+
+  private static String prometheusValue(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    } else if (value == Double.POSITIVE_INFINITY) {
+      return "+Inf";
+    } else if (value == Double.NEGATIVE_INFINITY) {
+      return "-Inf";
+    }
+    return Double.toString(value);
+  }
+}
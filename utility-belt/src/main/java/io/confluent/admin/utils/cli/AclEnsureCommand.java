@@ -0,0 +1,194 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ */
+
+package io.confluent.kafkaensure.cli;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.internal.HelpScreenException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.common.acl.AclBinding;
+import org.apache.kafka.common.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.List;
+
+import io.confluent.admin.utils.UtilityBeltMetrics;
+import io.confluent.kafkaensure.AclEnsure;
+import io.confluent.kafkaensure.AclSpec;
+
+import static net.sourceforge.argparse4j.impl.Arguments.store;
+
+/**
+ * This command ensures that ACLs exist, reading and creating them in one batch each, and reports
+ * ACLs of the same principals that are not in the spec.
+ * where:
+ * config                 : path to properties with client config.
+ * file                   : file with ACL spec.
+ * timeout                : timeout in ms for all operations.
+ * create-if-not-exists   : create the ACLs that do not exist.
+ * metrics-file           : file to write metrics to in the Prometheus text format.
+ */
+public class AclEnsureCommand {
+
+  private static final Logger log = LogManager.getLogger(AclEnsureCommand.class);
+  public static final String ACL_ENSURE = "acl-ensure";
+
+  private static ArgumentParser createArgsParser() {
+    ArgumentParser aclEnsure = ArgumentParsers
+        .newArgumentParser(ACL_ENSURE)
+        .defaultHelp(true)
+        .description("Check if ACLs exist.");
+
+    aclEnsure.addArgument("--timeout", "-t")
+        .action(store())
+        .required(true)
+        .type(Integer.class)
+        .metavar("TIMEOUT_IN_MS")
+        .help("Time (in ms) each admin request may take.");
+
+    aclEnsure.addArgument("--config", "-c")
+        .action(store())
+        .type(String.class)
+        .metavar("CONFIG")
+        .required(true)
+        .help("Client config.");
+
+    aclEnsure.addArgument("--file", "-f")
+        .action(store())
+        .type(String.class)
+        .metavar("FILE_CONFIG")
+        .required(true)
+        .help("ACL spec file.");
+
+    aclEnsure.addArgument("--create-if-not-exists")
+        .action(store())
+        .type(Boolean.class)
+        .setDefault(false)
+        .help("Create the ACLs that do not exist, with a single request.");
+
+    aclEnsure.addArgument("--metrics-file")
+        .action(store())
+        .type(String.class)
+        .metavar("METRICS_FILE")
+        .help("File to write request metrics to, in the Prometheus text format.");
+
+    return aclEnsure;
+  }
+
+  public static void main(String[] args) {
+    boolean success = run(args, null, System.out, System.err);
+
+    if (success) {
+      System.exit(0);
+    } else {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Prints the outcome of every expected binding and the bindings not in the spec.
+   */
+  private static void printResult(
+      AclEnsure.Result result,
+      boolean createIfNotExists,
+      PrintStream err
+  ) {
+    for (AclBinding binding : result.existing()) {
+      err.printf("Acl [ %s ] exists ? true\n", binding);
+    }
+    for (AclBinding binding : result.created()) {
+      err.printf("Acl [ %s ] exists ? false\n", binding);
+      err.printf("Acl [ %s ] created\n", binding);
+    }
+    for (AclBinding binding : result.missing()) {
+      err.printf("Acl [ %s ] exists ? false\n", binding);
+      Throwable error = result.failed().get(binding);
+      if (error != null) {
+        err.printf("Acl [ %s ] could not be created: %s\n", binding, error.getMessage());
+      } else if (!createIfNotExists) {
+        err.printf("Acl [ %s ] not created\n", binding);
+      }
+    }
+    for (AclBinding binding : result.unexpected()) {
+      err.printf("Acl [ %s ] exists but is not in the spec\n", binding);
+    }
+    err.printf("Acls: %d existing, %d created, %d missing, %d not in the spec\n",
+        result.existing().size(), result.created().size(), result.missing().size(),
+        result.unexpected().size());
+  }
+
+  /**
+   * Runs the command and returns whether all ACLs of the spec exist (or were created).
+   *
+   * @param args command line arguments.
+   * @param adminClient connected client to use instead of creating one from the client config,
+   *     or null to create one.
+   * @param out stream the help text is printed to.
+   * @param err stream per-ACL results and argument errors are printed to.
+   */
+  public static boolean run(
+      String[] args,
+      AdminClient adminClient,
+      PrintStream out,
+      PrintStream err
+  ) {
+    ArgumentParser parser = createArgsParser();
+    boolean success = false;
+    String metricsFile = null;
+    try {
+      Namespace res = parser.parseArgs(args);
+      log.debug("Arguments {}. ", res);
+      metricsFile = res.getString("metrics_file");
+
+      // Spec errors are reported before connecting to the cluster.
+      List<AclBinding> expected = AclSpec.bindings(AclSpec.read(new File(res.getString("file"))));
+      boolean createIfNotExists = res.getBoolean("create_if_not_exists");
+
+      // Closes the client only if it was created here, not a client given by the caller.
+      AdminClient ownClient = adminClient != null ? null
+          : AdminClient.create(Utils.loadProps(res.getString("config")));
+      try {
+        AclEnsure aclEnsure = new AclEnsure(
+            adminClient != null ? adminClient : ownClient, res.getInt("timeout"));
+        AclEnsure.Result result = aclEnsure.ensure(expected, createIfNotExists);
+        printResult(result, createIfNotExists, err);
+        success = result.success();
+      } finally {
+        if (ownClient != null) {
+          ownClient.close();
+        }
+      }
+    } catch (ArgumentParserException e) {
+      if (args.length == 0) {
+        parser.printHelp(new PrintWriter(out, true));
+        success = true;
+      } else if (!(e instanceof HelpScreenException)) {
+        PrintWriter writer = new PrintWriter(err, true);
+        parser.printUsage(writer);
+        writer.printf("%s: error: %s%n", ACL_ENSURE, e.getMessage());
+      }
+    } catch (Exception e) {
+      log.error("Error while running acl-ensure.", e);
+      success = false;
+    }
+    if (metricsFile != null) {
+      try {
+        UtilityBeltMetrics.get().writePrometheusFile(Paths.get(metricsFile));
+      } catch (IOException e) {
+        log.warn("Could not write metrics to {}.", metricsFile, e);
+      }
+    }
+    return success;
+  }
+}
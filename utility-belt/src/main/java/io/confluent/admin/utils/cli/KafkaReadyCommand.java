@@ -21,18 +21,41 @@ import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
 import net.sourceforge.argparse4j.inf.MutuallyExclusiveGroup;
 import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.internal.HelpScreenException;
 
 import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.utils.Utils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
+import io.confluent.admin.utils.Canary;
 import io.confluent.admin.utils.ClusterStatus;
+import io.confluent.admin.utils.ExponentialRetryPolicy;
+import io.confluent.admin.utils.MultiClusterCheck;
+import io.confluent.admin.utils.PartitionHealth;
+import io.confluent.admin.utils.RetryPolicy;
+import io.confluent.admin.utils.UtilityBeltMetrics;
 
+import static net.sourceforge.argparse4j.impl.Arguments.append;
 import static net.sourceforge.argparse4j.impl.Arguments.store;
+import static net.sourceforge.argparse4j.impl.Arguments.storeTrue;
 
 /**
  * This command checks if the kafka cluster has the expected number of brokers and is ready to
@@ -43,15 +66,38 @@ import static net.sourceforge.argparse4j.impl.Arguments.store;
  * min-expected-brokers   : minimum brokers to wait for.
  * timeout                : timeout in ms for all operations. This includes looking up metadata in
  * Zookeeper or fetching metadata for the brokers.
- * (bootstrap-brokers
- * or
- * zookeeper-connect)     : Either a bootstrap broker list or zookeeper connect string
+ * bootstrap-brokers      : list of bootstrap brokers.
+ * zookeeper-connect      : deprecated and ignored.
  * security-protocol      : Security protocol to use to connect to the broker.
+ * initial-backoff-ms     : wait after the first failed attempt, growing exponentially.
+ * max-backoff-ms         : maximum wait between two attempts.
+ * backoff-multiplier     : factor the wait grows by after each failed attempt.
+ * backoff-jitter         : relative random variation of each wait.
+ * attempt-timeout-ms     : maximum time of a single attempt.
+ * metadata-quorum        : also wait for the KRaft metadata quorum to be ready.
+ * min-voters             : minimum number of voters in the metadata quorum.
+ * max-quorum-lag         : maximum lag in records of any voter or observer.
+ * fully-replicated       : also wait for zero under-replicated, under-min-ISR and offline
+ * partitions.
+ * topics                 : comma separated topics to check replication of, all if not set.
+ * scan-batch-size        : number of topics described per request when checking replication.
+ * internal-topics        : comma separated internal topics to wait for to be available.
+ * metrics-file           : file to write metrics to in the Prometheus text format.
+ * cluster-config         : client config of one of several clusters to check concurrently.
+ * skip-preflight         : create the client without first probing the bootstrap servers.
+ * canary-topic           : also wait for produce/consume round trips through this topic.
+ * canary-round-trips     : number of consecutive round trips within the latency threshold.
+ * canary-records         : number of records sent per round trip.
+ * canary-max-latency-ms  : maximum latency in ms of a round trip.
+ * consumer-groups        : comma separated consumer groups to wait for to catch up.
+ * max-total-lag          : maximum sum of the partition lags of a consumer group.
+ * max-partition-lag      : maximum lag of any partition of a consumer group.
  */
 public class KafkaReadyCommand {
 
   private static final Logger log = LogManager.getLogger(KafkaReadyCommand.class);
   public static final String KAFKA_READY = "kafka-ready";
+  public static final long DEFAULT_MAX_QUORUM_LAG = 1000L;
 
   private static ArgumentParser createArgsParser() {
     ArgumentParser kafkaReady = ArgumentParsers
@@ -90,7 +136,7 @@ public class KafkaReadyCommand {
         .action(store())
         .type(String.class)
         .metavar("ZOOKEEPER_CONNECT")
-        .help("Zookeeper connect string.");
+        .help("Deprecated and ignored, Kafka no longer uses Zookeeper.");
 
     kafkaReady.addArgument("--security-protocol", "-s")
         .action(store())
@@ -99,19 +145,210 @@ public class KafkaReadyCommand {
         .setDefault("PLAINTEXT")
         .help("Which endpoint to connect to ? ");
 
+    kafkaReady.addArgument("--initial-backoff-ms")
+        .action(store())
+        .type(Long.class)
+        .setDefault(ExponentialRetryPolicy.DEFAULT_INITIAL_BACKOFF_MS)
+        .metavar("INITIAL_BACKOFF_MS")
+        .help("Time (in ms) to wait after the first failed attempt.");
+
+    kafkaReady.addArgument("--max-backoff-ms")
+        .action(store())
+        .type(Long.class)
+        .setDefault((long) ClusterStatus.BROKER_METADATA_REQUEST_BACKOFF_MS)
+        .metavar("MAX_BACKOFF_MS")
+        .help("Maximum time (in ms) to wait between two attempts.");
+
+    kafkaReady.addArgument("--backoff-multiplier")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(ExponentialRetryPolicy.DEFAULT_MULTIPLIER)
+        .metavar("BACKOFF_MULTIPLIER")
+        .help("Factor the wait grows by after each failed attempt.");
+
+    kafkaReady.addArgument("--backoff-jitter")
+        .action(store())
+        .type(Double.class)
+        .setDefault(ExponentialRetryPolicy.DEFAULT_JITTER)
+        .metavar("BACKOFF_JITTER")
+        .help("Relative random variation (between 0 and 1) of each wait.");
+
+    kafkaReady.addArgument("--attempt-timeout-ms")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(0)
+        .metavar("ATTEMPT_TIMEOUT_MS")
+        .help("Maximum time (in ms) of a single attempt; 0 uses the remaining timeout.");
+
+    kafkaReady.addArgument("--metadata-quorum")
+        .action(storeTrue())
+        .help("Also wait for the metadata quorum to have an elected leader, the minimum number "
+            + "of voters and all replicas caught up.");
+
+    kafkaReady.addArgument("--min-voters")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(1)
+        .metavar("MIN_VOTERS")
+        .help("Minimum number of voters in the metadata quorum.");
+
+    kafkaReady.addArgument("--max-quorum-lag")
+        .action(store())
+        .type(Long.class)
+        .setDefault(DEFAULT_MAX_QUORUM_LAG)
+        .metavar("MAX_QUORUM_LAG")
+        .help("Maximum lag (in records) of any metadata quorum voter or observer.");
+
+    kafkaReady.addArgument("--fully-replicated")
+        .action(storeTrue())
+        .help("Also wait until no partition is under-replicated, under min ISR or offline, "
+            + "e.g. before restarting the next broker of a rolling upgrade.");
+
+    kafkaReady.addArgument("--topics")
+        .action(store())
+        .type(String.class)
+        .metavar("TOPICS")
+        .help("Comma separated topics to check replication of; all topics if not set.");
+
+    kafkaReady.addArgument("--scan-batch-size")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(PartitionHealth.DEFAULT_BATCH_SIZE)
+        .metavar("SCAN_BATCH_SIZE")
+        .help("Number of topics described per request when checking replication.");
+
+    kafkaReady.addArgument("--internal-topics")
+        .action(store())
+        .type(String.class)
+        .metavar("INTERNAL_TOPICS")
+        .help("Comma separated internal topics, e.g. __consumer_offsets,__transaction_state. If "
+            + "set, also wait until they exist and every partition has a leader and enough in "
+            + "sync replicas, so that coordinators are available.");
+
+    kafkaReady.addArgument("--metrics-file")
+        .action(store())
+        .type(String.class)
+        .metavar("METRICS_FILE")
+        .help("File to write request and check metrics to, in the Prometheus text format.");
+
+    kafkaReady.addArgument("--cluster-config")
+        .action(append())
+        .type(String.class)
+        .metavar("CLUSTER_CONFIG")
+        .help("Client config, including bootstrap.servers, of a cluster to check. Repeat to check "
+            + "several clusters concurrently; the command ends as soon as all clusters are "
+            + "ready, one is not, or the timeout expires.");
+
+    kafkaReady.addArgument("--skip-preflight")
+        .action(storeTrue())
+        .help("Create the admin client right away instead of waiting until a bootstrap server "
+            + "accepts TCP connections.");
+
+    kafkaReady.addArgument("--canary-topic")
+        .action(store())
+        .type(String.class)
+        .metavar("CANARY_TOPIC")
+        .help("Existing topic to produce records to and consume them back from. If set, also "
+            + "wait for consecutive round trips to finish within the latency threshold.");
+
+    kafkaReady.addArgument("--canary-round-trips")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(Canary.DEFAULT_ROUND_TRIPS)
+        .metavar("CANARY_ROUND_TRIPS")
+        .help("Number of consecutive round trips that must finish within the latency threshold.");
+
+    kafkaReady.addArgument("--canary-records")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(Canary.DEFAULT_RECORDS)
+        .metavar("CANARY_RECORDS")
+        .help("Number of records sent together in each round trip.");
+
+    kafkaReady.addArgument("--canary-max-latency-ms")
+        .action(store())
+        .type(Long.class)
+        .setDefault(Canary.DEFAULT_MAX_LATENCY_MS)
+        .metavar("CANARY_MAX_LATENCY_MS")
+        .help("Maximum time (in ms) from producing the first record of a round trip to "
+            + "consuming the last one.");
+
+    kafkaReady.addArgument("--consumer-groups")
+        .action(store())
+        .type(String.class)
+        .metavar("CONSUMER_GROUPS")
+        .help("Comma separated consumer groups. If set, also wait until each group has caught "
+            + "up with the end of the partitions it committed offsets for.");
+
+    kafkaReady.addArgument("--max-total-lag")
+        .action(store())
+        .type(Long.class)
+        .setDefault(0L)
+        .metavar("MAX_TOTAL_LAG")
+        .help("Maximum sum of the lags (in records) of all partitions of a consumer group.");
+
+    kafkaReady.addArgument("--max-partition-lag")
+        .action(store())
+        .type(Long.class)
+        .setDefault(0L)
+        .metavar("MAX_PARTITION_LAG")
+        .help("Maximum lag (in records) of any partition of a consumer group.");
+
     return kafkaReady;
   }
 
   public static void main(String[] args) {
+    boolean success = run(args, null, System.out, System.err);
+
+    if (success) {
+      System.exit(0);
+    } else {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Runs the command and returns whether the cluster is ready.
+   *
+   * @param args command line arguments.
+   * @param adminClient connected client to use instead of creating one from the connection
+   *     arguments, or null to create one.
+   * @param out stream the help text is printed to.
+   * @param err stream argument errors are printed to.
+   */
+  public static boolean run(
+      String[] args,
+      AdminClient adminClient,
+      PrintStream out,
+      PrintStream err
+  ) {
     ArgumentParser parser = createArgsParser();
     boolean success = false;
+    String metricsFile = null;
     try {
       Namespace res = parser.parseArgs(args);
       log.debug("Arguments {}. ", res);
+      metricsFile = res.getString("metrics_file");
 
       Map<String, String> workerProps = new HashMap<>();
+      RetryPolicy retryPolicy = new ExponentialRetryPolicy(
+          res.getLong("initial_backoff_ms"),
+          res.getInt("backoff_multiplier"),
+          res.getLong("max_backoff_ms"),
+          res.getDouble("backoff_jitter"),
+          res.getInt("attempt_timeout_ms")
+      );
 
-      if (res.getString("config") == null
+      if (res.getString("zookeeper_connect") != null) {
+        log.warn("--zookeeper-connect is deprecated and ignored.");
+      }
+
+      if (res.getList("cluster_config") != null) {
+        success = areClustersReady(res.getList("cluster_config"), res, retryPolicy, out);
+      } else if (adminClient != null) {
+        success = isReady(
+            adminClient, optionalClientConfig(res), res, retryPolicy, res.getInt("timeout"));
+      } else if (res.getString("config") == null
           && !(res.getString("security_protocol").equals("PLAINTEXT"))) {
         log.error("config is required for all protocols except PLAINTEXT");
         success = false;
@@ -130,30 +367,225 @@ public class KafkaReadyCommand {
               "Bootstrap servers should be provided through config or bootstrap_servers"
           );
         }
-        success = ClusterStatus.isKafkaReady(
-            workerProps,
-            res.getInt("min_expected_brokers"),
-            res.getInt("timeout")
-        );
+        // Need to copy because `workerProps` is Map<String, String> and `create` expects
+        // Map<String, Object>
+        Map<String, Object> clientConfig = new HashMap<>(workerProps);
+        long begin = System.currentTimeMillis();
+        int timeoutMs = res.getInt("timeout");
+        String bootstrapServers = workerProps.get(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG);
+        boolean reachable;
+        try {
+          reachable = res.getBoolean("skip_preflight")
+              || ClusterStatus.isBootstrapReachable(bootstrapServers, timeoutMs, retryPolicy);
+        } catch (IllegalArgumentException e) {
+          // No bootstrap server to probe, e.g. an empty --bootstrap-servers.
+          throw new ArgumentParserException(e.getMessage(), parser);
+        }
+        if (!reachable) {
+          success = false;
+        } else {
+          try (AdminClient client = AdminClient.create(clientConfig)) {
+            success = isReady(
+                client, clientConfig, res, retryPolicy, remainingMs(begin, timeoutMs));
+          }
+        }
       }
 
     } catch (ArgumentParserException e) {
       if (args.length == 0) {
-        parser.printHelp();
+        parser.printHelp(new PrintWriter(out, true));
         success = true;
       } else {
-        parser.handleError(e);
+        if (!(e instanceof HelpScreenException)) {
+          PrintWriter writer = new PrintWriter(err, true);
+          parser.printUsage(writer);
+          writer.printf("%s: error: %s%n", KAFKA_READY, e.getMessage());
+        }
         success = false;
       }
     } catch (Exception e) {
       log.error("Error while running kafka-ready.", e);
       success = false;
     }
+    if (metricsFile != null) {
+      try {
+        UtilityBeltMetrics.get().writePrometheusFile(Paths.get(metricsFile));
+      } catch (IOException e) {
+        log.warn("Could not write metrics to {}.", metricsFile, e);
+      }
+    }
+    return success;
+  }
 
-    if (success) {
-      System.exit(0);
-    } else {
-      System.exit(1);
+  private static boolean isReady(
+      AdminClient adminClient,
+      Map<String, Object> clientConfig,
+      Namespace res,
+      RetryPolicy retryPolicy,
+      int timeoutMs
+  ) throws Exception {
+    return isReadyAsync(adminClient, clientConfig, res, retryPolicy, timeoutMs)
+        .toCompletableFuture().get();
+  }
+
+  /**
+   * @return the client config given by the config file and bootstrap servers arguments, or null
+   *     if neither is set.
+   */
+  private static Map<String, Object> optionalClientConfig(Namespace res) throws IOException {
+    if (res.getString("config") == null && res.getString("bootstrap_servers") == null) {
+      return null;
     }
+    Map<String, Object> clientConfig = new HashMap<>();
+    if (res.getString("config") != null) {
+      clientConfig.putAll(Utils.propsToStringMap(Utils.loadProps(res.getString("config"))));
+    }
+    if (res.getString("bootstrap_servers") != null) {
+      clientConfig.put(
+          CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, res.getString("bootstrap_servers"));
+    }
+    return clientConfig;
+  }
+
+  /**
+   * Chains the enabled checks, so that later checks only start once earlier ones passed.
+   *
+   * @param clientConfig client config of the cluster, needed by the canary, or null.
+   */
+  private static CompletionStage<Boolean> isReadyAsync(
+      Admin adminClient,
+      Map<String, Object> clientConfig,
+      Namespace res,
+      RetryPolicy retryPolicy,
+      int timeoutMs
+  ) {
+    long begin = System.currentTimeMillis();
+    CompletionStage<Boolean> ready = ClusterStatus.isKafkaReadyAsync(
+        adminClient, res.getInt("min_expected_brokers"), timeoutMs, retryPolicy);
+    // Later checks only get the time left, so the whole command still honors the timeout.
+    if (res.getBoolean("metadata_quorum")) {
+      ready = ready.thenCompose(brokersReady -> !brokersReady
+          ? CompletableFuture.completedFuture(false)
+          : ClusterStatus.isMetadataQuorumReadyAsync(
+              adminClient, res.getInt("min_voters"), res.getLong("max_quorum_lag"),
+              remainingMs(begin, timeoutMs), retryPolicy));
+    }
+    if (res.getBoolean("fully_replicated")) {
+      List<String> topics = res.getString("topics") == null ? null
+          : Arrays.asList(res.getString("topics").split("\\s*,\\s*"));
+      ready = ready.thenCompose(previousReady -> !previousReady
+          ? CompletableFuture.completedFuture(false)
+          : ClusterStatus.isReplicationHealthyAsync(
+              adminClient, topics, res.getInt("scan_batch_size"), remainingMs(begin, timeoutMs),
+              retryPolicy));
+    }
+    if (res.getString("internal_topics") != null) {
+      List<String> topics = Arrays.asList(res.getString("internal_topics").split("\\s*,\\s*"));
+      ready = ready.thenCompose(previousReady -> !previousReady
+          ? CompletableFuture.completedFuture(false)
+          : ClusterStatus.areInternalTopicsReadyAsync(
+              adminClient, topics, remainingMs(begin, timeoutMs), retryPolicy));
+    }
+    if (res.getString("consumer_groups") != null) {
+      List<String> groupIds = Arrays.asList(res.getString("consumer_groups").split("\\s*,\\s*"));
+      ready = ready.thenCompose(previousReady -> !previousReady
+          ? CompletableFuture.completedFuture(false)
+          : ClusterStatus.isConsumerGroupCaughtUpAsync(
+              adminClient, groupIds, res.getLong("max_total_lag"),
+              res.getLong("max_partition_lag"), remainingMs(begin, timeoutMs), retryPolicy));
+    }
+    if (res.getString("canary_topic") != null) {
+      ready = ready.thenCompose(previousReady -> !previousReady
+          ? CompletableFuture.completedFuture(false)
+          : isCanaryHealthyAsync(clientConfig, res, retryPolicy, remainingMs(begin, timeoutMs)));
+    }
+    return ready;
+  }
+
+  /**
+   * Runs the canary with clients of its own, closed once the check ends.
+   */
+  private static CompletionStage<Boolean> isCanaryHealthyAsync(
+      Map<String, Object> clientConfig,
+      Namespace res,
+      RetryPolicy retryPolicy,
+      int timeoutMs
+  ) {
+    if (clientConfig == null) {
+      log.error("--canary-topic needs --config or --bootstrap-servers to create its clients.");
+      return CompletableFuture.completedFuture(false);
+    }
+    Canary canary;
+    try {
+      canary = new Canary(
+          clientConfig,
+          res.getString("canary_topic"),
+          res.getInt("canary_records"),
+          res.getLong("canary_max_latency_ms"),
+          timeoutMs
+      );
+    } catch (KafkaException e) {
+      log.error("Could not create the canary clients.", e);
+      return CompletableFuture.completedFuture(false);
+    }
+    return ClusterStatus.isCanaryHealthyAsync(
+        canary, res.getInt("canary_round_trips"), timeoutMs, retryPolicy
+    ).whenComplete((healthy, error) -> canary.close());
+  }
+
+  /**
+   * Checks several clusters concurrently and prints the verdict and timing of each.
+   *
+   * @return true if all clusters are ready.
+   */
+  private static boolean areClustersReady(
+      List<String> configs,
+      Namespace res,
+      RetryPolicy retryPolicy,
+      PrintStream out
+  ) throws Exception {
+    Map<String, AdminClient> clusters = new LinkedHashMap<>();
+    Map<Admin, Map<String, Object>> clientConfigs = new HashMap<>();
+    try {
+      // A config repeated on the command line is checked once, rather than replacing, and
+      // leaking, the client created for its first occurrence.
+      for (String config : new LinkedHashSet<>(configs)) {
+        try {
+          Map<String, Object> clientConfig =
+              new HashMap<>(Utils.propsToStringMap(Utils.loadProps(config)));
+          AdminClient client = AdminClient.create(clientConfig);
+          clusters.put(config, client);
+          clientConfigs.put(client, clientConfig);
+        } catch (IOException | KafkaException e) {
+          log.error("Could not create a client for cluster {}.", config, e);
+          clusters.put(config, null);
+        }
+      }
+      List<MultiClusterCheck.ClusterResult> results = MultiClusterCheck.run(
+          clusters,
+          res.getInt("timeout"),
+          retryPolicy,
+          (adminClient, timeoutMs, clusterRetryPolicy) -> isReadyAsync(
+              adminClient, clientConfigs.get(adminClient), res, clusterRetryPolicy, timeoutMs)
+      );
+      boolean success = true;
+      for (MultiClusterCheck.ClusterResult result : results) {
+        out.println(result);
+        success &= Boolean.TRUE.equals(result.ready());
+      }
+      return success;
+    } finally {
+      // The checks still running after the first failure are cancelled by then, closing the
+      // clients aborts their requests in flight.
+      for (AdminClient client : clusters.values()) {
+        if (client != null) {
+          client.close(Duration.ZERO);
+        }
+      }
+    }
+  }
+
+  private static int remainingMs(long begin, int timeoutMs) {
+    return (int) Math.max(0, timeoutMs - (System.currentTimeMillis() - begin));
   }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils.cli;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.InetSocketAddress;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import io.confluent.admin.utils.ClusterStatusPoller;
+import io.confluent.admin.utils.ReadinessServer;
+
+import static net.sourceforge.argparse4j.impl.Arguments.store;
+
+/**
+ * This command polls the kafka cluster in the background and serves the latest readiness verdict
+ * over HTTP on /ready and /live, so probes do not need to start a JVM for each check.
+ * where:
+ * min-expected-brokers   : minimum brokers to wait for.
+ * config                 : path to properties with client config.
+ * bootstrap-servers      : list of bootstrap brokers.
+ * port                   : port to serve HTTP on.
+ * poll-interval-ms       : delay between two readiness checks.
+ * check-timeout-ms       : timeout of a single readiness check.
+ * max-staleness-ms       : maximum age of a verdict before it is treated as a failure.
+ */
+public class KafkaReadyServerCommand {
+
+  private static final Logger log = LogManager.getLogger(KafkaReadyServerCommand.class);
+  public static final String KAFKA_READY_SERVER = "kafka-ready-server";
+
+  private static ArgumentParser createArgsParser() {
+    ArgumentParser kafkaReadyServer = ArgumentParsers
+        .newArgumentParser(KAFKA_READY_SERVER)
+        .defaultHelp(true)
+        .description("Serve cached Kafka readiness over HTTP.");
+
+    kafkaReadyServer.addArgument("min-expected-brokers")
+        .action(store())
+        .required(true)
+        .type(Integer.class)
+        .metavar("MIN_EXPECTED_BROKERS")
+        .help("Minimum number of brokers to wait for.");
+
+    kafkaReadyServer.addArgument("--config", "-c")
+        .action(store())
+        .type(String.class)
+        .metavar("CONFIG")
+        .help("Client config.");
+
+    kafkaReadyServer.addArgument("--bootstrap-servers", "-b")
+        .action(store())
+        .type(String.class)
+        .metavar("BOOTSTRAP_SERVERS")
+        .help("List of bootstrap brokers.");
+
+    kafkaReadyServer.addArgument("--bind-address")
+        .action(store())
+        .type(String.class)
+        .setDefault("0.0.0.0")
+        .metavar("BIND_ADDRESS")
+        .help("Address to serve HTTP on.");
+
+    kafkaReadyServer.addArgument("--port", "-p")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(8090)
+        .metavar("PORT")
+        .help("Port to serve HTTP on.");
+
+    kafkaReadyServer.addArgument("--poll-interval-ms")
+        .action(store())
+        .type(Long.class)
+        .setDefault(10000L)
+        .metavar("POLL_INTERVAL_MS")
+        .help("Time (in ms) between two readiness checks.");
+
+    kafkaReadyServer.addArgument("--check-timeout-ms")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(5000)
+        .metavar("CHECK_TIMEOUT_MS")
+        .help("Time (in ms) a single readiness check may take.");
+
+    kafkaReadyServer.addArgument("--max-staleness-ms")
+        .action(store())
+        .type(Long.class)
+        .setDefault(30000L)
+        .metavar("MAX_STALENESS_MS")
+        .help("Maximum age (in ms) of a verdict before it is reported as a failure.");
+
+    return kafkaReadyServer;
+  }
+
+  public static void main(String[] args) {
+    ArgumentParser parser = createArgsParser();
+    boolean success = false;
+    try {
+      Namespace res = parser.parseArgs(args);
+      log.debug("Arguments {}. ", res);
+
+      Properties props = new Properties();
+      if (res.getString("config") != null) {
+        props = Utils.loadProps(res.getString("config"));
+      }
+      if (res.getString("bootstrap_servers") != null) {
+        props.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, res.getString("bootstrap_servers"));
+      }
+      if (!props.containsKey(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG)) {
+        throw new RuntimeException(
+            "Bootstrap servers should be provided through config or bootstrap_servers"
+        );
+      }
+
+      AdminClient adminClient = AdminClient.create(props);
+      ClusterStatusPoller poller = new ClusterStatusPoller(
+          adminClient,
+          res.getInt("min_expected_brokers"),
+          res.getInt("check_timeout_ms"),
+          res.getLong("poll_interval_ms")
+      );
+      ReadinessServer server = new ReadinessServer(
+          poller,
+          new InetSocketAddress(res.getString("bind_address"), res.getInt("port")),
+          res.getLong("max_staleness_ms")
+      );
+
+      CountDownLatch stopped = new CountDownLatch(1);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        server.close();
+        poller.close();
+        adminClient.close();
+        stopped.countDown();
+      }));
+      poller.start();
+      server.start();
+      log.info("Serving readiness on {}.", server.address());
+      stopped.await();
+      success = true;
+    } catch (ArgumentParserException e) {
+      if (args.length == 0) {
+        parser.printHelp();
+        success = true;
+      } else {
+        parser.handleError(e);
+      }
+    } catch (Exception e) {
+      log.error("Error while running kafka-ready-server.", e);
+      success = false;
+    }
+
+    if (success) {
+      System.exit(0);
+    } else {
+      System.exit(1);
+    }
+  }
+}
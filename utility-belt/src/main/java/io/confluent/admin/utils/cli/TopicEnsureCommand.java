@@ -4,22 +4,40 @@
 
 package io.confluent.kafkaensure.cli;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
-
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
 import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.internal.HelpScreenException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.common.utils.Utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import io.confluent.admin.utils.ExponentialRetryPolicy;
+import io.confluent.admin.utils.RetryPolicy;
+import io.confluent.admin.utils.UtilityBeltMetrics;
+import io.confluent.kafkaensure.ReplicaReassigner;
 import io.confluent.kafkaensure.TopicEnsure;
+import io.confluent.kafkaensure.TopicEnsureCache;
 import io.confluent.kafkaensure.TopicSpec;
+import io.confluent.kafkaensure.TopicSpecReader;
+import io.confluent.kafkaensure.TopicSpecWatcher;
 
 import static net.sourceforge.argparse4j.impl.Arguments.store;
 
@@ -29,11 +47,27 @@ import static net.sourceforge.argparse4j.impl.Arguments.store;
  * config                 : path to properties with client config.
  * file                   : file with topic spec.
  * timeout                : timeout in ms for all operations.
+ * balanced-placement     : spread the replicas of created topics evenly across brokers and racks.
+ * reconcile              : alter drifted configs and raise the replication factor of existing
+ *                          topics instead of failing.
+ * replication-throttle   : replication rate in bytes/sec per broker while raising the
+ *                          replication factor.
+ * reassignment-timeout   : time in ms raising the replication factor may take.
+ * leader-report          : print the leader distribution of the ensured topics.
+ * elect-preferred-leaders: also elect the preferred leaders of their partitions.
+ * batch-size             : maximum number of topics described or created per admin request.
+ * metrics-file           : file to write metrics to in the Prometheus text format.
+ * state-file             : file remembering the last successful run, to skip unchanged reruns.
+ * state-ttl              : time in ms a remembered run may be reused.
+ * state-verify           : check done before reusing a remembered run: cluster-id or none.
+ * watch                  : keep running and ensure the topics added or modified in the file.
  */
 public class TopicEnsureCommand {
 
   private static final Logger log = LogManager.getLogger(TopicEnsureCommand.class);
   public static final String TOPIC_ENSURE = "topic-ensure";
+  private static final String VERIFY_CLUSTER_ID = "cluster-id";
+  private static final String VERIFY_NONE = "none";
 
   private static ArgumentParser createArgsParser() {
     ArgumentParser topicEnsure = ArgumentParsers
@@ -68,52 +102,402 @@ public class TopicEnsureCommand {
         .setDefault(false)
         .help("Create topic if it does not exist.");
 
+    topicEnsure.addArgument("--balanced-placement")
+        .action(store())
+        .type(Boolean.class)
+        .setDefault(false)
+        .help("Assign the replicas of created topics so that leaders and replicas are spread "
+            + "evenly across brokers and racks, instead of leaving placement to the controller.");
+
+    topicEnsure.addArgument("--reconcile")
+        .action(store())
+        .type(Boolean.class)
+        .setDefault(false)
+        .help("Alter the configs and raise the replication factor of existing topics that "
+            + "differ from the spec instead of failing.");
+
+    topicEnsure.addArgument("--replication-throttle")
+        .action(store())
+        .type(Long.class)
+        .setDefault(ReplicaReassigner.DEFAULT_THROTTLE_BYTES_PER_SEC)
+        .metavar("BYTES_PER_SEC")
+        .help("Replication rate allowed per broker while the replication factor of topics is "
+            + "raised.");
+
+    topicEnsure.addArgument("--reassignment-timeout")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(ReplicaReassigner.DEFAULT_TIMEOUT_MS)
+        .metavar("TIMEOUT_IN_MS")
+        .help("Time (in ms) raising the replication factor of a batch of topics may take before "
+            + "it is cancelled.");
+
+    topicEnsure.addArgument("--leader-report")
+        .action(store())
+        .type(Boolean.class)
+        .setDefault(false)
+        .help("Print how many partitions of the ensured topics each broker leads.");
+
+    topicEnsure.addArgument("--elect-preferred-leaders")
+        .action(store())
+        .type(Boolean.class)
+        .setDefault(false)
+        .help("Run preferred leader elections for the partitions of the ensured topics that are "
+            + "not led by their preferred replica, and print the leader distribution.");
+
+    topicEnsure.addArgument("--batch-size")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(TopicEnsure.DEFAULT_BATCH_SIZE)
+        .metavar("BATCH_SIZE")
+        .help("Maximum number of topics described or created per admin request.");
+
+    topicEnsure.addArgument("--metrics-file")
+        .action(store())
+        .type(String.class)
+        .metavar("METRICS_FILE")
+        .help("File to write request and check metrics to, in the Prometheus text format.");
+
+    topicEnsure.addArgument("--state-file")
+        .action(store())
+        .type(String.class)
+        .metavar("STATE_FILE")
+        .help("File remembering the last successful run. Validation is skipped while the spec "
+            + "file, client config and options are unchanged and the run is within the TTL.");
+
+    topicEnsure.addArgument("--state-ttl")
+        .action(store())
+        .type(Long.class)
+        .setDefault(TopicEnsureCache.DEFAULT_TTL_MS)
+        .metavar("TTL_IN_MS")
+        .help("Time (in ms) a remembered run may be reused.");
+
+    topicEnsure.addArgument("--state-verify")
+        .action(store())
+        .type(String.class)
+        .choices(VERIFY_CLUSTER_ID, VERIFY_NONE)
+        .setDefault(VERIFY_CLUSTER_ID)
+        .help("Check done before reusing a remembered run: compare the cluster id with one "
+            + "request, or none.");
+
+    topicEnsure.addArgument("--watch")
+        .action(store())
+        .type(Boolean.class)
+        .setDefault(false)
+        .help("Keep running after ensuring all topics, and ensure the topics that are added or "
+            + "modified whenever the file changes. Removed topics are not deleted.");
+
     return topicEnsure;
   }
 
+  /**
+   * Parses the arguments the way {@link #run(String[], AdminClient, PrintStream, PrintStream)}
+   * does, without running the command.
+   *
+   * @return whether the arguments ask for watch mode; false if they cannot be parsed or ask for
+   *     help, which running the command reports.
+   */
+  public static boolean isWatch(String[] args) {
+    List<String> arguments = Arrays.asList(args);
+    if (arguments.contains("-h") || arguments.contains("--help")) {
+      return false;
+    }
+    try {
+      return createArgsParser().parseArgs(args).getBoolean("watch");
+    } catch (ArgumentParserException e) {
+      return false;
+    }
+  }
+
   public static void main(String[] args) {
+    boolean success = run(args, null, System.out, System.err);
+
+    if (success) {
+      System.exit(0);
+    } else {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Prints the outcome of ensuring a single topic.
+   *
+   * @return whether the topic exists (or was created) and is valid.
+   */
+  private static boolean printResult(
+      TopicEnsure.TopicResult result,
+      boolean createIfNotExists,
+      PrintStream err
+  ) {
+    TopicSpec spec = result.spec();
+    boolean success = result.exists();
+    err.printf("Topic [ %s ] exists ? %s\n", spec.name(), success);
+    if (success) {
+      if (result.replicationFactorIncreased()) {
+        err.printf("Topic [ %s ] replication factor increased from %d to %d\n",
+            spec.name(), result.previousReplicationFactor(), spec.replicationFactor());
+      }
+      if (result.partitionsIncreased()) {
+        err.printf("Topic [ %s ] partitions increased from %d to %d\n",
+            spec.name(), result.previousPartitions(), spec.requiredPartitions());
+      }
+      if (!result.changes().isEmpty()) {
+        err.printf("Topic [ %s ] reconciled: %s\n", spec.name(), result.changes());
+      }
+      success = result.valid();
+      err.printf("Topic spec [ %s ] valid ? %s\n", spec, success);
+    } else if (createIfNotExists) {
+      success = result.created();
+      err.printf("Topic [ %s ] created with spec: [ %s ] \n", spec.name(), spec);
+    }
+    return success;
+  }
+
+  /**
+   * Checks whether the state file remembers a successful run with the same inputs that can be
+   * reused, verifying the cluster id unless configured not to.
+   */
+  private static boolean isUnchanged(
+      TopicEnsureCache cache,
+      String digest,
+      Namespace res,
+      TopicEnsure topicEnsure,
+      PrintStream err
+  ) throws Exception {
+    String clusterId = cache.freshClusterId(digest, res.getLong("state_ttl"));
+    if (clusterId == null) {
+      return false;
+    }
+    if (VERIFY_CLUSTER_ID.equals(res.getString("state_verify"))
+        && !clusterId.equals(topicEnsure.clusterId(res.getInt("timeout")))) {
+      log.info("Cluster id differs from the one in {}, validating all topics.",
+          res.getString("state_file"));
+      return false;
+    }
+    err.printf("Topic spec [ %s ] unchanged since the last successful run, skipping validation\n",
+        res.getString("file"));
+    return true;
+  }
+
+  /**
+   * Remembers a successful run, or forgets the previous one so that the next run validates all
+   * topics. Failing to fetch the cluster id or to write the state file does not fail the
+   * command, since the topics themselves are ensured; the next run then validates all topics.
+   */
+  private static void updateState(
+      TopicEnsureCache cache,
+      String digest,
+      boolean success,
+      int timeOut,
+      TopicEnsure topicEnsure
+  ) {
+    try {
+      if (success) {
+        cache.store(digest, topicEnsure.clusterId(timeOut));
+      } else {
+        cache.clear();
+      }
+    } catch (Exception e) {
+      log.warn("Could not update the state file.", e);
+    }
+  }
+
+  /**
+   * Reports the leader distribution of the ensured topics and elects their preferred leaders, if
+   * requested. Failing to do so is logged but does not fail the command, since the topics
+   * themselves are ensured.
+   */
+  private static void balanceLeaders(
+      TopicEnsure topicEnsure,
+      Collection<String> topics,
+      Namespace res
+  ) {
+    boolean elect = res.getBoolean("elect_preferred_leaders");
+    if (topics.isEmpty() || !(elect || res.getBoolean("leader_report"))) {
+      return;
+    }
+    try {
+      topicEnsure.balanceLeaders(topics, elect, res.getInt("timeout"), res.getInt("batch_size"));
+    } catch (Exception e) {
+      log.error("Error while balancing the leaders of the ensured topics.", e);
+    }
+  }
+
+  /**
+   * Ensures all topics of the spec file, then the topics added or modified whenever the file
+   * changes, on the same client. Topics that were not processed because of an error are retried
+   * with a backoff; invalid topics are only retried once their spec changes.
+   *
+   * @param unchanged whether the state file showed that the current spec was already ensured.
+   */
+  private static void watch(
+      TopicEnsure topicEnsure,
+      Namespace res,
+      boolean createIfNotExists,
+      boolean reconcile,
+      boolean unchanged,
+      PrintStream err
+  ) throws Exception {
+    RetryPolicy retryPolicy = ExponentialRetryPolicy.defaultPolicy();
+    int failures = 0;
+    try (TopicSpecWatcher watcher = new TopicSpecWatcher(Paths.get(res.getString("file")))) {
+      if (unchanged) {
+        watcher.changes();
+      }
+      while (!Thread.currentThread().isInterrupted()) {
+        List<TopicSpec> changes;
+        try {
+          changes = watcher.changes();
+        } catch (IOException e) {
+          log.error("Could not read the topic spec, waiting for the next change.", e);
+          changes = Collections.emptyList();
+        }
+
+        if (!changes.isEmpty()) {
+          log.info("Ensuring {} added or modified topics.", changes.size());
+          Set<String> processed = new HashSet<>();
+          List<String> ensured = new ArrayList<>();
+          try {
+            topicEnsure.ensureTopics(
+                changes.iterator(),
+                createIfNotExists,
+                reconcile,
+                res.getInt("timeout"),
+                res.getInt("batch_size"),
+                result -> {
+                  processed.add(result.spec().name());
+                  if (printResult(result, createIfNotExists, err)) {
+                    ensured.add(result.spec().name());
+                  }
+                }
+            );
+          } catch (Exception e) {
+            log.error("Error while ensuring topics, retrying.", e);
+          }
+          balanceLeaders(topicEnsure, ensured, res);
+          List<TopicSpec> unprocessed = new ArrayList<>();
+          for (TopicSpec spec : changes) {
+            if (!processed.contains(spec.name())) {
+              unprocessed.add(spec);
+            }
+          }
+          if (unprocessed.isEmpty()) {
+            failures = 0;
+          } else {
+            watcher.retry(unprocessed);
+            failures++;
+          }
+        }
+
+        watcher.await(failures > 0 ? retryPolicy.backoffMs(failures, Long.MAX_VALUE)
+            : Long.MAX_VALUE);
+      }
+    }
+  }
+
+  /**
+   * Runs the command and returns whether all topics exist (or were created) and are valid.
+   *
+   * @param args command line arguments.
+   * @param adminClient connected client to use instead of creating one from the client config,
+   *     or null to create one.
+   * @param out stream the help text is printed to.
+   * @param err stream per-topic results and argument errors are printed to.
+   */
+  public static boolean run(
+      String[] args,
+      AdminClient adminClient,
+      PrintStream out,
+      PrintStream err
+  ) {
     ArgumentParser parser = createArgsParser();
     boolean success = false;
+    String metricsFile = null;
     try {
       Namespace res = parser.parseArgs(args);
       log.debug("Arguments {}. ", res);
+      metricsFile = res.getString("metrics_file");
 
-      TopicEnsure topicEnsure = new TopicEnsure(Utils.loadProps(res.getString("config")));
-      ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-      TopicSpec.Topics topics = mapper.readValue(
-          new File(res.getString("file")), TopicSpec.Topics.class
-      );
-
-      for (TopicSpec spec : topics.topics()) {
-        success = topicEnsure.topicExists(spec, res.getInt("timeout"));
-        System.err.printf("Topic [ %s ] exists ? %s\n", spec.name(), success);
-        if (success) {
-          success = topicEnsure.validateTopic(spec, res.getInt("timeout"));
-          System.err.printf("Topic spec [ %s ] valid ? %s\n", spec, success);
-          if (!success) {
-            break;
+      // Closes the client only if it was created here, not a client given by the caller.
+      try (TopicEnsure topicEnsure = adminClient != null
+          ? new TopicEnsure(adminClient, err)
+          : new TopicEnsure(Utils.loadProps(res.getString("config")))) {
+        topicEnsure.setReplicationThrottle(res.getLong("replication_throttle"));
+        topicEnsure.setReassignmentTimeout(res.getInt("reassignment_timeout"));
+        topicEnsure.setBalancedPlacement(res.getBoolean("balanced_placement"));
+        boolean createIfNotExists = res.getBoolean("create_if_not_exists");
+        boolean reconcile = res.getBoolean("reconcile");
+
+        TopicEnsureCache cache = null;
+        String digest = null;
+        if (res.getString("state_file") != null) {
+          cache = new TopicEnsureCache(Paths.get(res.getString("state_file")));
+          digest = TopicEnsureCache.digest(
+              Arrays.asList(Paths.get(res.getString("file")), Paths.get(res.getString("config"))),
+              String.valueOf(createIfNotExists),
+              String.valueOf(reconcile),
+              String.valueOf(res.getBoolean("balanced_placement"))
+          );
+        }
+
+        boolean unchanged = cache != null && isUnchanged(cache, digest, res, topicEnsure, err);
+        if (res.getBoolean("watch")) {
+          // Only returns when interrupted.
+          watch(topicEnsure, res, createIfNotExists, reconcile, unchanged, err);
+        } else if (unchanged) {
+          success = true;
+        } else {
+          // Holds the success of the last processed topic.
+          AtomicBoolean lastSuccess = new AtomicBoolean(false);
+          // Only a run in which every topic succeeded is remembered in the state file.
+          AtomicBoolean allSucceeded = new AtomicBoolean(true);
+          List<String> ensured = new ArrayList<>();
+          try (TopicSpecReader specs = TopicSpecReader.open(new File(res.getString("file")))) {
+            topicEnsure.ensureTopics(
+                specs,
+                createIfNotExists,
+                reconcile,
+                res.getInt("timeout"),
+                res.getInt("batch_size"),
+                result -> {
+                  lastSuccess.set(printResult(result, createIfNotExists, err));
+                  if (lastSuccess.get()) {
+                    ensured.add(result.spec().name());
+                  } else {
+                    allSucceeded.set(false);
+                  }
+                }
+            );
+          }
+          success = lastSuccess.get();
+          balanceLeaders(topicEnsure, ensured, res);
+
+          if (cache != null) {
+            updateState(cache, digest, success && allSucceeded.get(), res.getInt("timeout"),
+                topicEnsure);
           }
-        } else if (res.getBoolean("create_if_not_exists")) {
-          success = topicEnsure.createTopic(spec, res.getInt("timeout"));
-          System.err.printf("Topic [ %s ] created with spec: [ %s ] \n", spec.name(), spec);
         }
       }
     } catch (ArgumentParserException e) {
       if (args.length == 0) {
-        parser.printHelp();
+        parser.printHelp(new PrintWriter(out, true));
         success = true;
-      } else {
-        parser.handleError(e);
+      } else if (!(e instanceof HelpScreenException)) {
+        PrintWriter writer = new PrintWriter(err, true);
+        parser.printUsage(writer);
+        writer.printf("%s: error: %s%n", TOPIC_ENSURE, e.getMessage());
       }
     } catch (Exception e) {
       log.error("Error while running topic-ensure {}.", e);
       success = false;
     }
-
-    if (success) {
-      System.exit(0);
-    } else {
-      System.exit(1);
+    if (metricsFile != null) {
+      try {
+        UtilityBeltMetrics.get().writePrometheusFile(Paths.get(metricsFile));
+      } catch (IOException e) {
+        log.warn("Could not write metrics to {}.", metricsFile, e);
+      }
     }
+    return success;
   }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This command forwards a kafka-ready or topic-ensure invocation to a running
+ * {@link UtilityBeltDaemon} and exits with the exit code of the forwarded command.
+ * It deliberately avoids argument parsing libraries and Kafka classes so it starts quickly.
+ * usage: utility-belt-client SOCKET COMMAND [ARGS ...]
+ * where:
+ * socket                 : path of the Unix domain socket the daemon listens on.
+ * command                : kafka-ready or topic-ensure.
+ * args                   : arguments of the forwarded command.
+ */
+public class UtilityBeltClient {
+
+  public static final String UTILITY_BELT_CLIENT = "utility-belt-client";
+
+  /**
+   * Forwards a command to the daemon, copying its output to {@code out}.
+   *
+   * @return the exit code of the forwarded command, or 1 if the daemon could not be reached.
+   */
+  public static int forward(String socket, String command, String[] args, PrintStream out) {
+    // The request is line based and terminated by an empty line.
+    for (String arg : args) {
+      if (arg.isEmpty() || arg.indexOf('\n') >= 0) {
+        out.printf("Arguments must be non-empty and single line, got [ %s ].%n", arg);
+        return 1;
+      }
+    }
+
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.name());
+      writer.write(command);
+      writer.write('\n');
+      for (String arg : args) {
+        writer.write(arg);
+        writer.write('\n');
+      }
+      writer.write('\n');
+      writer.flush();
+
+      BufferedReader reader = new BufferedReader(
+          Channels.newReader(channel, StandardCharsets.UTF_8.name())
+      );
+      String previous = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (previous != null) {
+          out.println(previous);
+        }
+        previous = line;
+      }
+      if (previous == null || !previous.startsWith(UtilityBeltDaemon.EXIT_CODE_PREFIX)) {
+        out.println("Daemon closed the connection without an exit code.");
+        return 1;
+      }
+      return Integer.parseInt(
+          previous.substring(UtilityBeltDaemon.EXIT_CODE_PREFIX.length()).trim()
+      );
+    } catch (IOException | NumberFormatException e) {
+      out.printf("Error while forwarding %s to %s: %s%n", command, socket, e);
+      return 1;
+    }
+  }
+
+  public static void main(String[] args) {
+    if (args.length < 2) {
+      System.err.printf("usage: %s SOCKET COMMAND [ARGS ...]%n", UTILITY_BELT_CLIENT);
+      System.exit(1);
+    }
+    String[] commandArgs = new String[args.length - 2];
+    System.arraycopy(args, 2, commandArgs, 0, commandArgs.length);
+    System.exit(forward(args[0], args[1], commandArgs, System.err));
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils.cli;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import io.confluent.kafkaensure.cli.AclEnsureCommand;
+import io.confluent.kafkaensure.cli.TopicEnsureCommand;
+
+/**
+ * Runs, by name, the commands that can share a connected AdminClient, as done by
+ * {@link UtilityBeltDaemon} and {@link UtilityBeltPipeline}. Commands take the same arguments as
+ * when run directly, but use the shared client instead of the connection settings they are
+ * given. Commands that never complete, such as topic-ensure in watch mode, are rejected.
+ */
+final class UtilityBeltCommands {
+
+  private static final Logger log = LogManager.getLogger(UtilityBeltCommands.class);
+
+  private UtilityBeltCommands() {
+  }
+
+  /**
+   * @param request the command name followed by its arguments.
+   * @param adminClient client the command uses; it is not closed.
+   * @param out stream the output of the command is printed to.
+   * @return whether the command succeeded.
+   */
+  static boolean run(List<String> request, AdminClient adminClient, PrintStream out) {
+    if (request.isEmpty()) {
+      out.println("No command given.");
+      return false;
+    }
+    String command = request.get(0);
+    String[] args = request.subList(1, request.size()).toArray(new String[0]);
+    log.debug("Running {} with arguments {}.", command, request.subList(1, request.size()));
+
+    switch (command) {
+      case KafkaReadyCommand.KAFKA_READY:
+        return KafkaReadyCommand.run(args, adminClient, out, out);
+      case TopicEnsureCommand.TOPIC_ENSURE:
+        if (TopicEnsureCommand.isWatch(args)) {
+          // A watch never completes and would hold a daemon worker or a pipeline forever.
+          out.println("--watch is not supported by the daemon or pipelines.");
+          return false;
+        }
+        return TopicEnsureCommand.run(args, adminClient, out, out);
+      case AclEnsureCommand.ACL_ENSURE:
+        return AclEnsureCommand.run(args, adminClient, out, out);
+      default:
+        out.printf("Unknown command [ %s ].%n", command);
+        return false;
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils.cli;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+import static net.sourceforge.argparse4j.impl.Arguments.store;
+
+/**
+ * This command keeps a JVM and a connected AdminClient warm and runs kafka-ready, topic-ensure
+ * and acl-ensure requests received over a Unix domain socket, see {@link UtilityBeltClient}.
+ * Forwarded commands take the same arguments as when run directly, but always use the daemon's
+ * client instead of the connection settings they are given.
+ * where:
+ * socket                 : path of the Unix domain socket to listen on.
+ * config                 : path to properties with client config.
+ * bootstrap-servers      : list of bootstrap brokers.
+ * threads                : number of requests handled concurrently.
+ */
+public class UtilityBeltDaemon implements Closeable {
+
+  private static final Logger log = LogManager.getLogger(UtilityBeltDaemon.class);
+  public static final String UTILITY_BELT_DAEMON = "utility-belt-daemon";
+
+  /**
+   * Prefix of the last line of every response, followed by the command's exit code.
+   */
+  static final String EXIT_CODE_PREFIX = "exit-code: ";
+
+  private final AdminClient adminClient;
+  private final Path socketPath;
+  private final ServerSocketChannel server;
+  private final ExecutorService executor;
+
+  public UtilityBeltDaemon(AdminClient adminClient, Path socketPath, int threads)
+      throws IOException {
+    this.adminClient = adminClient;
+    this.socketPath = socketPath;
+    // A socket file left behind by a daemon that did not shut down cleanly prevents binding.
+    Files.deleteIfExists(socketPath);
+    this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    this.server.bind(UnixDomainSocketAddress.of(socketPath));
+    try {
+      Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+    } catch (UnsupportedOperationException e) {
+      log.warn("Could not restrict permissions of socket {}.", socketPath);
+    }
+    this.executor = Executors.newFixedThreadPool(threads);
+  }
+
+  /**
+   * Accepts and handles requests until the daemon is closed.
+   */
+  public void serve() throws IOException {
+    log.info("Listening on {}.", socketPath);
+    while (server.isOpen()) {
+      SocketChannel channel;
+      try {
+        channel = server.accept();
+      } catch (ClosedChannelException e) {
+        break;
+      }
+      executor.execute(() -> handle(channel));
+    }
+  }
+
+  /**
+   * Reads one request, made of the command name and its arguments one per line and terminated by
+   * an empty line, runs it and writes its output followed by the exit code.
+   */
+  private void handle(SocketChannel channel) {
+    try (SocketChannel c = channel;
+         BufferedReader reader = new BufferedReader(
+             Channels.newReader(c, StandardCharsets.UTF_8.name()));
+         PrintStream out = new PrintStream(
+             Channels.newOutputStream(c), true, StandardCharsets.UTF_8.name())) {
+      List<String> request = new ArrayList<>();
+      boolean complete = false;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          complete = true;
+          break;
+        }
+        request.add(line);
+      }
+      if (!complete) {
+        log.warn("Ignoring incomplete request {}.", request);
+        return;
+      }
+      int exitCode = execute(request, out);
+      out.println(EXIT_CODE_PREFIX + exitCode);
+    } catch (Exception e) {
+      log.error("Error while handling request.", e);
+    }
+  }
+
+  int execute(List<String> request, PrintStream out) {
+    return UtilityBeltCommands.run(request, adminClient, out) ? 0 : 1;
+  }
+
+  @Override
+  public void close() throws IOException {
+    server.close();
+    executor.shutdown();
+    try {
+      executor.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    adminClient.close();
+    Files.deleteIfExists(socketPath);
+  }
+
+  private static ArgumentParser createArgsParser() {
+    ArgumentParser daemon = ArgumentParsers
+        .newArgumentParser(UTILITY_BELT_DAEMON)
+        .defaultHelp(true)
+        .description("Serve kafka-ready, topic-ensure and acl-ensure requests from a warm JVM.");
+
+    daemon.addArgument("--socket")
+        .action(store())
+        .required(true)
+        .type(String.class)
+        .metavar("SOCKET")
+        .help("Path of the Unix domain socket to listen on.");
+
+    daemon.addArgument("--config", "-c")
+        .action(store())
+        .type(String.class)
+        .metavar("CONFIG")
+        .help("Client config.");
+
+    daemon.addArgument("--bootstrap-servers", "-b")
+        .action(store())
+        .type(String.class)
+        .metavar("BOOTSTRAP_SERVERS")
+        .help("List of bootstrap brokers.");
+
+    daemon.addArgument("--threads")
+        .action(store())
+        .type(Integer.class)
+        .setDefault(4)
+        .metavar("THREADS")
+        .help("Number of requests handled concurrently.");
+
+    return daemon;
+  }
+
+  public static void main(String[] args) {
+    ArgumentParser parser = createArgsParser();
+    boolean success = false;
+    try {
+      Namespace res = parser.parseArgs(args);
+      log.debug("Arguments {}. ", res);
+
+      Properties props = new Properties();
+      if (res.getString("config") != null) {
+        props = Utils.loadProps(res.getString("config"));
+      }
+      if (res.getString("bootstrap_servers") != null) {
+        props.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, res.getString("bootstrap_servers"));
+      }
+      if (!props.containsKey(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG)) {
+        throw new RuntimeException(
+            "Bootstrap servers should be provided through config or bootstrap_servers"
+        );
+      }
+
+      UtilityBeltDaemon daemon = new UtilityBeltDaemon(
+          AdminClient.create(props), Paths.get(res.getString("socket")), res.getInt("threads")
+      );
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          daemon.close();
+        } catch (IOException e) {
+          log.error("Error while shutting down.", e);
+        }
+      }));
+      daemon.serve();
+      success = true;
+    } catch (ArgumentParserException e) {
+      if (args.length == 0) {
+        parser.printHelp();
+        success = true;
+      } else {
+        parser.handleError(e);
+      }
+    } catch (Exception e) {
+      log.error("Error while running utility-belt-daemon.", e);
+      success = false;
+    }
+
+    if (success) {
+      System.exit(0);
+    } else {
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2017 Confluent Inc.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.confluent.admin.utils.cli;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static net.sourceforge.argparse4j.impl.Arguments.append;
+import static net.sourceforge.argparse4j.impl.Arguments.store;
+
+/**
+ * This command runs several kafka-ready, topic-ensure and acl-ensure steps, in order, in a single
+ * JVM and with a single AdminClient, so that a startup script pays for one JVM start and one
+ * connection to the cluster instead of one per command. Steps take the same arguments as when run
+ * directly, but always use the pipeline's client instead of the connection settings they are
+ * given. The pipeline stops at the first step that fails.
+ * where:
+ * config                 : path to properties with client config.
+ * bootstrap-servers      : list of bootstrap brokers.
+ * step                   : a command and its arguments separated by whitespace, e.g.
+ *                          "kafka-ready 3 60000"; repeat for every step. Arguments containing
+ *                          whitespace can be quoted as in a shell.
+ */
+public class UtilityBeltPipeline {
+
+  private static final Logger log = LogManager.getLogger(UtilityBeltPipeline.class);
+  public static final String UTILITY_BELT_PIPELINE = "utility-belt-pipeline";
+
+  private UtilityBeltPipeline() {
+  }
+
+  /**
+   * Runs the steps in order until one fails, and prints how long each step took.
+   *
+   * @param steps every step as its command name followed by its arguments.
+   * @param adminClient client shared by all steps; it is not closed.
+   * @param out stream the output of the steps is printed to.
+   * @return whether all steps succeeded.
+   */
+  static boolean run(List<List<String>> steps, AdminClient adminClient, PrintStream out) {
+    for (List<String> step : steps) {
+      long begin = Time.SYSTEM.milliseconds();
+      boolean success = UtilityBeltCommands.run(step, adminClient, out);
+      long elapsedMs = Time.SYSTEM.milliseconds() - begin;
+      out.printf("Step [ %s ] %s in %d ms%n",
+          String.join(" ", step), success ? "succeeded" : "failed", elapsedMs);
+      if (!success) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Splits a step into its command and arguments the way a shell does: on whitespace, except
+   * inside single or double quotes. A backslash escapes the next character, except inside single
+   * quotes; inside double quotes it only escapes a double quote or a backslash.
+   *
+   * @throws IllegalArgumentException if a quote is not closed or the step ends with a backslash.
+   */
+  static List<String> parseStep(String step) {
+    List<String> parsed = new ArrayList<>();
+    StringBuilder token = new StringBuilder();
+    boolean inToken = false;
+    char quote = 0;
+    for (int i = 0; i < step.length(); i++) {
+      char c = step.charAt(i);
+      if (quote == '\'') {
+        if (c == '\'') {
+          quote = 0;
+        } else {
+          token.append(c);
+        }
+      } else if (c == '\\') {
+        if (++i == step.length()) {
+          throw new IllegalArgumentException("Step [ " + step + " ] ends with a backslash");
+        }
+        char escaped = step.charAt(i);
+        if (quote == '"' && escaped != '"' && escaped != '\\') {
+          token.append(c);
+        }
+        token.append(escaped);
+        inToken = true;
+      } else if (quote == '"') {
+        if (c == '"') {
+          quote = 0;
+        } else {
+          token.append(c);
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+        inToken = true;
+      } else if (Character.isWhitespace(c)) {
+        if (inToken) {
+          parsed.add(token.toString());
+          token.setLength(0);
+          inToken = false;
+        }
+      } else {
+        token.append(c);
+        inToken = true;
+      }
+    }
+    if (quote != 0) {
+      throw new IllegalArgumentException("Step [ " + step + " ] has an unclosed " + quote);
+    }
+    if (inToken) {
+      parsed.add(token.toString());
+    }
+    return parsed;
+  }
+
+  private static ArgumentParser createArgsParser() {
+    ArgumentParser pipeline = ArgumentParsers
+        .newArgumentParser(UTILITY_BELT_PIPELINE)
+        .defaultHelp(true)
+        .description(
+            "Run kafka-ready, topic-ensure and acl-ensure steps with a single admin client.");
+
+    pipeline.addArgument("--config", "-c")
+        .action(store())
+        .type(String.class)
+        .metavar("CONFIG")
+        .help("Client config.");
+
+    pipeline.addArgument("--bootstrap-servers", "-b")
+        .action(store())
+        .type(String.class)
+        .metavar("BOOTSTRAP_SERVERS")
+        .help("List of bootstrap brokers.");
+
+    pipeline.addArgument("--step")
+        .action(append())
+        .required(true)
+        .type(String.class)
+        .metavar("STEP")
+        .help("A command and its arguments separated by whitespace, e.g. \"kafka-ready 3 60000\". "
+            + "Arguments containing whitespace can be quoted as in a shell. Repeat for every "
+            + "step; steps run in the given order.");
+
+    return pipeline;
+  }
+
+  public static void main(String[] args) {
+    ArgumentParser parser = createArgsParser();
+    boolean success = false;
+    try {
+      Namespace res = parser.parseArgs(args);
+      log.debug("Arguments {}. ", res);
+
+      List<List<String>> steps = new ArrayList<>();
+      for (String step : res.<String>getList("step")) {
+        try {
+          steps.add(parseStep(step));
+        } catch (IllegalArgumentException e) {
+          throw new ArgumentParserException(e.getMessage(), parser);
+        }
+      }
+
+      Properties props = new Properties();
+      if (res.getString("config") != null) {
+        props = Utils.loadProps(res.getString("config"));
+      }
+      if (res.getString("bootstrap_servers") != null) {
+        props.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, res.getString("bootstrap_servers"));
+      }
+      if (!props.containsKey(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG)) {
+        throw new RuntimeException(
+            "Bootstrap servers should be provided through config or bootstrap_servers"
+        );
+      }
+
+      try (AdminClient adminClient = AdminClient.create(props)) {
+        success = run(steps, adminClient, System.out);
+      }
+    } catch (ArgumentParserException e) {
+      if (args.length == 0) {
+        parser.printHelp();
+        success = true;
+      } else {
+        parser.handleError(e);
+      }
+    } catch (Exception e) {
+      log.error("Error while running utility-belt-pipeline.", e);
+      success = false;
+    }
+
+    if (success) {
+      System.exit(0);
+    } else {
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.acl.AccessControlEntry;
+import org.apache.kafka.common.acl.AclBinding;
+import org.apache.kafka.common.acl.AclBindingFilter;
+import org.apache.kafka.common.acl.AclOperation;
+import org.apache.kafka.common.acl.AclPermissionType;
+import org.apache.kafka.common.resource.PatternType;
+import org.apache.kafka.common.resource.ResourcePattern;
+import org.apache.kafka.common.resource.ResourceType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.confluent.kafkaensure.cli.AclEnsureCommand;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class AclEnsureTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File write(String yaml) throws Exception {
+    File file = folder.newFile();
+    Files.write(file.toPath(), yaml.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static AclBinding binding(
+      String principal,
+      ResourceType resourceType,
+      String name,
+      AclOperation operation
+  ) {
+    return new AclBinding(
+        new ResourcePattern(resourceType, name, PatternType.LITERAL),
+        new AccessControlEntry(principal, "*", operation, AclPermissionType.ALLOW));
+  }
+
+  @Test
+  public void readsOneBindingPerOperation() throws Exception {
+    List<AclSpec> specs = AclSpec.read(write(
+        "acls:\n"
+            + "  - principal: User:orders\n"
+            + "    resourceType: topic\n"
+            + "    resourceName: orders-\n"
+            + "    patternType: prefixed\n"
+            + "    operations: [read, describe]\n"
+            + "  - principal: User:orders\n"
+            + "    resourceType: group\n"
+            + "    resourceName: orders\n"
+            + "    permission: deny\n"
+            + "    host: 10.0.0.1\n"
+            + "    operations: [read]\n"));
+
+    assertThat(AclSpec.bindings(specs)).containsExactly(
+        new AclBinding(new ResourcePattern(ResourceType.TOPIC, "orders-", PatternType.PREFIXED),
+            new AccessControlEntry("User:orders", "*", AclOperation.READ,
+                AclPermissionType.ALLOW)),
+        new AclBinding(new ResourcePattern(ResourceType.TOPIC, "orders-", PatternType.PREFIXED),
+            new AccessControlEntry("User:orders", "*", AclOperation.DESCRIBE,
+                AclPermissionType.ALLOW)),
+        new AclBinding(new ResourcePattern(ResourceType.GROUP, "orders", PatternType.LITERAL),
+            new AccessControlEntry("User:orders", "10.0.0.1", AclOperation.READ,
+                AclPermissionType.DENY)));
+  }
+
+  @Test
+  public void emptySpecHasNoBindings() throws Exception {
+    for (String yaml : Arrays.asList("", "acls:\n", "acls: []\n")) {
+      assertThat(AclSpec.bindings(AclSpec.read(write(yaml)))).isEmpty();
+    }
+  }
+
+  @Test
+  public void rejectsInvalidSpecs() {
+    List<AclSpec> invalid = Arrays.asList(
+        new AclSpec("User:orders", "topic", "orders", Collections.singletonList("reed")),
+        new AclSpec("User:orders", "any", "orders", Collections.singletonList("read")),
+        new AclSpec("User:orders", "topic", "orders", Collections.emptyList()),
+        new AclSpec(null, "topic", "orders", Collections.singletonList("read")),
+        new AclSpec("User:orders", null, "orders", Collections.singletonList("read")));
+    for (AclSpec spec : invalid) {
+      try {
+        spec.bindings();
+        fail("Expected an invalid spec: " + spec);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void filterMatchesSharedAttributesExactly() {
+    AclBindingFilter filter = AclEnsure.filterFor(Arrays.asList(
+        binding("User:orders", ResourceType.TOPIC, "orders", AclOperation.READ),
+        binding("User:orders", ResourceType.TOPIC, "payments", AclOperation.WRITE)));
+
+    assertThat(filter.patternFilter().resourceType()).isEqualTo(ResourceType.TOPIC);
+    assertThat(filter.patternFilter().name()).isNull();
+    assertThat(filter.patternFilter().patternType()).isEqualTo(PatternType.LITERAL);
+    assertThat(filter.entryFilter().principal()).isEqualTo("User:orders");
+    assertThat(filter.entryFilter().host()).isEqualTo("*");
+    assertThat(filter.entryFilter().operation()).isEqualTo(AclOperation.ANY);
+    assertThat(filter.entryFilter().permissionType()).isEqualTo(AclPermissionType.ALLOW);
+
+    AclBindingFilter any = AclEnsure.filterFor(Arrays.asList(
+        binding("User:orders", ResourceType.TOPIC, "orders", AclOperation.READ),
+        binding("User:payments", ResourceType.GROUP, "orders", AclOperation.READ)));
+    assertThat(any.patternFilter().resourceType()).isEqualTo(ResourceType.ANY);
+    assertThat(any.patternFilter().name()).isEqualTo("orders");
+    assertThat(any.entryFilter().principal()).isNull();
+  }
+
+  @Test
+  public void driftFilterMatchesAllBindingsOfThePrincipal() {
+    AclBindingFilter filter = AclEnsure.driftFilterFor(Arrays.asList(
+        binding("User:orders", ResourceType.TOPIC, "orders", AclOperation.READ),
+        binding("User:orders", ResourceType.TOPIC, "payments", AclOperation.WRITE)));
+
+    assertThat(filter.patternFilter().resourceType()).isEqualTo(ResourceType.ANY);
+    assertThat(filter.patternFilter().name()).isNull();
+    assertThat(filter.patternFilter().patternType()).isEqualTo(PatternType.ANY);
+    assertThat(filter.entryFilter().principal()).isEqualTo("User:orders");
+    assertThat(filter.entryFilter().host()).isNull();
+    assertThat(filter.entryFilter().operation()).isEqualTo(AclOperation.ANY);
+    assertThat(filter.entryFilter().permissionType()).isEqualTo(AclPermissionType.ANY);
+
+    assertThat(AclEnsure.driftFilterFor(Arrays.asList(
+        binding("User:orders", ResourceType.TOPIC, "orders", AclOperation.READ),
+        binding("User:payments", ResourceType.TOPIC, "orders", AclOperation.READ))
+    ).entryFilter().principal()).isNull();
+  }
+
+  @Test
+  public void comparesExpectedAndExistingBindings() {
+    AclBinding read = binding("User:orders", ResourceType.TOPIC, "orders", AclOperation.READ);
+    AclBinding write = binding("User:orders", ResourceType.TOPIC, "orders", AclOperation.WRITE);
+    AclBinding drift = binding("User:orders", ResourceType.TOPIC, "orders", AclOperation.DELETE);
+    AclBinding other = binding("User:payments", ResourceType.TOPIC, "orders", AclOperation.READ);
+    // Outside the exact-match filter of the spec, only returned by the drift filter.
+    AclBinding group = binding("User:orders", ResourceType.GROUP, "orders", AclOperation.READ);
+
+    AclEnsure.Result result = AclEnsure.compare(
+        Arrays.asList(read, write),
+        Collections.singletonList(read),
+        Arrays.asList(read, drift, other, group));
+
+    assertThat(result.existing()).containsExactly(read);
+    assertThat(result.missing()).containsExactly(write);
+    assertThat(result.unexpected()).containsExactly(drift, group);
+    assertThat(result.success()).isFalse();
+  }
+
+  @Test
+  public void commandChecksSpecBeforeConnecting() throws Exception {
+    List<Node> brokers = Collections.singletonList(new Node(0, "localhost", 9092));
+    MockAdminClient adminClient = new MockAdminClient(brokers, brokers.get(0));
+    String config = write("bootstrap.servers=localhost:9092\n").toString();
+    PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+
+    // MockAdminClient does not support ACLs, so only runs without requests can succeed.
+    assertThat(AclEnsureCommand.run(new String[]{"--timeout", "1000", "--config", config,
+        "--file", write("acls: []\n").toString()}, adminClient, nowhere, nowhere)).isTrue();
+    assertThat(AclEnsureCommand.run(new String[]{"--timeout", "1000", "--config", config,
+        "--file", write("acls:\n  - principal: User:orders\n    resourceType: topic\n"
+            + "    resourceName: orders\n    operations: [reed]\n").toString()},
+        adminClient, nowhere, nowhere)).isFalse();
+  }
+}
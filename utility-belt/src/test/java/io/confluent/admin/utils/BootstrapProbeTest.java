@@ -0,0 +1,112 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.admin.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.List;
+
+import io.confluent.admin.utils.cli.KafkaReadyCommand;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BootstrapProbeTest {
+
+  private static final int TIMEOUT_MS = 5000;
+
+  private ServerSocket listening;
+  private int closedPort;
+
+  @Before
+  public void setUp() throws Exception {
+    listening = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    try (ServerSocket closed = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      closedPort = closed.getLocalPort();
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    listening.close();
+  }
+
+  @Test
+  public void reportsEveryEndpoint() throws Exception {
+    BootstrapProbe probe = new BootstrapProbe(
+        "127.0.0.1:" + closedPort + ", PLAINTEXT://127.0.0.1:" + listening.getLocalPort()
+            + ",broker.invalid:9092,no-port");
+
+    List<BootstrapProbe.Endpoint> results = probe.probe(TIMEOUT_MS);
+
+    assertThat(results).extracting("address").containsExactly(
+        "127.0.0.1:" + closedPort, "PLAINTEXT://127.0.0.1:" + listening.getLocalPort(),
+        "broker.invalid:9092", "no-port");
+    assertThat(results.get(0).reachable()).isFalse();
+    assertThat(results.get(1).reachable()).isTrue();
+    assertThat(results.get(2).reachable()).isFalse();
+    assertThat(results.get(3).reachable()).isFalse();
+    assertThat(results.get(1).connectMs()).isBetween(0L, (long) TIMEOUT_MS);
+    assertThat(results.get(0).connectMs()).isEqualTo(-1);
+    assertThat(results.get(2).error()).contains("broker.invalid");
+    assertThat(results.get(3).error()).contains("invalid address");
+    assertThat(BootstrapProbe.anyReachable(results)).isTrue();
+  }
+
+  @Test
+  public void noEndpointReachable() throws Exception {
+    BootstrapProbe probe = new BootstrapProbe("127.0.0.1:" + closedPort);
+    assertThat(BootstrapProbe.anyReachable(probe.probe(TIMEOUT_MS))).isFalse();
+    assertThat(ClusterStatus.isBootstrapReachable(
+        "127.0.0.1:" + closedPort, 500, ExponentialRetryPolicy.defaultPolicy())).isFalse();
+  }
+
+  @Test
+  public void rejectsMissingBootstrapServers() {
+    for (String bootstrapServers : new String[] {null, "", " , "}) {
+      try {
+        new BootstrapProbe(bootstrapServers);
+        throw new AssertionError("Expected [ " + bootstrapServers + " ] to be rejected");
+      } catch (IllegalArgumentException e) {
+        assertThat(e.getMessage()).contains("at least one host:port");
+      }
+    }
+  }
+
+  @Test
+  public void kafkaReadyReportsEmptyBootstrapServersAsUsageError() {
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    PrintStream errStream = new PrintStream(err, true);
+    assertThat(KafkaReadyCommand.run(
+        new String[] {"1", "1000", "--bootstrap-servers", " , "}, null, errStream, errStream))
+        .isFalse();
+    assertThat(err.toString())
+        .contains("kafka-ready: error: Bootstrap servers should list at least one host:port");
+  }
+
+  @Test
+  public void reachableOnceOneEndpointListens() {
+    assertThat(ClusterStatus.isBootstrapReachable(
+        "127.0.0.1:" + closedPort + ",127.0.0.1:" + listening.getLocalPort(),
+        TIMEOUT_MS,
+        ExponentialRetryPolicy.defaultPolicy())).isTrue();
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.admin.utils;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CanaryTest {
+
+  private static final String TOPIC = "canary";
+  private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+  private static final int RECORDS = 5;
+  private static final long MAX_LATENCY_MS = 100;
+
+  private final MockTime time = new MockTime();
+  private MockProducer<byte[], byte[]> producer;
+  private LoopbackConsumer consumer;
+  private Canary canary;
+
+  /**
+   * Hands the records sent by the producer to the consumer, each poll taking a configurable time.
+   */
+  private class LoopbackConsumer extends MockConsumer<byte[], byte[]> {
+    private long pollLatencyMs = 10;
+    private boolean deliver = true;
+    private int forwarded = 0;
+
+    LoopbackConsumer() {
+      super("latest");
+      updateEndOffsets(Collections.singletonMap(PARTITION, 0L));
+    }
+
+    @Override
+    public synchronized ConsumerRecords<byte[], byte[]> poll(Duration timeout) {
+      time.sleep(pollLatencyMs);
+      List<ProducerRecord<byte[], byte[]>> sent = producer.history();
+      while (deliver && forwarded < sent.size()) {
+        ProducerRecord<byte[], byte[]> record = sent.get(forwarded);
+        addRecord(new ConsumerRecord<>(TOPIC, 0, forwarded, record.key(), record.value()));
+        forwarded++;
+        updateEndOffsets(Collections.singletonMap(PARTITION, (long) forwarded));
+      }
+      return super.poll(timeout);
+    }
+  }
+
+  @Before
+  public void setUp() {
+    producer = new MockProducer<>(
+        true, null, new ByteArraySerializer(), new ByteArraySerializer());
+    consumer = new LoopbackConsumer();
+    canary = new Canary(producer, consumer, TOPIC, RECORDS, MAX_LATENCY_MS, time);
+  }
+
+  @Test
+  public void healthyAfterConsecutiveFastRoundTrips() throws Exception {
+    assertThat(canary.check(3, 10000)).isTrue();
+    assertThat(producer.history()).hasSize(3 * RECORDS);
+    assertThat(producer.history()).extracting("partition").containsOnly(0);
+  }
+
+  @Test
+  public void slowRoundTripStartsTheCountOver() throws Exception {
+    assertThat(canary.check(1, 10000)).isTrue();
+
+    consumer.pollLatencyMs = MAX_LATENCY_MS + 1;
+    assertThat(canary.check(3, 10000)).isFalse();
+
+    consumer.pollLatencyMs = 10;
+    assertThat(canary.check(3, 10000)).isTrue();
+    // One round trip before, one slow, then three consecutive fast ones.
+    assertThat(producer.history()).hasSize(5 * RECORDS);
+  }
+
+  @Test
+  public void failsWhenRecordsAreNotReadBack() throws Exception {
+    consumer.deliver = false;
+    try {
+      canary.check(1, 1000);
+      throw new AssertionError("Expected a timeout");
+    } catch (TimeoutException e) {
+      assertThat(e.getMessage()).contains("0 of " + RECORDS);
+    }
+
+    consumer.deliver = true;
+    assertThat(canary.check(1, 1000)).isTrue();
+  }
+
+  @Test
+  public void ignoresRecordsOfOtherCanaries() throws Exception {
+    producer.send(new ProducerRecord<>(TOPIC, 0, new byte[] {1}, new byte[12]));
+    assertThat(canary.check(2, 10000)).isTrue();
+  }
+
+  @Test
+  public void sendsBlockNoLongerThanTheCheck() {
+    assertThat(Canary.producerConfig(Collections.emptyMap(), 5000))
+        .containsEntry(ProducerConfig.MAX_BLOCK_MS_CONFIG, 5000L);
+    assertThat(Canary.producerConfig(
+        Collections.singletonMap(ProducerConfig.MAX_BLOCK_MS_CONFIG, "2000"), 5000))
+        .containsEntry(ProducerConfig.MAX_BLOCK_MS_CONFIG, 2000L);
+    assertThat(Canary.producerConfig(
+        Collections.singletonMap(ProducerConfig.MAX_BLOCK_MS_CONFIG, 60000), 5000))
+        .containsEntry(ProducerConfig.MAX_BLOCK_MS_CONFIG, 5000L);
+  }
+
+  @Test
+  public void clusterStatusRetriesTheCanary() {
+    assertThat(ClusterStatus.isCanaryHealthy(
+        canary, 2, 10000, ExponentialRetryPolicy.defaultPolicy())).isTrue();
+  }
+}
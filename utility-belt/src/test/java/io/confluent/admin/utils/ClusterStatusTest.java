@@ -16,11 +16,21 @@
 package io.confluent.admin.utils;
 
 import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.security.auth.SecurityProtocol;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -54,6 +64,78 @@ public class ClusterStatusTest {
         .isTrue();
   }
 
+  @Test(timeout = 120000)
+  public void isKafkaReadyAsync() throws Exception {
+    Map<String, Object> config = new HashMap<>();
+    config.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapBrokers
+        (SecurityProtocol.PLAINTEXT));
+    try (AdminClient adminClient = AdminClient.create(config)) {
+      assertThat(ClusterStatus.isKafkaReadyAsync(adminClient, 3, 10000)
+          .toCompletableFuture().get()).isTrue();
+      assertThat(ClusterStatus.isKafkaReadyAsync(adminClient, 5, 3000)
+          .toCompletableFuture().get()).isFalse();
+    }
+  }
+
+  @Test(timeout = 120000)
+  public void isMetadataQuorumReady() throws Exception {
+    Map<String, Object> config = new HashMap<>();
+    config.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapBrokers
+        (SecurityProtocol.PLAINTEXT));
+    RetryPolicy retryPolicy = ExponentialRetryPolicy.defaultPolicy();
+    try (AdminClient adminClient = AdminClient.create(config)) {
+      assertThat(ClusterStatus.isMetadataQuorumReady(adminClient, 1, 1000, 10000, retryPolicy))
+          .isTrue();
+      assertThat(ClusterStatus.isMetadataQuorumReady(adminClient, 3, 1000, 3000, retryPolicy))
+          .isFalse();
+    }
+  }
+
+  @Test(timeout = 120000)
+  public void isConsumerGroupCaughtUp() throws Exception {
+    Map<String, Object> config = new HashMap<>();
+    config.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapBrokers
+        (SecurityProtocol.PLAINTEXT));
+    Map<String, Object> producerConfig = new HashMap<>(config);
+    producerConfig.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+    producerConfig.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+    RetryPolicy retryPolicy = ExponentialRetryPolicy.defaultPolicy();
+    TopicPartition partition = new TopicPartition("lag-topic", 0);
+    try (AdminClient adminClient = AdminClient.create(config);
+         KafkaProducer<byte[], byte[]> producer = new KafkaProducer<>(producerConfig)) {
+      adminClient.createTopics(Collections.singletonList(new NewTopic("lag-topic", 1, (short) 1)))
+          .all().get();
+      for (int i = 0; i < 10; i++) {
+        producer.send(new ProducerRecord<>("lag-topic", 0, null, new byte[0])).get();
+      }
+
+      adminClient.alterConsumerGroupOffsets("lag-group",
+          Collections.singletonMap(partition, new OffsetAndMetadata(4))).all().get();
+      assertThat(ClusterStatus.isConsumerGroupCaughtUp(adminClient,
+          Collections.singletonList("lag-group"), 0, 0, 3000, retryPolicy)).isFalse();
+      assertThat(ClusterStatus.isConsumerGroupCaughtUp(adminClient,
+          Collections.singletonList("lag-group"), 6, 6, 10000, retryPolicy)).isTrue();
+
+      adminClient.alterConsumerGroupOffsets("lag-group",
+          Collections.singletonMap(partition, new OffsetAndMetadata(10))).all().get();
+      assertThat(ClusterStatus.isConsumerGroupCaughtUp(adminClient,
+          Collections.singletonList("lag-group"), 0, 0, 10000, retryPolicy)).isTrue();
+    }
+  }
+
+  @Test(timeout = 120000)
+  public void areInternalTopicsReady() throws Exception {
+    Map<String, Object> config = new HashMap<>();
+    config.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapBrokers
+        (SecurityProtocol.PLAINTEXT));
+    try (AdminClient adminClient = AdminClient.create(config)) {
+      // Brokers create the topics when the check looks up their coordinators.
+      assertThat(ClusterStatus.areInternalTopicsReady(adminClient,
+          Arrays.asList("__consumer_offsets", "__transaction_state"), 60000,
+          ExponentialRetryPolicy.defaultPolicy())).isTrue();
+    }
+  }
+
   @Test(timeout = 120000)
   public void isKafkaReadyFailWithLessBrokers() throws Exception {
     try {
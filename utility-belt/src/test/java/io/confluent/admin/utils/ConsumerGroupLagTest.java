@@ -0,0 +1,101 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.admin.utils;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsumerGroupLagTest {
+
+  private final TopicPartition partition0 = new TopicPartition("orders", 0);
+  private final TopicPartition partition1 = new TopicPartition("orders", 1);
+  private final TopicPartition partition10 = new TopicPartition("orders", 10);
+
+  private Map<TopicPartition, Long> offsets(long offset0, long offset1, long offset10) {
+    Map<TopicPartition, Long> offsets = new HashMap<>();
+    offsets.put(partition0, offset0);
+    offsets.put(partition1, offset1);
+    offsets.put(partition10, offset10);
+    return offsets;
+  }
+
+  @Test
+  public void measuresLagPerPartition() {
+    ConsumerGroupLag.Report report = ConsumerGroupLag.report(
+        Collections.singletonList("orders-app"),
+        Collections.singletonMap("orders-app", offsets(90, 50, 20)),
+        offsets(100, 50, 20)
+    );
+
+    assertThat(report.lags("orders-app"))
+        .containsEntry(partition0, 10L)
+        .containsEntry(partition1, 0L)
+        .containsEntry(partition10, 0L);
+    assertThat(report.totalLag("orders-app")).isEqualTo(10);
+    assertThat(report.maxPartitionLag("orders-app")).isEqualTo(10);
+    assertThat(report.problems(10, 10)).isEmpty();
+    assertThat(report.lines()).containsExactly(
+        "Group [ orders-app ] total lag 10 over 3 partitions",
+        "Group [ orders-app ] partition orders-0 lag 10",
+        "Group [ orders-app ] partition orders-1 lag 0",
+        "Group [ orders-app ] partition orders-10 lag 0");
+  }
+
+  @Test
+  public void checksTotalAndPartitionLimits() {
+    ConsumerGroupLag.Report report = ConsumerGroupLag.report(
+        Collections.singletonList("orders-app"),
+        Collections.singletonMap("orders-app", offsets(95, 45, 20)),
+        offsets(100, 50, 20)
+    );
+
+    assertThat(report.problems(10, 5)).isEmpty();
+    assertThat(report.problems(9, 5))
+        .containsExactly("group orders-app has a total lag of 10, more than 9");
+    assertThat(report.problems(10, 4))
+        .containsExactly("group orders-app has a partition lag of 5, more than 4");
+  }
+
+  @Test
+  public void groupWithoutCommittedOffsetsIsNotCaughtUp() {
+    ConsumerGroupLag.Report report = ConsumerGroupLag.report(
+        Arrays.asList("orders-app", "new-app"),
+        Collections.singletonMap("orders-app", offsets(100, 50, 20)),
+        offsets(100, 50, 20)
+    );
+
+    assertThat(report.lags("new-app")).isEmpty();
+    assertThat(report.problems(0, 0)).containsExactly("group new-app has no committed offsets");
+  }
+
+  @Test
+  public void committedOffsetsAheadOfEndCountAsNoLag() {
+    ConsumerGroupLag.Report report = ConsumerGroupLag.report(
+        Collections.singletonList("orders-app"),
+        Collections.singletonMap("orders-app", offsets(110, 50, 20)),
+        offsets(100, 50, 20)
+    );
+
+    assertThat(report.totalLag("orders-app")).isEqualTo(0);
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.admin.utils;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExponentialRetryPolicyTest {
+
+  @Test
+  public void backoffGrowsExponentiallyUpToCap() {
+    RetryPolicy policy = new ExponentialRetryPolicy(100, 2, 1000, 0, 0);
+    assertThat(policy.backoffMs(1, 60000)).isEqualTo(100);
+    assertThat(policy.backoffMs(2, 60000)).isEqualTo(200);
+    assertThat(policy.backoffMs(3, 60000)).isEqualTo(400);
+    assertThat(policy.backoffMs(4, 60000)).isEqualTo(800);
+    assertThat(policy.backoffMs(5, 60000)).isEqualTo(1000);
+    assertThat(policy.backoffMs(50, 60000)).isEqualTo(1000);
+  }
+
+  @Test
+  public void backoffNeverExceedsRemainingTime() {
+    RetryPolicy policy = new ExponentialRetryPolicy(100, 2, 1000, 0, 0);
+    assertThat(policy.backoffMs(5, 300)).isEqualTo(300);
+    assertThat(policy.backoffMs(5, 0)).isEqualTo(0);
+  }
+
+  @Test
+  public void jitterStaysWithinBounds() {
+    RetryPolicy policy = new ExponentialRetryPolicy(1000, 2, 1000, 0.2, 0);
+    for (int i = 0; i < 1000; i++) {
+      assertThat(policy.backoffMs(1, 60000)).isBetween(800L, 1200L);
+    }
+  }
+
+  @Test
+  public void attemptTimeoutIsBoundedByRemainingTime() {
+    RetryPolicy unbounded = new ExponentialRetryPolicy(100, 2, 1000, 0, 0);
+    assertThat(unbounded.attemptTimeoutMs(0, 30000)).isEqualTo(30000);
+
+    RetryPolicy bounded = new ExponentialRetryPolicy(100, 2, 1000, 0, 5000);
+    assertThat(bounded.attemptTimeoutMs(0, 30000)).isEqualTo(5000);
+    assertThat(bounded.attemptTimeoutMs(3, 2000)).isEqualTo(2000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsInvalidJitter() {
+    new ExponentialRetryPolicy(100, 2, 1000, 1.5, 0);
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeaderBalancerTest {
+
+  private static final int TIMEOUT_MS = 10000;
+
+  private final List<Node> brokers = Arrays.asList(
+      new Node(0, "localhost", 9092), new Node(1, "localhost", 9093),
+      new Node(2, "localhost", 9094));
+
+  /**
+   * @param leaders id of the leader of each partition; every partition has all brokers as
+   *     replicas, partition i preferring broker i modulo the number of brokers.
+   */
+  private TopicDescription topic(String name, List<Node> isr, int... leaders) {
+    List<TopicPartitionInfo> partitions = new ArrayList<>();
+    for (int i = 0; i < leaders.length; i++) {
+      List<Node> replicas = new ArrayList<>();
+      for (int r = 0; r < brokers.size(); r++) {
+        replicas.add(brokers.get((i + r) % brokers.size()));
+      }
+      partitions.add(new TopicPartitionInfo(i, brokers.get(leaders[i]), replicas, isr));
+    }
+    return new TopicDescription(name, false, partitions);
+  }
+
+  @Test
+  public void evenLeadershipHasNoSkew() {
+    LeaderBalancer.LeaderSkew skew = new LeaderBalancer.LeaderSkew(brokers);
+    skew.add(topic("even", brokers, 0, 1, 2, 0, 1, 2));
+
+    assertThat(skew.partitions()).isEqualTo(6);
+    assertThat(skew.leaders()).containsValues(2, 2, 2);
+    assertThat(skew.maxSkew()).isEqualTo(1.0);
+    assertThat(skew.notPreferred()).isEmpty();
+  }
+
+  @Test
+  public void listsPartitionsNotLedByTheirPreferredReplica() {
+    LeaderBalancer.LeaderSkew skew = new LeaderBalancer.LeaderSkew(brokers);
+    skew.add(topic("skewed", brokers, 0, 0, 0));
+    skew.add(topic("out-of-sync", Collections.singletonList(brokers.get(0)), 0, 0));
+
+    assertThat(skew.leaders().get(0)).isEqualTo(5);
+    assertThat(skew.leaders().get(1)).isEqualTo(0);
+    assertThat(skew.skew(0)).isEqualTo(3.0);
+    assertThat(skew.maxSkew()).isEqualTo(3.0);
+    assertThat(skew.notPreferred()).containsExactly(
+        new TopicPartition("skewed", 1), new TopicPartition("skewed", 2),
+        new TopicPartition("out-of-sync", 1));
+    // The preferred replica of out-of-sync-1 is not in sync, so it cannot be elected.
+    assertThat(skew.electable()).containsExactly(
+        new TopicPartition("skewed", 1), new TopicPartition("skewed", 2));
+  }
+
+  @Test
+  public void reportsTheLeadersOfTheGivenTopics() throws Exception {
+    MockAdminClient adminClient = new MockAdminClient(brokers, brokers.get(0));
+    adminClient.createTopics(Arrays.asList(
+        new NewTopic("topic-a", 2, (short) 1), new NewTopic("topic-b", 2, (short) 1),
+        new NewTopic("other", 4, (short) 1))).all().get();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    LeaderBalancer.LeaderSkew skew = new LeaderBalancer(
+        adminClient, new PrintStream(out, true, StandardCharsets.UTF_8.name()), TIMEOUT_MS)
+        .balance(Arrays.asList("topic-a", "topic-b"), false, 1);
+
+    assertThat(skew.partitions()).isEqualTo(4);
+    assertThat(skew.leaders().keySet()).containsExactly(0, 1, 2);
+    assertThat(out.toString(StandardCharsets.UTF_8.name()))
+        .contains("Broker [ 2 ] leads")
+        .contains("partitions not led by their preferred replica");
+  }
+}
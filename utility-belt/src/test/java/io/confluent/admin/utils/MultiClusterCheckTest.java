@@ -0,0 +1,133 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.admin.utils;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.common.Node;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MultiClusterCheckTest {
+
+  private static MockAdminClient cluster(int brokers) {
+    Node[] nodes = new Node[brokers];
+    for (int i = 0; i < brokers; i++) {
+      nodes[i] = new Node(i, "localhost", 9092 + i);
+    }
+    return new MockAdminClient(Arrays.asList(nodes), nodes[0]);
+  }
+
+  private static final RetryPolicy DEFAULT_POLICY = ExponentialRetryPolicy.defaultPolicy();
+
+  private static final MultiClusterCheck.Check THREE_BROKERS =
+      (adminClient, timeoutMs, retryPolicy) ->
+          ClusterStatus.isKafkaReadyAsync(adminClient, 3, timeoutMs, retryPolicy);
+
+  @Test
+  public void allClustersReady() throws Exception {
+    Map<String, Admin> clusters = new LinkedHashMap<>();
+    for (int i = 0; i < 40; i++) {
+      clusters.put("cluster-" + i, cluster(3));
+    }
+
+    List<MultiClusterCheck.ClusterResult> results =
+        MultiClusterCheck.run(clusters, 10000, DEFAULT_POLICY, THREE_BROKERS);
+
+    assertThat(results).hasSize(40);
+    assertThat(results).extracting("ready").containsOnly(true);
+    assertThat(results.get(0).name()).isEqualTo("cluster-0");
+    assertThat(results.get(0).elapsedMs()).isBetween(0L, 10000L);
+    assertThat(results.get(0).toString()).startsWith("Cluster [ cluster-0 ] ready after");
+  }
+
+  @Test
+  public void endsAtFirstFailure() throws Exception {
+    Map<String, Admin> clusters = new LinkedHashMap<>();
+    clusters.put("ready", cluster(3));
+    clusters.put("pending", cluster(1));
+    clusters.put("unreachable", null);
+
+    long begin = System.currentTimeMillis();
+    List<MultiClusterCheck.ClusterResult> results =
+        MultiClusterCheck.run(clusters, 10000, DEFAULT_POLICY, THREE_BROKERS);
+
+    assertThat(System.currentTimeMillis() - begin).isLessThan(5000);
+    assertThat(results.get(2).ready()).isFalse();
+    assertThat(results.get(1).ready()).isNull();
+    assertThat(results.get(1).toString()).isEqualTo("Cluster [ pending ] not finished");
+  }
+
+  @Test
+  public void cancelsRemainingChecksAtFirstFailure() throws Exception {
+    AtomicInteger attempts = new AtomicInteger();
+    AtomicReference<CompletionStage<Boolean>> pending = new AtomicReference<>();
+    MultiClusterCheck.Check neverReady = (adminClient, timeoutMs, retryPolicy) -> {
+      pending.set(RetryingCheck.run("never ready", timeoutMs, retryPolicy, attemptTimeoutMs -> {
+        attempts.incrementAndGet();
+        return CompletableFuture.completedFuture(false);
+      }, () -> { }));
+      return pending.get();
+    };
+    Map<String, Admin> clusters = new LinkedHashMap<>();
+    clusters.put("pending", cluster(1));
+    clusters.put("unreachable", null);
+
+    MultiClusterCheck.run(clusters, 10000, DEFAULT_POLICY, neverReady);
+
+    assertThat(pending.get().toCompletableFuture().get(5, TimeUnit.SECONDS)).isFalse();
+    int attemptsWhenCancelled = attempts.get();
+    Thread.sleep(500);
+    assertThat(attempts.get()).isEqualTo(attemptsWhenCancelled);
+  }
+
+  @Test
+  public void endsAtDeadline() throws Exception {
+    MultiClusterCheck.Check never = (adminClient, timeoutMs, retryPolicy) ->
+        new CompletableFuture<>();
+
+    List<MultiClusterCheck.ClusterResult> results = MultiClusterCheck.run(
+        Collections.singletonMap("slow", cluster(1)), 200, DEFAULT_POLICY, never);
+
+    assertThat(results.get(0).ready()).isNull();
+    assertThat(results.get(0).elapsedMs()).isEqualTo(-1);
+  }
+
+  @Test
+  public void reportsErrors() throws Exception {
+    MultiClusterCheck.Check failing = (adminClient, timeoutMs, retryPolicy) -> {
+      throw new IllegalStateException("broken");
+    };
+
+    List<MultiClusterCheck.ClusterResult> results = MultiClusterCheck.run(
+        Collections.singletonMap("broken", cluster(1)), 10000, DEFAULT_POLICY, failing);
+
+    assertThat(results.get(0).ready()).isFalse();
+    assertThat(results.get(0).error()).hasMessage("broken");
+  }
+}
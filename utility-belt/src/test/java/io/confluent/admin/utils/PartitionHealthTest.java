@@ -0,0 +1,142 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.admin.utils;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.TopicConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartitionHealthTest {
+
+  private final List<Node> brokers = Arrays.asList(
+      new Node(0, "localhost", 9092), new Node(1, "localhost", 9093),
+      new Node(2, "localhost", 9094));
+  private MockAdminClient adminClient;
+
+  @Before
+  public void setUp() {
+    adminClient = new MockAdminClient(brokers, brokers.get(0));
+  }
+
+  private void addTopic(String name, int partitions, List<Node> isr, Node leader, int minIsr) {
+    List<TopicPartitionInfo> infos = new ArrayList<>();
+    for (int i = 0; i < partitions; i++) {
+      infos.add(new TopicPartitionInfo(i, leader, brokers, isr));
+    }
+    adminClient.addTopic(false, name, infos, Collections.singletonMap(
+        TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG, String.valueOf(minIsr)));
+  }
+
+  @Test
+  public void healthyClusterInManyBatches() throws Exception {
+    for (int i = 0; i < 25; i++) {
+      addTopic("topic-" + i, 4, brokers, brokers.get(i % 3), 2);
+    }
+    PartitionHealth.Report report = new PartitionHealth(adminClient, null, 7)
+        .scan(10000).toCompletableFuture().get();
+
+    assertThat(report.topics()).isEqualTo(25);
+    assertThat(report.partitions()).isEqualTo(100);
+    assertThat(report.isHealthy()).isTrue();
+    assertThat(ClusterStatus.isReplicationHealthy(
+        adminClient, null, 7, 10000, ExponentialRetryPolicy.defaultPolicy())).isTrue();
+  }
+
+  @Test
+  public void countsUnhealthyPartitions() throws Exception {
+    addTopic("healthy", 3, brokers, brokers.get(0), 2);
+    addTopic("under-replicated", 3, brokers.subList(0, 2), brokers.get(0), 2);
+    addTopic("under-min-isr", 2, brokers.subList(0, 1), brokers.get(0), 2);
+
+    PartitionHealth.Report report = new PartitionHealth(adminClient, null, 2)
+        .scan(10000).toCompletableFuture().get();
+
+    assertThat(report.topics()).isEqualTo(3);
+    assertThat(report.partitions()).isEqualTo(8);
+    assertThat(report.underReplicated()).isEqualTo(5);
+    assertThat(report.underMinIsr()).isEqualTo(2);
+    assertThat(report.offline()).isEqualTo(0);
+    assertThat(report.isHealthy()).isFalse();
+    assertThat(report.examples()).hasSize(7);
+  }
+
+  @Test
+  public void countsOfflinePartitions() {
+    // MockAdminClient rejects partitions without a leader, so describe the topic directly.
+    PartitionHealth.Report report = new PartitionHealth.Report();
+    for (int i = 0; i < 12; i++) {
+      report.add(new TopicDescription("offline-" + i, false, Collections.singletonList(
+          new TopicPartitionInfo(0, null, brokers, Collections.emptyList()))), 2);
+    }
+
+    assertThat(report.offline()).isEqualTo(12);
+    assertThat(report.underReplicated()).isEqualTo(12);
+    assertThat(report.underMinIsr()).isEqualTo(12);
+    assertThat(report.examples()).hasSize(PartitionHealth.MAX_EXAMPLES);
+  }
+
+  @Test
+  public void scansOnlySelectedTopics() throws Exception {
+    addTopic("healthy", 3, brokers, brokers.get(0), 2);
+    addTopic("under-replicated", 1, brokers.subList(0, 1), brokers.get(0), 1);
+
+    assertThat(ClusterStatus.isReplicationHealthy(adminClient, Collections.singletonList(
+        "healthy"), 10, 10000, ExponentialRetryPolicy.defaultPolicy())).isTrue();
+    assertThat(ClusterStatus.isReplicationHealthy(adminClient, Arrays.asList(
+        "healthy", "under-replicated"), 10, 1000, ExponentialRetryPolicy.defaultPolicy()))
+        .isFalse();
+  }
+
+  @Test
+  public void waitsForInternalTopics() {
+    List<String> internalTopics = Arrays.asList("__consumer_offsets", "__transaction_state");
+    addTopic("__consumer_offsets", 5, brokers, brokers.get(0), 2);
+    addTopic("__transaction_state", 5, brokers.subList(0, 1), brokers.get(0), 2);
+
+    // Under min ISR, so transactions cannot be written.
+    assertThat(ClusterStatus.areInternalTopicsReady(
+        adminClient, internalTopics, 1000, ExponentialRetryPolicy.defaultPolicy())).isFalse();
+    // Under-replicated partitions with enough in sync replicas are available.
+    assertThat(ClusterStatus.areInternalTopicsReady(
+        adminClient, Collections.singletonList("__consumer_offsets"), 10000,
+        ExponentialRetryPolicy.defaultPolicy())).isTrue();
+
+    adminClient.deleteTopics(Collections.singletonList("__transaction_state"));
+    addTopic("__transaction_state", 5, brokers.subList(0, 2), brokers.get(1), 2);
+    assertThat(ClusterStatus.areInternalTopicsReady(
+        adminClient, internalTopics, 10000, ExponentialRetryPolicy.defaultPolicy())).isTrue();
+  }
+
+  @Test
+  public void missingInternalTopicIsNotReady() {
+    addTopic("__consumer_offsets", 5, brokers, brokers.get(0), 2);
+
+    assertThat(ClusterStatus.areInternalTopicsReady(
+        adminClient, Arrays.asList("__consumer_offsets", "_schemas"), 1000,
+        ExponentialRetryPolicy.defaultPolicy())).isFalse();
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.admin.utils;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.common.Node;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReadinessServerTest {
+
+  private static final List<Node> BROKERS = Arrays.asList(
+      new Node(0, "localhost", 9092), new Node(1, "localhost", 9093));
+
+  private static int get(ReadinessServer server, String path) throws Exception {
+    URL url = new URL("http", "localhost", server.address().getPort(), path);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      return connection.getResponseCode();
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static ReadinessServer server(ClusterStatusPoller poller, long maxStalenessMs)
+      throws Exception {
+    ReadinessServer server = new ReadinessServer(
+        poller, new InetSocketAddress("localhost", 0), maxStalenessMs);
+    server.start();
+    return server;
+  }
+
+  @Test(timeout = 60000)
+  public void notReadyBeforeFirstCheck() throws Exception {
+    MockAdminClient adminClient = new MockAdminClient(BROKERS, BROKERS.get(0));
+    try (ClusterStatusPoller poller = new ClusterStatusPoller(adminClient, 2, 1000, 1000);
+         ReadinessServer server = server(poller, 10000)) {
+      assertThat(get(server, ReadinessServer.READY_PATH)).isEqualTo(503);
+      assertThat(get(server, ReadinessServer.LIVE_PATH)).isEqualTo(503);
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void servesCachedVerdict() throws Exception {
+    MockAdminClient adminClient = new MockAdminClient(BROKERS, BROKERS.get(0));
+    try (ClusterStatusPoller poller = new ClusterStatusPoller(adminClient, 2, 1000, 1000);
+         ReadinessServer server = server(poller, 10000)) {
+      poller.poll();
+      assertThat(get(server, ReadinessServer.READY_PATH)).isEqualTo(200);
+      assertThat(get(server, ReadinessServer.LIVE_PATH)).isEqualTo(200);
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void notReadyWithLessBrokers() throws Exception {
+    MockAdminClient adminClient = new MockAdminClient(BROKERS, BROKERS.get(0));
+    try (ClusterStatusPoller poller = new ClusterStatusPoller(adminClient, 3, 100, 1000);
+         ReadinessServer server = server(poller, 10000)) {
+      poller.poll();
+      assertThat(get(server, ReadinessServer.READY_PATH)).isEqualTo(503);
+      assertThat(get(server, ReadinessServer.LIVE_PATH)).isEqualTo(200);
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void staleVerdictIsNotReady() throws Exception {
+    MockAdminClient adminClient = new MockAdminClient(BROKERS, BROKERS.get(0));
+    try (ClusterStatusPoller poller = new ClusterStatusPoller(adminClient, 2, 1000, 1000);
+         ReadinessServer server = server(poller, 0)) {
+      poller.poll();
+      Thread.sleep(10);
+      assertThat(get(server, ReadinessServer.READY_PATH)).isEqualTo(503);
+      assertThat(get(server, ReadinessServer.LIVE_PATH)).isEqualTo(503);
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void servesMetrics() throws Exception {
+    MockAdminClient adminClient = new MockAdminClient(BROKERS, BROKERS.get(0));
+    try (ClusterStatusPoller poller = new ClusterStatusPoller(adminClient, 2, 1000, 1000);
+         ReadinessServer server = server(poller, 10000)) {
+      poller.poll();
+      URL url = new URL(
+          "http", "localhost", server.address().getPort(), ReadinessServer.METRICS_PATH);
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      try (InputStream in = connection.getInputStream()) {
+        String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(body).contains(
+            "utility_belt_operations_request_total{operation=\"describe-cluster\"}",
+            "utility_belt_checks_time_to_ready_ms{check=\"brokers\"}"
+        );
+      } finally {
+        connection.disconnect();
+      }
+    }
+  }
+}
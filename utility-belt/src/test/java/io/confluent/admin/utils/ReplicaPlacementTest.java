@@ -0,0 +1,125 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.errors.InvalidReplicationFactorException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaPlacementTest {
+
+  private static final int TIMEOUT_MS = 10000;
+
+  private static List<Node> brokers(String... racks) {
+    List<Node> brokers = new ArrayList<>();
+    for (int i = 0; i < racks.length; i++) {
+      brokers.add(new Node(i, "localhost", 9092 + i, racks[i]));
+    }
+    return brokers;
+  }
+
+  @Test
+  public void spreadsLeadersAndReplicasEvenly() {
+    ReplicaPlacement placement = new ReplicaPlacement(
+        brokers(null, null, null, null), Collections.emptyList());
+    for (int i = 0; i < 10; i++) {
+      placement.assign(6, 3);
+    }
+
+    // 60 leaders and 180 replicas over 4 brokers.
+    assertThat(placement.leaders().values()).containsOnly(15);
+    assertThat(placement.replicas().values()).containsOnly(45);
+  }
+
+  @Test
+  public void placesReplicasOfAPartitionInDistinctRacks() {
+    List<Node> brokers = brokers("a", "a", "b", "b", "c", "c");
+    ReplicaPlacement placement = new ReplicaPlacement(brokers, Collections.emptyList());
+
+    Map<Integer, List<Integer>> assignment = placement.assign(12, 3);
+    assertThat(assignment).hasSize(12);
+    for (List<Integer> replicas : assignment.values()) {
+      Set<String> racks = new HashSet<>();
+      for (int id : replicas) {
+        racks.add(brokers.get(id).rack());
+      }
+      assertThat(racks).hasSize(3);
+    }
+    assertThat(placement.leaders().values()).containsOnly(2);
+    assertThat(placement.replicas().values()).containsOnly(6);
+  }
+
+  @Test
+  public void fillsUpTheLeastLoadedBrokers() {
+    List<Node> brokers = brokers(null, null, null);
+    List<TopicPartitionInfo> partitions = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      List<Node> replicas = Arrays.asList(brokers.get(0), brokers.get(1));
+      partitions.add(new TopicPartitionInfo(i, brokers.get(0), replicas, replicas));
+    }
+    ReplicaPlacement placement = new ReplicaPlacement(
+        brokers, Collections.singletonList(new TopicDescription("existing", false, partitions)));
+
+    // Broker 0 leads all 4 partitions, brokers 0 and 1 hold 4 replicas each. Leaders go to the
+    // brokers leading the fewest partitions, followers to those holding the fewest replicas.
+    Map<Integer, List<Integer>> assignment = placement.assign(2, 2);
+    assertThat(assignment.get(0)).containsExactly(2, 0);
+    assertThat(assignment.get(1)).containsExactly(1, 2);
+    assertThat(placement.assign(1, 2).get(0)).containsExactly(2, 0);
+  }
+
+  @Test(expected = InvalidReplicationFactorException.class)
+  public void rejectsReplicationFactorLargerThanBrokers() {
+    new ReplicaPlacement(brokers(null, null), Collections.emptyList()).assign(1, 3);
+  }
+
+  @Test
+  public void loadsTheCurrentCluster() throws Exception {
+    List<Node> brokers = brokers(null, null, null);
+    MockAdminClient adminClient = new MockAdminClient(brokers, brokers.get(0));
+    adminClient.createTopics(Arrays.asList(
+        new NewTopic("first", 2, (short) 2),
+        new NewTopic("second", 1, (short) 3),
+        new NewTopic("third", 1, (short) 1)
+    )).all().get();
+
+    // Three topics described in batches of two.
+    ReplicaPlacement placement = ReplicaPlacement.load(adminClient, TIMEOUT_MS, 2)
+        .toCompletableFuture().get();
+    int leaders = 0;
+    int replicas = 0;
+    for (int id = 0; id < brokers.size(); id++) {
+      leaders += placement.leaders().get(id);
+      replicas += placement.replicas().get(id);
+    }
+    assertThat(leaders).isEqualTo(4);
+    assertThat(replicas).isEqualTo(8);
+  }
+}
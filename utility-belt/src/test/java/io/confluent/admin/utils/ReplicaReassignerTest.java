@@ -0,0 +1,242 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.AlterConfigOp;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.clients.admin.NewPartitionReassignment;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.errors.InvalidReplicationFactorException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ReplicaReassignerTest {
+
+  private static final int TIMEOUT_MS = 10000;
+
+  private final List<Node> brokers = Arrays.asList(
+      new Node(0, "localhost", 9092), new Node(1, "localhost", 9093),
+      new Node(2, "localhost", 9094));
+  private MockAdminClient adminClient;
+
+  @Before
+  public void setUp() {
+    adminClient = new MockAdminClient(brokers, brokers.get(0));
+  }
+
+  private TopicDescription topic(String name, int partitions, int replicationFactor) {
+    List<TopicPartitionInfo> infos = new ArrayList<>();
+    for (int i = 0; i < partitions; i++) {
+      List<Node> replicas = new ArrayList<>();
+      for (int r = 0; r < replicationFactor; r++) {
+        replicas.add(brokers.get((i + r) % brokers.size()));
+      }
+      infos.add(new TopicPartitionInfo(i, replicas.get(0), replicas, replicas));
+    }
+    return new TopicDescription(name, false, infos);
+  }
+
+  private ReplicaReassigner reassigner(MockTime time) {
+    return new ReplicaReassigner(adminClient, new PrintStream(OutputStream.nullOutputStream()),
+        1024, TIMEOUT_MS, TIMEOUT_MS, time);
+  }
+
+  private Map<String, String> configs(ConfigResource.Type type, String name) throws Exception {
+    ConfigResource resource = new ConfigResource(type, name);
+    Config config = adminClient.describeConfigs(Collections.singletonList(resource)).all().get()
+        .get(resource);
+    Map<String, String> values = new HashMap<>();
+    config.entries().forEach(entry -> values.put(entry.name(), entry.value()));
+    return values;
+  }
+
+  @Test
+  public void planKeepsExistingReplicasAndBalancesNewOnes() {
+    Map<TopicDescription, Integer> topics = new LinkedHashMap<>();
+    topics.put(topic("a", 3, 1), 2);
+    topics.put(topic("b", 2, 2), 2);
+
+    Map<TopicPartition, List<Integer>> plan = ReplicaReassigner.plan(topics, brokers);
+
+    assertThat(plan.keySet()).containsExactly(
+        new TopicPartition("a", 0), new TopicPartition("a", 1), new TopicPartition("a", 2));
+    int[] load = new int[brokers.size()];
+    for (int i = 0; i < 3; i++) {
+      List<Integer> replicas = plan.get(new TopicPartition("a", i));
+      assertThat(replicas).hasSize(2);
+      assertThat(replicas.get(0)).isEqualTo(i);
+      load[replicas.get(1)]++;
+    }
+    // Topic b already holds replicas on brokers 0, 1 and 1, 2, so broker 0 and 2 are preferred.
+    assertThat(load[1]).isEqualTo(0);
+  }
+
+  @Test
+  public void planPrefersRacksThePartitionDoesNotUse() {
+    List<Node> rackBrokers = Arrays.asList(
+        new Node(0, "localhost", 9092, "rack-a"), new Node(1, "localhost", 9093, "rack-a"),
+        new Node(2, "localhost", 9094, "rack-b"));
+    // Broker 1 holds no replica yet, but shares the rack of the current replica.
+    TopicDescription topic = new TopicDescription("a", false, Arrays.asList(
+        new TopicPartitionInfo(0, rackBrokers.get(0), Collections.singletonList(rackBrokers.get(0)),
+            Collections.singletonList(rackBrokers.get(0))),
+        new TopicPartitionInfo(1, rackBrokers.get(2), Collections.singletonList(rackBrokers.get(2)),
+            Collections.singletonList(rackBrokers.get(2)))));
+
+    Map<TopicPartition, List<Integer>> plan =
+        ReplicaReassigner.plan(Collections.singletonMap(topic, 2), rackBrokers);
+
+    assertThat(plan.get(new TopicPartition("a", 0))).containsExactly(0, 2);
+    // Both other brokers are in another rack, broker 1 holds fewer replicas.
+    assertThat(plan.get(new TopicPartition("a", 1))).containsExactly(2, 1);
+  }
+
+  @Test(expected = InvalidReplicationFactorException.class)
+  public void planNeedsEnoughBrokers() {
+    ReplicaReassigner.plan(Collections.singletonMap(topic("a", 1, 1), 4), brokers);
+  }
+
+  @Test
+  public void throttlesCurrentLeadersAndNewFollowers() {
+    Map<TopicPartition, List<Integer>> current = new HashMap<>();
+    current.put(new TopicPartition("a", 0), Collections.singletonList(0));
+    current.put(new TopicPartition("a", 1), Collections.singletonList(1));
+    Map<TopicPartition, List<Integer>> targets = new LinkedHashMap<>();
+    targets.put(new TopicPartition("a", 0), Arrays.asList(0, 2));
+    targets.put(new TopicPartition("a", 1), Arrays.asList(1, 2));
+
+    Map<ConfigResource, ?> throttles = reassigner(new MockTime()).throttles(current, targets);
+
+    assertThat(throttles.keySet()).containsExactly(
+        new ConfigResource(ConfigResource.Type.BROKER, "0"),
+        new ConfigResource(ConfigResource.Type.BROKER, "1"),
+        new ConfigResource(ConfigResource.Type.BROKER, "2"),
+        new ConfigResource(ConfigResource.Type.TOPIC, "a"));
+    assertThat(throttles.get(new ConfigResource(ConfigResource.Type.TOPIC, "a")).toString())
+        .contains("leader.replication.throttled.replicas", "value=0:0,1:1")
+        .contains("follower.replication.throttled.replicas", "value=0:2,1:2");
+  }
+
+  @Test
+  public void reassignsAndRemovesThrottles() throws Exception {
+    adminClient.addTopic(false, "a", topic("a", 2, 1).partitions(), Collections.emptyMap());
+    // Completes the reassignment while the reassigner waits for it.
+    List<Map<String, String>> throttled = new ArrayList<>();
+    MockTime time = new MockTime() {
+      @Override
+      public void sleep(long ms) {
+        try {
+          throttled.add(configs(ConfigResource.Type.BROKER, "2"));
+          throttled.add(configs(ConfigResource.Type.TOPIC, "a"));
+        } catch (Exception e) {
+          throw new AssertionError(e);
+        }
+        Map<TopicPartition, Optional<NewPartitionReassignment>> done = new HashMap<>();
+        done.put(new TopicPartition("a", 0), Optional.empty());
+        done.put(new TopicPartition("a", 1), Optional.empty());
+        adminClient.alterPartitionReassignments(done);
+        super.sleep(ms);
+      }
+    };
+
+    int reassigned = reassigner(time).increaseReplicationFactor(
+        Collections.singletonMap(topic("a", 2, 1), 3), brokers);
+
+    assertThat(reassigned).isEqualTo(2);
+    assertThat(throttled.get(0)).containsEntry(ReplicaReassigner.LEADER_THROTTLED_RATE, "1024");
+    assertThat(throttled.get(1))
+        .containsEntry(ReplicaReassigner.LEADER_THROTTLED_REPLICAS, "0:0,1:1")
+        .containsEntry(ReplicaReassigner.FOLLOWER_THROTTLED_REPLICAS, "0:2,0:1,1:0,1:2");
+    assertThat(configs(ConfigResource.Type.BROKER, "0"))
+        .doesNotContainKey(ReplicaReassigner.LEADER_THROTTLED_RATE);
+    assertThat(configs(ConfigResource.Type.TOPIC, "a"))
+        .doesNotContainKey(ReplicaReassigner.FOLLOWER_THROTTLED_REPLICAS);
+  }
+
+  @Test
+  public void restoresThrottlesSetBefore() throws Exception {
+    adminClient.addTopic(false, "a", topic("a", 2, 1).partitions(), Collections.emptyMap());
+    Map<ConfigResource, Collection<AlterConfigOp>> previous = new LinkedHashMap<>();
+    previous.put(new ConfigResource(ConfigResource.Type.BROKER, "0"),
+        Collections.singletonList(new AlterConfigOp(
+            new ConfigEntry(ReplicaReassigner.LEADER_THROTTLED_RATE, "2048"),
+            AlterConfigOp.OpType.SET)));
+    previous.put(new ConfigResource(ConfigResource.Type.TOPIC, "a"),
+        Collections.singletonList(new AlterConfigOp(
+            new ConfigEntry(ReplicaReassigner.LEADER_THROTTLED_REPLICAS, "*"),
+            AlterConfigOp.OpType.SET)));
+    adminClient.incrementalAlterConfigs(previous).all().get();
+    MockTime time = new MockTime() {
+      @Override
+      public void sleep(long ms) {
+        Map<TopicPartition, Optional<NewPartitionReassignment>> done = new HashMap<>();
+        done.put(new TopicPartition("a", 0), Optional.empty());
+        done.put(new TopicPartition("a", 1), Optional.empty());
+        adminClient.alterPartitionReassignments(done);
+        super.sleep(ms);
+      }
+    };
+
+    reassigner(time).increaseReplicationFactor(
+        Collections.singletonMap(topic("a", 2, 1), 2), brokers);
+
+    assertThat(configs(ConfigResource.Type.BROKER, "0"))
+        .containsEntry(ReplicaReassigner.LEADER_THROTTLED_RATE, "2048")
+        .doesNotContainKey(ReplicaReassigner.FOLLOWER_THROTTLED_RATE);
+    assertThat(configs(ConfigResource.Type.TOPIC, "a"))
+        .containsEntry(ReplicaReassigner.LEADER_THROTTLED_REPLICAS, "*")
+        .doesNotContainKey(ReplicaReassigner.FOLLOWER_THROTTLED_REPLICAS);
+  }
+
+  @Test
+  public void cancelsReassignmentOnTimeout() throws Exception {
+    adminClient.addTopic(false, "a", topic("a", 2, 1).partitions(), Collections.emptyMap());
+
+    try {
+      reassigner(new MockTime()).increaseReplicationFactor(
+          Collections.singletonMap(topic("a", 2, 1), 2), brokers);
+      fail("Expected the reassignment to time out");
+    } catch (TimeoutException e) {
+      assertThat(e.getMessage()).contains("was cancelled");
+    }
+    assertThat(adminClient.listPartitionReassignments().reassignments().get()).isEmpty();
+    assertThat(configs(ConfigResource.Type.BROKER, "1"))
+        .doesNotContainKey(ReplicaReassigner.FOLLOWER_THROTTLED_RATE);
+  }
+}
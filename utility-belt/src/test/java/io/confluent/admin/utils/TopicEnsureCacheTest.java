@@ -0,0 +1,145 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import io.confluent.kafkaensure.cli.TopicEnsureCommand;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TopicEnsureCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path write(String name, String content) throws Exception {
+    Path file = folder.getRoot().toPath().resolve(name);
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  @Test
+  public void matchesSameDigestWithinTtl() throws Exception {
+    MockTime time = new MockTime();
+    Path spec = write("spec.yml", "topics: []\n");
+    TopicEnsureCache cache = new TopicEnsureCache(folder.getRoot().toPath().resolve("state"), time);
+    String digest = TopicEnsureCache.digest(Collections.singletonList(spec), "true");
+
+    assertThat(cache.freshClusterId(digest, 1000)).isNull();
+    cache.store(digest, "cluster-a");
+    assertThat(cache.freshClusterId(digest, 1000)).isEqualTo("cluster-a");
+
+    time.sleep(1001);
+    assertThat(cache.freshClusterId(digest, 1000)).isNull();
+    assertThat(cache.freshClusterId(digest, 2000)).isEqualTo("cluster-a");
+
+    cache.clear();
+    assertThat(cache.freshClusterId(digest, 2000)).isNull();
+  }
+
+  @Test
+  public void digestCoversFileContentsAndOptions() throws Exception {
+    Path spec = write("spec.yml", "topics: []\n");
+    String digest = TopicEnsureCache.digest(Collections.singletonList(spec), "true");
+
+    assertThat(TopicEnsureCache.digest(Collections.singletonList(spec), "true"))
+        .isEqualTo(digest);
+    assertThat(TopicEnsureCache.digest(Collections.singletonList(spec), "false"))
+        .isNotEqualTo(digest);
+    write("spec.yml", "topics:\n");
+    assertThat(TopicEnsureCache.digest(Collections.singletonList(spec), "true"))
+        .isNotEqualTo(digest);
+  }
+
+  @Test
+  public void ignoresCorruptStateFile() throws Exception {
+    Path state = write("state", "\\u12");
+    assertThat(new TopicEnsureCache(state).freshClusterId("digest", 1000)).isNull();
+  }
+
+  @Test
+  public void commandSkipsUnchangedSpec() throws Exception {
+    List<Node> brokers = Collections.singletonList(new Node(0, "localhost", 9092));
+    MockAdminClient adminClient = new MockAdminClient(brokers, brokers.get(0));
+    Path spec = write("spec.yml",
+        "topics:\n  - name: topic-a\n    partitions: 1\n    replicationFactor: 1\n");
+    Path config = write("client.properties", "bootstrap.servers=localhost:9092\n");
+    Path state = folder.getRoot().toPath().resolve("state");
+    String[] args = {
+        "--timeout", "10000", "--config", config.toString(), "--file", spec.toString(),
+        "--create-if-not-exists", "true", "--state-file", state.toString()
+    };
+    PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+
+    assertThat(TopicEnsureCommand.run(args, adminClient, nowhere, nowhere)).isTrue();
+    assertThat(state).exists();
+
+    // The topic is gone, but the unchanged spec is not validated again.
+    adminClient.deleteTopics(Collections.singletonList("topic-a")).all().get();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    assertThat(TopicEnsureCommand.run(args, adminClient, nowhere, new PrintStream(err, true)))
+        .isTrue();
+    assertThat(err.toString()).contains("skipping validation");
+    assertThat(adminClient.listTopics().names().get()).isEmpty();
+
+    // A changed spec is validated, and recreates the topic.
+    write("spec.yml",
+        "topics:\n  - name: topic-a\n    partitions: 2\n    replicationFactor: 1\n");
+    assertThat(TopicEnsureCommand.run(args, adminClient, nowhere, nowhere)).isTrue();
+    assertThat(adminClient.listTopics().names().get()).containsExactly("topic-a");
+  }
+
+  @Test
+  public void commandDoesNotRememberRunWithMissingTopic() throws Exception {
+    List<Node> brokers = Collections.singletonList(new Node(0, "localhost", 9092));
+    MockAdminClient adminClient = new MockAdminClient(brokers, brokers.get(0));
+    adminClient.createTopics(Collections.singletonList(new NewTopic("topic-b", 1, (short) 1)))
+        .all().get();
+    Path spec = write("spec.yml",
+        "topics:\n  - name: topic-a\n    partitions: 1\n    replicationFactor: 1\n"
+            + "    config: {}\n"
+            + "  - name: topic-b\n    partitions: 1\n    replicationFactor: 1\n"
+            + "    config: {}\n");
+    Path config = write("client.properties", "bootstrap.servers=localhost:9092\n");
+    Path state = folder.getRoot().toPath().resolve("state");
+    String[] args = {
+        "--timeout", "10000", "--config", config.toString(), "--file", spec.toString(),
+        "--batch-size", "1", "--state-file", state.toString()
+    };
+    PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+
+    TopicEnsureCommand.run(args, adminClient, nowhere, nowhere);
+
+    // topic-a is missing, so the next run has to look at it again.
+    assertThat(state).doesNotExist();
+  }
+}
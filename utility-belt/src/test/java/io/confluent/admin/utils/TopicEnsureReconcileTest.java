@@ -0,0 +1,136 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.config.ConfigResource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TopicEnsureReconcileTest {
+
+  private static final int TIMEOUT_MS = 10000;
+
+  private MockAdminClient adminClient;
+  private ByteArrayOutputStream output;
+  private TopicEnsure topicEnsure;
+
+  @Before
+  public void setUp() {
+    List<Node> brokers = Collections.singletonList(new Node(0, "localhost", 9092));
+    adminClient = new MockAdminClient(brokers, brokers.get(0));
+    output = new ByteArrayOutputStream();
+    topicEnsure = new TopicEnsure(adminClient, new PrintStream(output, true));
+  }
+
+  private static Map<String, String> config(String... keyValues) {
+    Map<String, String> config = new HashMap<>();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      config.put(keyValues[i], keyValues[i + 1]);
+    }
+    return config;
+  }
+
+  private void createTopic(String name, int partitions, Map<String, String> config)
+      throws Exception {
+    adminClient.createTopics(Collections.singletonList(
+        new NewTopic(name, partitions, (short) 1).configs(config))).all().get();
+  }
+
+  private String configValue(String topic, String name) throws Exception {
+    ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, topic);
+    Config config = adminClient.describeConfigs(Collections.singletonList(resource))
+        .all().get().get(resource);
+    return config.get(name) == null ? null : config.get(name).value();
+  }
+
+  private List<TopicEnsure.TopicResult> ensure(List<TopicSpec> specs, boolean reconcile)
+      throws Exception {
+    List<TopicEnsure.TopicResult> results = new ArrayList<>();
+    topicEnsure.ensureTopics(specs.iterator(), false, reconcile, TIMEOUT_MS, 2, results::add);
+    return results;
+  }
+
+  @Test
+  public void reconcilesDriftedConfigs() throws Exception {
+    createTopic("drifted", 1, config("retention.ms", "1000", "cleanup.policy", "delete"));
+    createTopic("missing-config", 1, config());
+    createTopic("in-sync", 1, config("retention.ms", "5000"));
+
+    List<TopicSpec> specs = Arrays.asList(
+        new TopicSpec("drifted", 1, 1, config("retention.ms", "5000", "cleanup.policy", "delete")),
+        new TopicSpec("missing-config", 1, 1, config("cleanup.policy", "compact")),
+        new TopicSpec("in-sync", 1, 1, config("retention.ms", "5000"))
+    );
+    List<TopicEnsure.TopicResult> results = ensure(specs, true);
+
+    assertThat(results).extracting("valid").containsExactly(true, true, true);
+    assertThat(results.get(0).changes()).containsExactly(
+        new TopicEnsure.ConfigChange("retention.ms", "1000", "5000"));
+    assertThat(results.get(1).changes()).containsExactly(
+        new TopicEnsure.ConfigChange("cleanup.policy", null, "compact"));
+    assertThat(results.get(2).changes()).isEmpty();
+
+    assertThat(configValue("drifted", "retention.ms")).isEqualTo("5000");
+    assertThat(configValue("drifted", "cleanup.policy")).isEqualTo("delete");
+    assertThat(configValue("missing-config", "cleanup.policy")).isEqualTo("compact");
+    assertThat(output.toString()).doesNotContain("Invalid topic");
+
+    // Once reconciled, the topics are valid without any change.
+    assertThat(ensure(specs, false)).extracting("valid").containsExactly(true, true, true);
+  }
+
+  @Test
+  public void withoutReconcileDriftIsInvalid() throws Exception {
+    createTopic("drifted", 1, config("retention.ms", "1000"));
+
+    List<TopicEnsure.TopicResult> results = ensure(Collections.singletonList(
+        new TopicSpec("drifted", 1, 1, config("retention.ms", "5000"))), false);
+
+    assertThat(results).extracting("valid").containsExactly(false);
+    assertThat(configValue("drifted", "retention.ms")).isEqualTo("1000");
+    assertThat(output.toString()).contains("Invalid topic [ drifted ]");
+  }
+
+  @Test
+  public void partitionMismatchIsNotReconciled() throws Exception {
+    createTopic("wrong-partitions", 3, config("retention.ms", "1000"));
+    createTopic("after", 1, config("retention.ms", "1000"));
+
+    List<TopicEnsure.TopicResult> results = ensure(Arrays.asList(
+        new TopicSpec("wrong-partitions", 1, 1, config("retention.ms", "5000")),
+        new TopicSpec("after", 1, 1, config("retention.ms", "5000"))), true);
+
+    assertThat(results).hasSize(1);
+    assertThat(results.get(0).valid()).isFalse();
+    assertThat(configValue("wrong-partitions", "retention.ms")).isEqualTo("1000");
+    assertThat(configValue("after", "retention.ms")).isEqualTo("1000");
+  }
+}
@@ -20,14 +20,20 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.TopicDescription;
 import org.apache.kafka.common.security.auth.SecurityProtocol;
 import org.apache.kafka.clients.CommonClientConfigs;
 import org.apache.kafka.common.config.TopicConfig;
@@ -57,6 +63,7 @@ public class TopicEnsureTest {
 
   @After
   public void tearDown() throws Exception {
+    topicEnsure.close();
     kafka.shutdown();
   }
 
@@ -108,6 +115,136 @@ public class TopicEnsureTest {
     assertTrue(topicEnsure.validateTopic(spec3, TIMEOUT_MS));
   }
 
+  @Test
+  public void testAsyncCreateExistsValidateTopic() throws Exception {
+    final TopicSpec spec = simpleTopicSpec("async-topic");
+
+    boolean valid = topicEnsure.topicExistsAsync(spec, TIMEOUT_MS)
+        .thenCompose(exists -> exists
+            ? topicEnsure.validateTopicAsync(spec, TIMEOUT_MS)
+            : topicEnsure.createTopicAsync(spec, TIMEOUT_MS)
+                .thenCompose(created -> topicEnsure.validateTopicAsync(spec, TIMEOUT_MS)))
+        .toCompletableFuture().get();
+
+    assertTrue(valid);
+    assertTrue(topicEnsure.topicExistsAsync(spec, TIMEOUT_MS).toCompletableFuture().get());
+  }
+
+  @Test
+  public void testEnsureTopicsCreatesAndValidatesInBatches() throws Exception {
+    final TopicSpec existing = simpleTopicSpec("existing-topic");
+    topicEnsure.createTopic(existing, TIMEOUT_MS);
+
+    List<TopicSpec> specs = Arrays.asList(
+        simpleTopicSpec("batch-topic-1"), existing, simpleTopicSpec("batch-topic-2"));
+    List<TopicEnsure.TopicResult> results = topicEnsure.ensureTopics(specs, true, TIMEOUT_MS, 2);
+
+    assertEquals(3, results.size());
+    assertFalse(results.get(0).exists());
+    assertTrue(results.get(0).created());
+    assertTrue(results.get(1).exists());
+    assertTrue(results.get(1).valid());
+    assertFalse(results.get(2).exists());
+    assertTrue(results.get(2).created());
+    for (TopicSpec spec : specs) {
+      assertTrue(topicEnsure.validateTopic(spec, TIMEOUT_MS));
+    }
+  }
+
+  @Test
+  public void testEnsureTopicsStopsAtFirstInvalidTopic() throws Exception {
+    topicEnsure.createTopic(simpleTopicSpec("test-topic"), TIMEOUT_MS);
+
+    TopicSpec invalid = new TopicSpec("test-topic", 1, DEFAULT_REPLICATION_FACTOR,
+                                      simpleTopicProps());
+    TopicSpec missing = simpleTopicSpec("never-created");
+    List<TopicEnsure.TopicResult> results = topicEnsure.ensureTopics(
+        Arrays.asList(invalid, missing), true, TIMEOUT_MS, TopicEnsure.DEFAULT_BATCH_SIZE);
+
+    assertEquals(1, results.size());
+    assertFalse(results.get(0).valid());
+    assertFalse(topicEnsure.topicExists(missing, TIMEOUT_MS));
+  }
+
+  @Test
+  public void testEnsureTopicsGrowsPartitionsForTargetThroughput() throws Exception {
+    topicEnsure.createTopic(simpleTopicSpec("throughput-topic"), TIMEOUT_MS);
+
+    TopicSpec spec = simpleTopicSpec("throughput-topic");
+    spec.setTargetProduceMbPerSec(50.0);
+    spec.setPartitionProduceMbPerSec(10.0);
+    List<TopicEnsure.TopicResult> results = topicEnsure.ensureTopics(
+        Collections.singletonList(spec), false, TIMEOUT_MS, TopicEnsure.DEFAULT_BATCH_SIZE);
+
+    assertEquals(1, results.size());
+    assertTrue(results.get(0).valid());
+    assertEquals(DEFAULT_PARTITIONS, results.get(0).previousPartitions());
+    assertTrue(topicEnsure.validateTopic(spec, TIMEOUT_MS));
+
+    // A lower target does not shrink the topic.
+    spec.setTargetProduceMbPerSec(10.0);
+    results = topicEnsure.ensureTopics(
+        Collections.singletonList(spec), false, TIMEOUT_MS, TopicEnsure.DEFAULT_BATCH_SIZE);
+    assertTrue(results.get(0).valid());
+    assertFalse(results.get(0).partitionsIncreased());
+  }
+
+  @Test
+  public void testEnsureTopicsRaisesReplicationFactorWhenReconciling() throws Exception {
+    TopicSpec spec = simpleTopicSpec("replicated-topic");
+    topicEnsure.createTopic(
+        new TopicSpec(spec.name(), DEFAULT_PARTITIONS, 1, Collections.emptyMap()), TIMEOUT_MS);
+    assertFalse(topicEnsure.validateTopic(spec, TIMEOUT_MS));
+
+    List<TopicEnsure.TopicResult> results = new ArrayList<>();
+    assertTrue(topicEnsure.ensureTopics(Collections.singletonList(spec).iterator(), false, true,
+        TIMEOUT_MS, TopicEnsure.DEFAULT_BATCH_SIZE, results::add));
+
+    assertEquals(1, results.get(0).previousReplicationFactor());
+    assertTrue(topicEnsure.validateTopic(spec, TIMEOUT_MS));
+  }
+
+  @Test
+  public void testEnsureTopicsBalancesLeadersWithBalancedPlacement() throws Exception {
+    List<TopicSpec> specs = new ArrayList<>();
+    for (int i = 0; i < NUM_BROKERS; i++) {
+      specs.add(new TopicSpec("balanced-topic-" + i, 1, 2, Collections.emptyMap()));
+    }
+    topicEnsure.setBalancedPlacement(true);
+    topicEnsure.ensureTopics(specs, true, TIMEOUT_MS, TopicEnsure.DEFAULT_BATCH_SIZE);
+
+    Properties adminClientProps = new Properties();
+    adminClientProps.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG,
+                         kafka.getBootstrapBrokers(SecurityProtocol.PLAINTEXT));
+    try (AdminClient adminClient = AdminClient.create(adminClientProps)) {
+      Map<Integer, Integer> leaders = new HashMap<>();
+      for (TopicSpec spec : specs) {
+        TopicDescription topic = adminClient.describeTopics(Collections.singletonList(spec.name()))
+            .allTopicNames().get().get(spec.name());
+        leaders.merge(topic.partitions().get(0).replicas().get(0).id(), 1, Integer::sum);
+      }
+      // Each broker leads one of the new topics.
+      assertEquals(NUM_BROKERS, leaders.size());
+    }
+    assertTrue(topicEnsure.validateTopic(specs.get(0), TIMEOUT_MS));
+  }
+
+  @Test
+  public void testBalanceLeadersElectsPreferredLeaders() throws Exception {
+    List<String> topics = new ArrayList<>();
+    for (int i = 0; i < NUM_BROKERS; i++) {
+      TopicSpec spec = simpleTopicSpec("led-topic-" + i);
+      topicEnsure.createTopic(spec, TIMEOUT_MS);
+      topics.add(spec.name());
+    }
+
+    LeaderBalancer.LeaderSkew skew = topicEnsure.balanceLeaders(
+        topics, true, TIMEOUT_MS, TopicEnsure.DEFAULT_BATCH_SIZE);
+    assertEquals(NUM_BROKERS * DEFAULT_PARTITIONS, skew.partitions());
+    assertTrue(skew.notPreferred().isEmpty());
+    assertEquals(NUM_BROKERS, skew.leaders().size());
+  }
+
   private static TopicSpec simpleTopicSpec(String topic) {
     return new TopicSpec(topic, DEFAULT_PARTITIONS, DEFAULT_REPLICATION_FACTOR, simpleTopicProps());
   }
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.Node;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TopicEnsureThroughputTest {
+
+  private static final int TIMEOUT_MS = 10000;
+
+  private MockAdminClient adminClient;
+  private TopicEnsure topicEnsure;
+
+  @Before
+  public void setUp() {
+    List<Node> brokers = Collections.singletonList(new Node(0, "localhost", 9092));
+    adminClient = new MockAdminClient(brokers, brokers.get(0));
+    topicEnsure = new TopicEnsure(adminClient, new PrintStream(OutputStream.nullOutputStream()));
+  }
+
+  private static TopicSpec spec(String name, int partitions, Double produce, Double consume) {
+    TopicSpec spec = new TopicSpec(name, partitions, 1, Collections.emptyMap());
+    spec.setTargetProduceMbPerSec(produce);
+    spec.setPartitionProduceMbPerSec(10.0);
+    spec.setTargetConsumeMbPerSec(consume);
+    spec.setPartitionConsumeMbPerSec(20.0);
+    return spec;
+  }
+
+  private int partitions(String topic) throws Exception {
+    return adminClient.describeTopics(Collections.singletonList(topic)).allTopicNames().get()
+        .get(topic).partitions().size();
+  }
+
+  private List<TopicEnsure.TopicResult> ensure(List<TopicSpec> specs, boolean create)
+      throws Exception {
+    List<TopicEnsure.TopicResult> results = new ArrayList<>();
+    topicEnsure.ensureTopics(specs.iterator(), create, false, TIMEOUT_MS, 2, results::add);
+    return results;
+  }
+
+  @Test
+  public void requiredPartitions() {
+    assertThat(new TopicSpec("fixed", 6, 1, Collections.emptyMap()).requiredPartitions())
+        .isEqualTo(6);
+    assertThat(spec("produce", 6, 95.0, null).requiredPartitions()).isEqualTo(10);
+    assertThat(spec("consume", 6, 95.0, 300.0).requiredPartitions()).isEqualTo(15);
+    assertThat(spec("minimum", 12, 10.0, 10.0).requiredPartitions()).isEqualTo(12);
+    assertThat(spec("fixed", 6, null, null).sizedByThroughput()).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void targetWithoutPartitionThroughput() {
+    TopicSpec spec = new TopicSpec("topic", 1, 1, Collections.emptyMap());
+    spec.setTargetProduceMbPerSec(100.0);
+    spec.requiredPartitions();
+  }
+
+  @Test
+  public void keepsOverProvisionedTopicsAndCreatesMissingOnes() throws Exception {
+    // MockAdminClient cannot add partitions; growing a topic is covered by TopicEnsureTest.
+    adminClient.createTopics(Collections.singletonList(new NewTopic("large", 40, (short) 1)))
+        .all().get();
+
+    List<TopicEnsure.TopicResult> results = ensure(Arrays.asList(
+        spec("large", 1, 100.0, null),
+        spec("missing", 1, null, 300.0)
+    ), true);
+
+    assertThat(results).extracting("previousPartitions").containsExactly(0, 0);
+    assertThat(results.get(0).valid()).isTrue();
+    assertThat(results.get(1).created()).isTrue();
+    // Partitions are never removed.
+    assertThat(partitions("large")).isEqualTo(40);
+    assertThat(partitions("missing")).isEqualTo(15);
+  }
+
+  @Test
+  public void reportsInvalidUnderProvisionedTopicAsItIs() throws Exception {
+    adminClient.createTopics(Collections.singletonList(new NewTopic("small", 2, (short) 1)))
+        .all().get();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    topicEnsure = new TopicEnsure(adminClient, new PrintStream(output, true));
+    TopicSpec spec = new TopicSpec(
+        "small", 1, 1, Collections.singletonMap("cleanup.policy", "compact"));
+    spec.setTargetProduceMbPerSec(100.0);
+    spec.setPartitionProduceMbPerSec(10.0);
+
+    List<TopicEnsure.TopicResult> results = ensure(Collections.singletonList(spec), false);
+
+    assertThat(results.get(0).valid()).isFalse();
+    assertThat(results.get(0).partitionsIncreased()).isFalse();
+    assertThat(output.toString()).contains("but got TopicSpec={name='small', partitions='2'");
+    assertThat(partitions("small")).isEqualTo(2);
+  }
+
+  @Test
+  public void fixedPartitionsMustMatch() throws Exception {
+    adminClient.createTopics(Collections.singletonList(new NewTopic("topic", 2, (short) 1)))
+        .all().get();
+
+    List<TopicEnsure.TopicResult> results = ensure(Collections.singletonList(
+        new TopicSpec("topic", 4, 1, Collections.emptyMap())), false);
+
+    assertThat(results.get(0).valid()).isFalse();
+    assertThat(results.get(0).partitionsIncreased()).isFalse();
+    assertThat(partitions("topic")).isEqualTo(2);
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.kafkaensure;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.common.Node;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class TopicSpecReaderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File write(String yaml) throws Exception {
+    File file = folder.newFile();
+    Files.write(file.toPath(), yaml.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static String topics(int count) {
+    StringBuilder yaml = new StringBuilder("topics:\n");
+    for (int i = 0; i < count; i++) {
+      yaml.append("  - name: topic-").append(i).append('\n')
+          .append("    partitions: 1\n")
+          .append("    replicationFactor: 1\n")
+          .append("    config:\n")
+          .append("      cleanup.policy: compact\n");
+    }
+    return yaml.toString();
+  }
+
+  @Test
+  public void readsTopicsOneAtATime() throws Exception {
+    try (TopicSpecReader reader = TopicSpecReader.open(write(topics(3)))) {
+      List<TopicSpec> specs = new ArrayList<>();
+      reader.forEachRemaining(specs::add);
+      assertThat(specs).containsExactly(
+          new TopicSpec("topic-0", 1, 1, Collections.singletonMap("cleanup.policy", "compact")),
+          new TopicSpec("topic-1", 1, 1, Collections.singletonMap("cleanup.policy", "compact")),
+          new TopicSpec("topic-2", 1, 1, Collections.singletonMap("cleanup.policy", "compact"))
+      );
+      assertThat(reader.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void emptySpecHasNoTopics() throws Exception {
+    for (String yaml : Arrays.asList("", "topics:\n", "topics: []\n")) {
+      try (TopicSpecReader reader = TopicSpecReader.open(write(yaml))) {
+        assertThat(reader.hasNext()).isFalse();
+      }
+    }
+  }
+
+  @Test
+  public void readsTopicsBeforeAnError() throws Exception {
+    try (TopicSpecReader reader = TopicSpecReader.open(write(topics(2) + "  - not a topic\n"))) {
+      assertThat(reader.next().name()).isEqualTo("topic-0");
+      assertThat(reader.next().name()).isEqualTo("topic-1");
+      try {
+        reader.hasNext();
+        fail("Expected an error for an invalid topic");
+      } catch (UncheckedIOException e) {
+        assertThat(e.getMessage()).contains("Expected a topic");
+      }
+    }
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void rejectsUnknownTopicFields() throws Exception {
+    try (TopicSpecReader reader = TopicSpecReader.open(write(
+        "topics:\n  - name: topic-0\n    partition: 1\n"))) {
+      reader.next();
+    }
+  }
+
+  @Test
+  public void ensuresTopicsInChunksWhileReading() throws Exception {
+    List<Node> brokers = Collections.singletonList(new Node(0, "localhost", 9092));
+    MockAdminClient adminClient = new MockAdminClient(brokers, brokers.get(0));
+    TopicEnsure topicEnsure = new TopicEnsure(
+        adminClient, new PrintStream(OutputStream.nullOutputStream()));
+
+    List<TopicEnsure.TopicResult> results = new ArrayList<>();
+    try (TopicSpecReader reader = TopicSpecReader.open(write(topics(25)))) {
+      assertThat(topicEnsure.ensureTopics(reader, true, false, 10000, 10, results::add)).isTrue();
+    }
+    assertThat(results).hasSize(25);
+    assertThat(results.get(24).created()).isTrue();
+    assertThat(adminClient.listTopics().names().get()).hasSize(25);
+
+    try (TopicSpecReader reader = TopicSpecReader.open(write(topics(25)))) {
+      results.clear();
+      assertThat(topicEnsure.ensureTopics(reader, false, false, 10000, 10, results::add)).isTrue();
+    }
+    assertThat(results).extracting("valid").containsOnly(true);
+  }
+}
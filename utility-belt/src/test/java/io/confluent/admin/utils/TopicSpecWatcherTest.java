@@ -0,0 +1,128 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.kafkaensure;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class TopicSpecWatcherTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path specFile;
+  private TopicSpecWatcher watcher;
+
+  @Before
+  public void setUp() throws Exception {
+    specFile = folder.getRoot().toPath().resolve("topics.yml");
+    write(specFile, topic("a", 1), topic("b", 1));
+    watcher = new TopicSpecWatcher(specFile);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    watcher.close();
+  }
+
+  private static String topic(String name, int partitions) {
+    return "  - name: " + name + "\n    partitions: " + partitions + "\n    replicationFactor: 1\n";
+  }
+
+  private static void write(Path file, String... topics) throws IOException {
+    Files.write(file, ("topics:\n" + String.join("", topics)).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static TopicSpec spec(String name, int partitions) {
+    return new TopicSpec(name, partitions, 1, null);
+  }
+
+  @Test
+  public void listsAddedAndModifiedTopics() throws Exception {
+    assertThat(watcher.changes()).containsExactly(spec("a", 1), spec("b", 1));
+    assertThat(watcher.changes()).isEmpty();
+
+    write(specFile, topic("a", 1), topic("b", 2), topic("c", 1));
+    assertThat(watcher.await(10000)).isTrue();
+    assertThat(watcher.changes()).containsExactly(spec("b", 2), spec("c", 1));
+
+    // Removing a topic is not a change to ensure.
+    write(specFile, topic("a", 1), topic("b", 2));
+    assertThat(watcher.changes()).isEmpty();
+  }
+
+  @Test
+  public void retriesForgottenTopics() throws Exception {
+    watcher.changes();
+    watcher.retry(Collections.singletonList(spec("b", 1)));
+    assertThat(watcher.changes()).containsExactly(spec("b", 1));
+  }
+
+  @Test
+  public void keepsPreviousReadOnParseError() throws Exception {
+    watcher.changes();
+    Files.write(specFile, "topics:\n  - oops\n".getBytes(StandardCharsets.UTF_8));
+    try {
+      watcher.changes();
+      fail("Expected a parse error");
+    } catch (IOException e) {
+      assertThat(e.getMessage()).contains("Expected a topic");
+    }
+    write(specFile, topic("a", 1), topic("b", 3));
+    assertThat(watcher.changes()).containsExactly(spec("b", 3));
+  }
+
+  @Test
+  public void noticesSwappedSymbolicLinks() throws Exception {
+    // A ConfigMap volume points the spec through ..data to a versioned directory.
+    Path root = folder.newFolder("configmap").toPath();
+    Path first = Files.createDirectory(root.resolve("v1"));
+    write(first.resolve("topics.yml"), topic("a", 1));
+    Files.createSymbolicLink(root.resolve("..data"), first.getFileName());
+    Path link = root.resolve("topics.yml");
+    Files.createSymbolicLink(link, root.getFileSystem().getPath("..data", "topics.yml"));
+
+    try (TopicSpecWatcher configMap = new TopicSpecWatcher(link)) {
+      assertThat(configMap.changes()).containsExactly(spec("a", 1));
+
+      Path second = Files.createDirectory(root.resolve("v2"));
+      write(second.resolve("topics.yml"), topic("a", 2));
+      Path tmp = Files.createSymbolicLink(root.resolve("..data_tmp"), second.getFileName());
+      Files.move(tmp, root.resolve("..data"), StandardCopyOption.ATOMIC_MOVE);
+
+      assertThat(configMap.await(10000)).isTrue();
+      assertThat(configMap.changes()).containsExactly(spec("a", 2));
+    }
+  }
+
+  @Test
+  public void awaitTimesOutWithoutChanges() throws Exception {
+    assertThat(watcher.await(50)).isFalse();
+  }
+}
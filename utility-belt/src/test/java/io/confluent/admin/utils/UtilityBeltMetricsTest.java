@@ -0,0 +1,152 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.admin.utils;
+
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.apache.kafka.common.metrics.Metrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UtilityBeltMetricsTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Metrics kafkaMetrics;
+  private UtilityBeltMetrics metrics;
+
+  @Before
+  public void setUp() {
+    kafkaMetrics = new Metrics();
+    metrics = new UtilityBeltMetrics(kafkaMetrics);
+  }
+
+  @After
+  public void tearDown() {
+    kafkaMetrics.close();
+  }
+
+  private double operationValue(String operation, String name) {
+    Map<String, String> tags = Collections.singletonMap("operation", operation);
+    return (Double) metrics.metric(name, UtilityBeltMetrics.OPERATION_GROUP, tags).metricValue();
+  }
+
+  private double checkValue(String check, String name) {
+    Map<String, String> tags = Collections.singletonMap("check", check);
+    return (Double) metrics.metric(name, UtilityBeltMetrics.CHECK_GROUP, tags).metricValue();
+  }
+
+  @Test
+  public void recordsLatencyAndErrors() {
+    metrics.record(UtilityBeltMetrics.DESCRIBE_CLUSTER, 10, false);
+    metrics.record(UtilityBeltMetrics.DESCRIBE_CLUSTER, 30, true);
+
+    assertThat(operationValue(UtilityBeltMetrics.DESCRIBE_CLUSTER, "request-total"))
+        .isEqualTo(2.0);
+    assertThat(operationValue(UtilityBeltMetrics.DESCRIBE_CLUSTER, "error-total"))
+        .isEqualTo(1.0);
+    assertThat(operationValue(UtilityBeltMetrics.DESCRIBE_CLUSTER, "latency-max"))
+        .isEqualTo(30.0);
+    assertThat(operationValue(UtilityBeltMetrics.DESCRIBE_CLUSTER, "latency-avg"))
+        .isEqualTo(20.0);
+  }
+
+  @Test
+  public void missingTopicIsNotAnError() {
+    KafkaFutureImpl<Void> missing = new KafkaFutureImpl<>();
+    KafkaFutureImpl<Void> timedOut = new KafkaFutureImpl<>();
+    KafkaFuture<Void> recorded = metrics.record(UtilityBeltMetrics.DESCRIBE_TOPICS, missing);
+    metrics.record(UtilityBeltMetrics.DESCRIBE_TOPICS, timedOut);
+    missing.completeExceptionally(new UnknownTopicOrPartitionException("missing"));
+    timedOut.completeExceptionally(new TimeoutException("timed out"));
+
+    assertThat(recorded).isSameAs(missing);
+    assertThat(operationValue(UtilityBeltMetrics.DESCRIBE_TOPICS, "request-total"))
+        .isEqualTo(2.0);
+    assertThat(operationValue(UtilityBeltMetrics.DESCRIBE_TOPICS, "error-total"))
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  public void recordsChecks() {
+    metrics.recordAttempt("brokers");
+    metrics.recordAttempt("brokers");
+    metrics.recordReady("brokers", 1500);
+    metrics.recordTimeout("metadata quorum");
+
+    assertThat(checkValue("brokers", "attempt-total")).isEqualTo(2.0);
+    assertThat(checkValue("brokers", "time-to-ready-ms")).isEqualTo(1500.0);
+    assertThat(checkValue("metadata quorum", "timeout-total")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void writesPrometheusText() throws Exception {
+    metrics.record(UtilityBeltMetrics.CREATE_TOPICS, 42, false);
+    metrics.recordReady("metadata quorum", 250);
+
+    Path file = folder.getRoot().toPath().resolve("utility-belt.prom");
+    metrics.writePrometheusFile(file);
+    String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+    assertThat(text).contains(
+        "# TYPE utility_belt_operations_request_total counter\n",
+        "utility_belt_operations_request_total{operation=\"create-topics\"} 1.0\n",
+        "utility_belt_operations_latency_max{operation=\"create-topics\"} 42.0\n",
+        "# TYPE utility_belt_checks_time_to_ready_ms gauge\n",
+        "utility_belt_checks_time_to_ready_ms{check=\"metadata quorum\"} 250.0\n"
+    );
+    assertThat(text).doesNotContain("kafka_metrics_count");
+    assertThat(folder.getRoot().list()).containsExactly("utility-belt.prom");
+  }
+
+  @Test
+  public void writesLatencyHistogram() {
+    metrics.record(UtilityBeltMetrics.DESCRIBE_ACLS, 42, false);
+    metrics.record(UtilityBeltMetrics.DESCRIBE_ACLS, 700, true);
+
+    String text = metrics.toPrometheusText();
+    String family = "utility_belt_operations_latency";
+    String labels = "operation=\"describe-acls\"";
+    assertThat(text).containsOnlyOnce("# TYPE " + family + " histogram\n");
+    assertThat(text).contains(
+        "# TYPE " + family + " histogram\n"
+            + family + "_bucket{le=\"5\"," + labels + "} 0.0\n"
+            + family + "_bucket{le=\"10\"," + labels + "} 0.0\n"
+            + family + "_bucket{le=\"25\"," + labels + "} 0.0\n"
+            + family + "_bucket{le=\"50\"," + labels + "} 1.0\n",
+        family + "_bucket{le=\"500\"," + labels + "} 1.0\n"
+            + family + "_bucket{le=\"1000\"," + labels + "} 2.0\n",
+        family + "_bucket{le=\"60000\"," + labels + "} 2.0\n"
+            + family + "_bucket{le=\"+Inf\"," + labels + "} 2.0\n"
+            + family + "_sum{" + labels + "} 742.0\n"
+            + family + "_count{" + labels + "} 2.0\n"
+    );
+  }
+}
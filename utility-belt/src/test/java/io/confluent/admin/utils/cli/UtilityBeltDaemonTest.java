@@ -0,0 +1,96 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.admin.utils.cli;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.common.Node;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UtilityBeltDaemonTest {
+
+  private Path socketDir;
+  private String socket;
+  private UtilityBeltDaemon daemon;
+  private Thread serveThread;
+
+  @Before
+  public void setUp() throws Exception {
+    List<Node> brokers = Arrays.asList(
+        new Node(0, "localhost", 9092), new Node(1, "localhost", 9093));
+    socketDir = Files.createTempDirectory("utility-belt-daemon");
+    socket = socketDir.resolve("daemon.sock").toString();
+    daemon = new UtilityBeltDaemon(
+        new MockAdminClient(brokers, brokers.get(0)), socketDir.resolve("daemon.sock"), 2);
+    serveThread = new Thread(() -> {
+      try {
+        daemon.serve();
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    serveThread.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    daemon.close();
+    serveThread.join();
+    Files.deleteIfExists(socketDir);
+  }
+
+  @Test(timeout = 60000)
+  public void forwardsKafkaReady() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertThat(UtilityBeltClient.forward(
+        socket, KafkaReadyCommand.KAFKA_READY, new String[]{"2", "5000"},
+        new PrintStream(output, true))).isEqualTo(0);
+  }
+
+  @Test(timeout = 60000)
+  public void forwardsKafkaReadyFailure() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertThat(UtilityBeltClient.forward(
+        socket, KafkaReadyCommand.KAFKA_READY, new String[]{"3", "1500"},
+        new PrintStream(output, true))).isEqualTo(1);
+  }
+
+  @Test(timeout = 60000)
+  public void rejectsUnknownCommand() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertThat(UtilityBeltClient.forward(
+        socket, "zookeeper-ready", new String[0], new PrintStream(output, true))).isEqualTo(1);
+    assertThat(output.toString()).contains("Unknown command [ zookeeper-ready ]");
+  }
+
+  @Test(timeout = 60000)
+  public void failsWhenDaemonIsNotRunning() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertThat(UtilityBeltClient.forward(
+        socketDir.resolve("missing.sock").toString(), KafkaReadyCommand.KAFKA_READY,
+        new String[]{"2", "5000"}, new PrintStream(output, true))).isEqualTo(1);
+  }
+}
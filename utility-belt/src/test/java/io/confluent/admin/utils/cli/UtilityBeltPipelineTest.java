@@ -0,0 +1,136 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.confluent.admin.utils.cli;
+
+import org.apache.kafka.clients.admin.MockAdminClient;
+import org.apache.kafka.common.Node;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UtilityBeltPipelineTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<Node> brokers = Arrays.asList(
+      new Node(0, "localhost", 9092), new Node(1, "localhost", 9093));
+
+  private Path write(String name, String content) throws Exception {
+    Path file = folder.getRoot().toPath().resolve(name);
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  @Test(timeout = 60000)
+  public void runsStepsWithSharedClient() throws Exception {
+    MockAdminClient adminClient = new MockAdminClient(brokers, brokers.get(0));
+    Path spec = write("spec.yml",
+        "topics:\n  - name: topic-a\n    partitions: 1\n    replicationFactor: 2\n");
+    Path config = write("client.properties", "bootstrap.servers=localhost:9092\n");
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    assertThat(UtilityBeltPipeline.run(Arrays.asList(
+        UtilityBeltPipeline.parseStep("kafka-ready 2 5000"),
+        UtilityBeltPipeline.parseStep("topic-ensure --timeout 10000 --config " + config
+            + " --file " + spec + " --create-if-not-exists true")
+    ), adminClient, new PrintStream(output, true))).isTrue();
+
+    assertThat(adminClient.listTopics().names().get()).containsExactly("topic-a");
+    assertThat(output.toString())
+        .contains("Step [ kafka-ready 2 5000 ] succeeded in")
+        .contains("Step [ topic-ensure --timeout 10000");
+  }
+
+  @Test(timeout = 60000)
+  public void stopsAtFirstFailedStep() throws Exception {
+    MockAdminClient adminClient = new MockAdminClient(brokers, brokers.get(0));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    assertThat(UtilityBeltPipeline.run(Arrays.asList(
+        UtilityBeltPipeline.parseStep("kafka-ready 3 1500"),
+        UtilityBeltPipeline.parseStep("kafka-ready 2 5000")
+    ), adminClient, new PrintStream(output, true))).isFalse();
+
+    assertThat(output.toString())
+        .contains("Step [ kafka-ready 3 1500 ] failed in")
+        .doesNotContain("kafka-ready 2 5000");
+  }
+
+  @Test(timeout = 60000)
+  public void rejectsWatchSteps() throws Exception {
+    MockAdminClient adminClient = new MockAdminClient(brokers, brokers.get(0));
+    Path spec = write("spec.yml",
+        "topics:\n  - name: topic-a\n    partitions: 1\n    replicationFactor: 2\n");
+    Path config = write("client.properties", "bootstrap.servers=localhost:9092\n");
+    String step = "topic-ensure --timeout 10000 --config " + config + " --file " + spec
+        + " --create-if-not-exists true";
+
+    for (String watch : new String[] {" --watch true", " --watch=true", " --wat true"}) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      assertThat(UtilityBeltPipeline.run(
+          Arrays.asList(UtilityBeltPipeline.parseStep(step + watch)),
+          adminClient, new PrintStream(output, true))).isFalse();
+      assertThat(output.toString()).contains("--watch is not supported");
+    }
+    assertThat(adminClient.listTopics().names().get()).isEmpty();
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertThat(UtilityBeltPipeline.run(
+        Arrays.asList(UtilityBeltPipeline.parseStep(step + " --watch false")),
+        adminClient, new PrintStream(output, true))).isTrue();
+    assertThat(adminClient.listTopics().names().get()).containsExactly("topic-a");
+  }
+
+  @Test
+  public void splitsStepsOnWhitespace() {
+    assertThat(UtilityBeltPipeline.parseStep("  kafka-ready\t3   60000 "))
+        .containsExactly("kafka-ready", "3", "60000");
+  }
+
+  @Test
+  public void keepsQuotedArgumentsTogether() {
+    assertThat(UtilityBeltPipeline.parseStep("topic-ensure --file '/etc/kafka/my topics.yml' "
+        + "--config \"/etc/kafka/a \\\"b\\\".properties\""))
+        .containsExactly(
+            "topic-ensure", "--file", "/etc/kafka/my topics.yml",
+            "--config", "/etc/kafka/a \"b\".properties");
+    assertThat(UtilityBeltPipeline.parseStep("a\\ b '' \"c\\d\" e'f'"))
+        .containsExactly("a b", "", "c\\d", "ef");
+  }
+
+  @Test
+  public void rejectsUnclosedQuotes() {
+    for (String step : new String[] {"kafka-ready '3 60000", "kafka-ready \"3", "kafka-ready \\"}) {
+      try {
+        UtilityBeltPipeline.parseStep(step);
+        throw new AssertionError("Expected [ " + step + " ] to be rejected");
+      } catch (IllegalArgumentException e) {
+        assertThat(e.getMessage()).contains(step);
+      }
+    }
+  }
+}